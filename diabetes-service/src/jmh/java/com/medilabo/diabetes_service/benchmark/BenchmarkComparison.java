@@ -0,0 +1,159 @@
+package com.medilabo.diabetes_service.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compare les résultats JMH d'une exécution (format JSON) à ceux d'une exécution de référence.
+ * Une régression est signalée quand le débit baisse, ou que l'allocation par opération augmente,
+ * de plus que le seuil relatif donné et au-delà des marges d'erreur ({@code scoreError}) des deux mesures :
+ * un écart qui reste dans ces marges est signalé comme du bruit.
+ * <p>
+ * Usage : {@code BenchmarkComparison <référence.json> <résultat.json> [seuil, 0.10 par défaut] [mode]}, où le mode est :
+ * <ul>
+ *     <li>{@code report} (par défaut) : affiche la comparaison sans jamais faire échouer le build,
+ *     la référence ayant pu être mesurée sur une autre machine ;</li>
+ *     <li>{@code fail} : se termine en erreur s'il y a au moins une régression, à réserver à une référence
+ *     mesurée sur la même machine ;</li>
+ *     <li>{@code adopt} : remplace la référence par le résultat, sans les champs propres à l'environnement
+ *     d'exécution (chemin et version de la JVM, options).</li>
+ * </ul>
+ * Cette classe n'est pas instanciable
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    /** Écart d'allocation toléré en octets par opération, pour les mesures proches de zéro. */
+    private static final double ALLOCATION_TOLERANCE = 16;
+    /** Champs d'un résultat JMH qui décrivent l'environnement d'exécution et non la mesure. */
+    private static final List<String> ENVIRONMENT_FIELDS = List.of("jvm", "jvmArgs", "jdkVersion", "vmName", "vmVersion");
+
+    /**
+     * Mesures retenues pour un benchmark et un jeu de paramètres.
+     *
+     * @param score Débit, en opérations par seconde
+     * @param scoreError Marge d'erreur du débit
+     * @param allocation Octets alloués par opération, ou NaN si non mesurés
+     * @param allocationError Marge d'erreur de l'allocation, ou NaN si non mesurée
+     */
+    private record Measure(double score, double scoreError, double allocation, double allocationError) {}
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation de cette classe utilitaire.
+     *
+     * @throws IllegalStateException si tentative d'instanciation
+     */
+    private BenchmarkComparison() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : BenchmarkComparison <référence.json> <résultat.json> [seuil] [report|fail|adopt]");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        File resultFile = new File(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        String mode = args.length > 3 ? args[3] : "report";
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        if (mode.equals("adopt")) {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(baselineFile, withoutEnvironment(objectMapper.readTree(resultFile)));
+            System.out.println("Nouvelle référence écrite dans " + baselineFile);
+            return;
+        }
+        if (!baselineFile.exists()) {
+            System.out.println("Aucune référence " + baselineFile + " : comparaison ignorée");
+            return;
+        }
+
+        Map<String, Measure> baseline = read(objectMapper.readTree(baselineFile));
+        Map<String, Measure> current = read(objectMapper.readTree(resultFile));
+
+        int regressions = 0;
+        for (Map.Entry<String, Measure> entry : current.entrySet()) {
+            Measure before = baseline.get(entry.getKey());
+            Measure after = entry.getValue();
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "NOUVEAU    %s : %.0f ops/s%n", entry.getKey(), after.score());
+                continue;
+            }
+            double scoreChange = after.score() / before.score() - 1;
+            boolean slower = scoreChange < -threshold;
+            boolean allocates = !Double.isNaN(before.allocation()) && !Double.isNaN(after.allocation())
+                    && after.allocation() > before.allocation() * (1 + threshold) + ALLOCATION_TOLERANCE;
+            // Un écart qui reste dans les marges d'erreur des deux mesures n'est pas significatif
+            boolean significant = slower && after.score() + after.scoreError() < before.score() - before.scoreError()
+                    || allocates && after.allocation() - errorOrZero(after.allocationError())
+                                    > before.allocation() + errorOrZero(before.allocationError());
+            if (significant) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-10s %s : %.0f ± %.0f -> %.0f ± %.0f ops/s (%+.1f %%), %.0f -> %.0f o/op%n",
+                              significant ? "RÉGRESSION" : slower || allocates ? "BRUIT" : "OK", entry.getKey(),
+                              before.score(), before.scoreError(), after.score(), after.scoreError(), scoreChange * 100,
+                              before.allocation(), after.allocation());
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " régression(s) au-delà du seuil de " + threshold * 100 + " %");
+            if (mode.equals("fail")) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static double errorOrZero(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    /**
+     * @param results Résultats JMH
+     * @return Les mêmes résultats sans les champs qui décrivent l'environnement d'exécution
+     */
+    private static JsonNode withoutEnvironment(JsonNode results) {
+        for (JsonNode result : results) {
+            if (result instanceof ObjectNode node) {
+                node.remove(ENVIRONMENT_FIELDS);
+            }
+        }
+        return results;
+    }
+
+    private static Map<String, Measure> read(JsonNode results) {
+        Map<String, Measure> measures = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String benchmark = result.path("benchmark").asText();
+            String key = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1)
+                    + (params.isEmpty() ? "" : " " + params);
+
+            double allocation = Double.NaN;
+            double allocationError = Double.NaN;
+            var secondary = result.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                var metric = secondary.next();
+                // Selon la version de JMH, les métriques des profileurs sont préfixées par « · »
+                if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                    allocation = metric.getValue().path("score").asDouble();
+                    allocationError = metric.getValue().path("scoreError").asDouble(Double.NaN);
+                }
+            }
+            JsonNode primary = result.path("primaryMetric");
+            measures.put(key, new Measure(primary.path("score").asDouble(), errorOrZero(primary.path("scoreError").asDouble(Double.NaN)),
+                                          allocation, allocationError));
+        }
+        return measures;
+    }
+}
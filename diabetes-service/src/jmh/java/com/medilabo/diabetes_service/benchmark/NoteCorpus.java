@@ -0,0 +1,58 @@
+package com.medilabo.diabetes_service.benchmark;
+
+import com.medilabo.diabetes_service.dto.NoteDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Génère des notes de patient reproductibles pour les benchmarks.
+ * Les notes sont faites de mots courants ne contenant aucun terme déclencheur, parmi lesquels
+ * des termes déclencheurs sont insérés selon une densité donnée. Seuls quelques termes sont utilisés,
+ * pour que la recherche ne s'arrête jamais avant la dernière note : le coût mesuré est celui d'une lecture complète.
+ * Cette classe n'est pas instanciable
+ */
+final class NoteCorpus {
+
+    private static final String[] WORDS = {
+            "patient", "consultation", "tension", "stable", "suivi", "traitement", "examen", "normal",
+            "douleur", "légère", "dos", "sommeil", "bon", "appétit", "contrôle", "prévu", "semaine", "prochaine"
+    };
+
+    private static final String[] TRIGGERS = {"Poids", "Cholestérol", "Microalbumine", "Rechute"};
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation de cette classe utilitaire.
+     *
+     * @throws IllegalStateException si tentative d'instanciation
+     */
+    private NoteCorpus() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param noteCount Nombre de notes
+     * @param noteLength Longueur minimale de chaque note, en caractères
+     * @param triggerDensity Probabilité qu'un mot soit un terme déclencheur, entre 0 et 1
+     * @param seed Graine du générateur, pour obtenir les mêmes notes d'une exécution à l'autre
+     * @return Les notes générées, d'un même patient
+     */
+    static List<NoteDTO> generate(int noteCount, int noteLength, double triggerDensity, long seed) {
+        Random random = new Random(seed);
+        List<NoteDTO> notes = new ArrayList<>(noteCount);
+        for (int i = 0; i < noteCount; i++) {
+            StringBuilder note = new StringBuilder(noteLength + 16);
+            while (note.length() < noteLength) {
+                if (!note.isEmpty()) {
+                    note.append(' ');
+                }
+                note.append(random.nextDouble() < triggerDensity
+                                    ? TRIGGERS[random.nextInt(TRIGGERS.length)]
+                                    : WORDS[random.nextInt(WORDS.length)]);
+            }
+            notes.add(new NoteDTO(String.format("%024x", i), 1, note.toString()));
+        }
+        return notes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.medilabo.diabetes_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.engine.LegacyRiskRules;
+import com.medilabo.diabetes_service.engine.RiskDecisionTable;
+import com.medilabo.diabetes_service.engine.RiskRulesConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détermination du niveau de risque (ancien {@code determineRiskLevel}) : table de décision compilée
+ * depuis {@code risk-rules.json}, comparée aux règles historiques écrites en dur.
+ * Chaque invocation évalue un lot d'entrées variées, pour ne pas mesurer un seul chemin de branchement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RiskLevelBenchmark {
+
+    private static final int INPUTS = 1024;
+    private static final String[] GENDERS = {"M", "F"};
+
+    private RiskDecisionTable decisionTable;
+    private final int[] ages = new int[INPUTS];
+    private final String[] genders = new String[INPUTS];
+    private final long[] triggerCounts = new long[INPUTS];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (InputStream in = RiskLevelBenchmark.class.getResourceAsStream("/risk-rules.json")) {
+            decisionTable = RiskDecisionTable.compile(new ObjectMapper().readValue(in, RiskRulesConfig.class));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            ages[i] = random.nextInt(100);
+            genders[i] = GENDERS[random.nextInt(GENDERS.length)];
+            triggerCounts[i] = random.nextInt(12);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public void decisionTable(Blackhole blackhole) {
+        for (int i = 0; i < INPUTS; i++) {
+            blackhole.consume(decisionTable.riskLevel(ages[i], genders[i], triggerCounts[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public void legacyRules(Blackhole blackhole) {
+        for (int i = 0; i < INPUTS; i++) {
+            blackhole.consume(LegacyRiskRules.determineRiskLevel(ages[i], genders[i], triggerCounts[i]));
+        }
+    }
+}
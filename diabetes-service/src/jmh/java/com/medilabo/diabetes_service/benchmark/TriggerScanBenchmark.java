@@ -0,0 +1,72 @@
+package com.medilabo.diabetes_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.config.DiabetesConstants;
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.engine.TriggerMatcher;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import com.medilabo.diabetes_service.service.NoteStreamScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche des termes déclencheurs dans l'historique de notes d'un patient (ancien {@code countUniqueTriggers}) :
+ * sur des notes déjà désérialisées, et au fil de la lecture de la réponse JSON du service de notes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class TriggerScanBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int noteCount;
+
+    @Param({"100", "1000"})
+    public int noteLength;
+
+    @Param({"0", "0.01", "0.1"})
+    public double triggerDensity;
+
+    private TriggerMatcher matcher;
+    private NoteStreamScanner noteStreamScanner;
+    private List<NoteDTO> notes;
+    private byte[] notesJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        matcher = TriggerMatcher.compile(DiabetesConstants.TRIGGER_TERMS);
+        noteStreamScanner = new NoteStreamScanner(objectMapper);
+        notes = NoteCorpus.generate(noteCount, noteLength, triggerDensity, 42);
+        notesJson = objectMapper.writeValueAsBytes(notes);
+    }
+
+    @Benchmark
+    public TriggerState scanNotes() {
+        return TriggerState.scan(matcher, notes, NoteDTO::getNote);
+    }
+
+    @Benchmark
+    public ScannedNotes streamNotes() throws IOException {
+        return noteStreamScanner.scan(new ByteArrayInputStream(notesJson), matcher);
+    }
+}
@@ -1,11 +1,25 @@
 package com.medilabo.diabetes_service.config;
 
 import feign.auth.BasicAuthRequestInterceptor;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
 
 
 /**
@@ -13,6 +27,7 @@ import org.springframework.web.client.RestTemplate;
  * notamment les composants permettant la communication avec les services backend.
  */
 @Configuration
+@EnableScheduling
  public class AppConfig {
     @Value("${GATEWAY_AUTH_USERNAME}")
     private String backendApiUsername;
@@ -29,4 +44,111 @@ import org.springframework.web.client.RestTemplate;
     public BasicAuthRequestInterceptor basicAuthRequestInterceptor() {
         return new BasicAuthRequestInterceptor(backendApiUsername, backendApiPassword);
     }
+
+    /**
+     * Crée l'exécuteur utilisé pour lancer en parallèle les appels vers les services patient et notes.
+     * Lorsque la file d'attente est pleine, l'appel est rejeté : l'évaluation utilise aussitôt sa valeur de repli
+     * au lieu d'exécuter l'appel sur son propre thread, sans délai maximal.
+     *
+     * @param poolSize Nombre de threads de l'exécuteur
+     * @param queueCapacity Nombre maximal d'appels en attente
+     * @return Un exécuteur borné dédié aux appels sortants
+     */
+    @Bean
+    public ThreadPoolTaskExecutor fetchExecutor(@Value("${diabetes.fetch.pool-size:16}") int poolSize,
+                                                @Value("${diabetes.fetch.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("diabetes-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * Déclare explicitement l'exécuteur par défaut de l'application, que Spring Boot ne crée plus dès qu'un autre
+     * exécuteur est déclaré. Il exécute notamment les réponses asynchrones de Spring MVC (réévaluation en flux),
+     * et se règle par les propriétés {@code spring.task.execution.*}.
+     *
+     * @param builder Constructeur d'exécuteur configuré par Spring Boot
+     * @return L'exécuteur par défaut de l'application
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                  AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Crée l'exécuteur des réévaluations déclenchées par les écritures sur les patients suivis en temps réel.
+     * Distinct de l'exécuteur des appels sortants, qu'une réévaluation utilise et attend.
+     *
+     * @param poolSize Nombre de threads de l'exécuteur
+     * @return Un exécuteur dédié aux réévaluations
+     */
+    @Bean
+    public ThreadPoolTaskExecutor riskChangeExecutor(@Value("${diabetes.changes.pool-size:2}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("diabetes-changes-");
+        return executor;
+    }
+
+    /**
+     * Crée l'exécuteur qui tient à jour le modèle de lecture des risques : recalculs après les écritures
+     * et reconstructions complètes. Distinct de l'exécuteur des appels sortants, qu'un recalcul utilise et attend.
+     *
+     * @param poolSize Nombre de threads de l'exécuteur
+     * @return Un exécuteur dédié au modèle de lecture
+     */
+    @Bean
+    public ThreadPoolTaskExecutor readModelExecutor(@Value("${diabetes.read-model.pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("diabetes-read-model-");
+        return executor;
+    }
+
+    /**
+     * Crée le réservoir de connexions persistantes du client HTTP non bloquant (mode réactif).
+     *
+     * @param maxConnections Nombre maximal de connexions ouvertes par service
+     * @param maxIdleTime Durée au-delà de laquelle une connexion inutilisée est fermée
+     * @return Un réservoir de connexions, fermé à l'arrêt de l'application
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "diabetes.mode", havingValue = "reactive")
+    public ConnectionProvider fetchConnectionProvider(@Value("${diabetes.reactive.max-connections:200}") int maxConnections,
+                                                      @Value("${diabetes.reactive.max-idle-time:PT30S}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("diabetes-fetch")
+                                 .maxConnections(maxConnections)
+                                 .pendingAcquireTimeout(Duration.ofSeconds(1))
+                                 .maxIdleTime(maxIdleTime)
+                                 .build();
+    }
+
+    /**
+     * Crée le client HTTP non bloquant utilisé en mode réactif pour appeler les services patient et notes.
+     * Les réponses compressées en gzip sont décompressées à la réception, et l'authentification Basic
+     * vers l'API Gateway est ajoutée à chaque requête.
+     *
+     * @param builder Constructeur de WebClient configuré par Spring Boot (codecs JSON)
+     * @param connectionProvider Réservoir de connexions
+     * @param connectTimeoutMs Délai maximal d'établissement d'une connexion, en millisecondes
+     * @return Un WebClient prêt à l'emploi
+     */
+    @Bean
+    @ConditionalOnProperty(name = "diabetes.mode", havingValue = "reactive")
+    public WebClient fetchWebClient(WebClient.Builder builder, ConnectionProvider connectionProvider,
+                                    @Value("${diabetes.reactive.connect-timeout-ms:1000}") int connectTimeoutMs) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                                          .compress(true)
+                                          .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs);
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient))
+                      .defaultHeaders(headers -> headers.setBasicAuth(backendApiUsername, backendApiPassword))
+                      .build();
+    }
  }
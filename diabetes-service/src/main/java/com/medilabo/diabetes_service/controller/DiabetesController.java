@@ -1,14 +1,34 @@
 package com.medilabo.diabetes_service.controller;
 
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
+import com.medilabo.diabetes_service.dto.CacheStatsDTO;
+import com.medilabo.diabetes_service.dto.MaterializedRiskDTO;
+import com.medilabo.diabetes_service.dto.ReadModelStatsDTO;
+import com.medilabo.diabetes_service.dto.RiskConsistencyDTO;
 import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.service.DiabetesRiskCache;
 import com.medilabo.diabetes_service.service.DiabetesService;
+import com.medilabo.diabetes_service.service.ReactiveDiabetesService;
+import com.medilabo.diabetes_service.service.RiskReadModel;
+import com.medilabo.diabetes_service.service.RiskSweepService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 /**
  * Contrôleur REST exposant les API pour l'évaluation du risque de diabète.
@@ -21,21 +41,147 @@ public class DiabetesController {
     private static final Logger log = LoggerFactory.getLogger(DiabetesController.class);
 
     private final DiabetesService diabetesService;
+    private final RiskSweepService riskSweepService;
+    private final DiabetesRiskCache riskCache;
+    private final ObjectProvider<ReactiveDiabetesService> reactiveDiabetesService;
+    private final RiskReadModel riskReadModel;
 
     /**
      * Évalue le risque de diabète pour un patient donné par son ID.
-     * Récupère les notes médicales du patient via les services appropriés,
+     * Le niveau conservé dans le modèle de lecture est renvoyé directement, sans appel aux autres services.
+     * Pour un patient absent du modèle, récupère les notes médicales du patient via les services appropriés,
      * analyse leur contenu et détermine le niveau de risque en fonction
-     * des termes déclencheurs identifiés.
+     * des termes déclencheurs identifiés, puis ajoute le patient au modèle.
+     * En mode réactif ({@code diabetes.mode=reactive}), aucun thread n'est retenu pendant la récupération
+     * des données ; sinon l'évaluation est faite par le service bloquant.
      *
      * @param patientId L'ID du patient à évaluer
-     * @return Le niveau de risque de diabète calculé (NONE, BORDERLINE, IN_DANGER ou EARLY_ONSET)
+     * @return Le niveau de risque de diabète calculé (NONE, BORDERLINE, IN_DANGER ou EARLY_ONSET), à venir
      */
     @GetMapping("/{patientId}")
-    public DiabetesRiskLevel getDiabetesAssessment(@PathVariable int patientId) {
+    public Mono<DiabetesRiskLevel> getDiabetesAssessment(@PathVariable int patientId) {
         log.info("Requête reçue pour évaluer le risque du patient ID: {}", patientId);
-        DiabetesRiskLevel riskLevel = diabetesService.assessDiabetesRisk(patientId);
-        log.info("Évaluation terminée pour patient ID {}. Risque: {}", patientId, riskLevel);
-        return riskLevel;
+        DiabetesRiskLevel materialized = riskReadModel.riskLevel(patientId);
+        if (materialized != null) {
+            log.info("Risque conservé pour patient ID {}: {}", patientId, materialized);
+            return Mono.just(materialized);
+        }
+        ReactiveDiabetesService reactive = reactiveDiabetesService.getIfAvailable();
+        Mono<DiabetesRiskLevel> riskLevel = reactive != null ? reactive.assessDiabetesRisk(patientId)
+                : Mono.fromSupplier(() -> diabetesService.assessDiabetesRisk(patientId));
+        return riskLevel.doOnNext(level -> {
+            log.info("Évaluation terminée pour patient ID {}. Risque: {}", patientId, level);
+            riskReadModel.materialize(patientId);
+        });
+    }
+
+    /**
+     * Renvoie le niveau de risque conservé d'un patient dans le modèle de lecture, avec les données qui l'ont produit.
+     *
+     * @param patientId L'ID du patient
+     * @return Le niveau conservé, ou 404 (Not Found) si le patient ne figure pas dans le modèle
+     */
+    @GetMapping("/{patientId}/materialized")
+    public ResponseEntity<MaterializedRiskDTO> getMaterializedRisk(@PathVariable int patientId) {
+        MaterializedRiskDTO materialized = riskReadModel.find(patientId);
+        return materialized != null ? ResponseEntity.ok(materialized) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Compare le niveau de risque conservé d'un patient à un calcul à partir de ses données sources,
+     * et corrige le niveau conservé en cas d'écart.
+     *
+     * @param patientId L'ID du patient
+     * @return Le résultat de la comparaison, ou 503 (Service Unavailable) si les données du patient
+     *         n'ont pas pu être récupérées
+     */
+    @GetMapping("/{patientId}/consistency")
+    public ResponseEntity<RiskConsistencyDTO> checkConsistency(@PathVariable int patientId) {
+        log.info("Vérification du risque conservé du patient ID: {}", patientId);
+        try {
+            return ResponseEntity.ok(riskReadModel.verify(patientId));
+        } catch (IllegalStateException e) {
+            log.warn("Vérification impossible : {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Évalue le risque de diabète pour un groupe de patients.
+     * Les patients qui ne peuvent pas être évalués sont signalés individuellement
+     * sans faire échouer le reste du groupe.
+     *
+     * @param patientIds Les IDs des patients à évaluer
+     * @return Les niveaux de risque par ID de patient et les erreurs éventuelles,
+     *         ou 400 (Bad Request) si le groupe dépasse la taille maximale autorisée
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchAssessmentResponse> getDiabetesAssessments(@RequestBody List<Integer> patientIds) {
+        log.info("Requête reçue pour évaluer le risque de {} patient(s)", patientIds.size());
+        try {
+            return ResponseEntity.ok(diabetesService.assessDiabetesRiskBatch(patientIds));
+        } catch (IllegalArgumentException e) {
+            log.warn("Évaluation groupée refusée : {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Réévalue le risque de diabète de tous les patients et renvoie les résultats au fil de l'eau,
+     * une ligne JSON par patient (NDJSON), sans attendre la fin du traitement.
+     *
+     * @return Le flux des niveaux de risque, au format application/x-ndjson
+     */
+    @GetMapping("/sweep")
+    public ResponseEntity<StreamingResponseBody> sweepAllPatients() {
+        log.info("Requête reçue pour réévaluer le risque de tous les patients");
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(riskSweepService::sweep);
+    }
+
+    /**
+     * Renvoie l'état du modèle de lecture des niveaux de risque.
+     *
+     * @return Sa taille, le nombre de niveaux en attente de calcul et l'état des reconstructions
+     */
+    @GetMapping("/read-model/stats")
+    public ReadModelStatsDTO getReadModelStats() {
+        return riskReadModel.stats();
+    }
+
+    /**
+     * Reconstruit entièrement le modèle de lecture des niveaux de risque en arrière-plan,
+     * à partir de la liste de tous les patients.
+     *
+     * @return 202 (Accepted)
+     */
+    @PostMapping("/read-model/rebuild")
+    public ResponseEntity<Void> rebuildReadModel() {
+        log.info("Requête reçue pour reconstruire le modèle de lecture des risques");
+        riskReadModel.requestRebuild();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Renvoie les statistiques du cache des évaluations de risque.
+     *
+     * @return La taille du cache et ses compteurs de succès, d'échecs et d'évictions
+     */
+    @GetMapping("/cache/stats")
+    public CacheStatsDTO getCacheStats() {
+        return riskCache.stats();
+    }
+
+    /**
+     * Vide le cache des évaluations de risque.
+     *
+     * @return 204 (No Content)
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() {
+        log.info("Vidage du cache des évaluations de risque");
+        riskCache.invalidateAll();
+        return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.medilabo.diabetes_service.controller;
+
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Contrôleur REST recevant les notifications de changement envoyées par les services patient et notes.
+ * Chaque notification est republiée sous forme d'événement applicatif, auquel réagissent
+ * les composants qui conservent un état dérivé des données du patient (cache des risques, etc.).
+ */
+@RestController
+@RequestMapping("/diabetes/events")
+@RequiredArgsConstructor
+@Slf4j
+public class DiabetesEventController {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Signale que les informations d'un patient ont été créées, modifiées ou supprimées.
+     *
+     * @param patientId L'ID du patient modifié
+     * @return 204 (No Content)
+     */
+    @PostMapping("/patients/{patientId}")
+    public ResponseEntity<Void> patientChanged(@PathVariable int patientId) {
+        log.debug("Notification reçue : patient ID {} modifié", patientId);
+        eventPublisher.publishEvent(new PatientChangedEvent(patientId));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Signale qu'une note a été ajoutée à un patient. La note est transmise pour que ses termes
+     * déclencheurs soient lus sans relire les notes précédentes du patient.
+     *
+     * @param note La note créée
+     * @return 204 (No Content)
+     */
+    @PostMapping("/notes")
+    public ResponseEntity<Void> noteCreated(@RequestBody NoteDTO note) {
+        log.debug("Notification reçue : note {} ajoutée au patient ID {}", note.getId(), note.getPatId());
+        eventPublisher.publishEvent(new NoteCreatedEvent(note.getPatId(), note.getId(), note.getNote()));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Signale que les notes d'un patient ont été supprimées ou modifiées.
+     *
+     * @param patientId L'ID du patient concerné
+     * @return 204 (No Content)
+     */
+    @PostMapping("/notes/{patientId}")
+    public ResponseEntity<Void> notesChanged(@PathVariable int patientId) {
+        log.debug("Notification reçue : notes du patient ID {} modifiées", patientId);
+        eventPublisher.publishEvent(new NotesChangedEvent(patientId));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Signale en une seule notification que les notes de plusieurs patients ont été modifiées,
+     * par exemple après un import de notes en masse.
+     *
+     * @param patientIds Les IDs des patients concernés
+     * @return 204 (No Content)
+     */
+    @PostMapping("/notes/bulk")
+    public ResponseEntity<Void> notesChanged(@RequestBody List<Integer> patientIds) {
+        log.debug("Notification reçue : notes de {} patient(s) modifiées", patientIds.size());
+        patientIds.forEach(patientId -> eventPublisher.publishEvent(new NotesChangedEvent(patientId)));
+        return ResponseEntity.noContent().build();
+    }
+}
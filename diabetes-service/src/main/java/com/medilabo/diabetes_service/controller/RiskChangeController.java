@@ -0,0 +1,50 @@
+package com.medilabo.diabetes_service.controller;
+
+import com.medilabo.diabetes_service.dto.RiskLevelChangeDTO;
+import com.medilabo.diabetes_service.service.RiskChangeNotifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Contrôleur REST diffusant les changements de niveau de risque en Server-Sent Events.
+ * Un client abonné reçoit un événement {@code risk-level} à chaque changement du niveau de risque,
+ * au lieu de redemander l'évaluation à chaque affichage.
+ */
+@RestController
+@RequestMapping("/diabetes")
+@RequiredArgsConstructor
+@Slf4j
+public class RiskChangeController {
+
+    private final RiskChangeNotifier riskChangeNotifier;
+
+    /**
+     * Suit les changements de niveau de risque de tous les patients.
+     *
+     * @return Le flux des changements, au format text/event-stream
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<RiskLevelChangeDTO>> streamAllChanges() {
+        log.info("Abonnement aux changements de risque de tous les patients");
+        return riskChangeNotifier.subscribe(null);
+    }
+
+    /**
+     * Suit les changements de niveau de risque d'un patient.
+     *
+     * @param patientId L'ID du patient suivi
+     * @return Le flux des changements du patient, au format text/event-stream
+     */
+    @GetMapping(value = "/{patientId}/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<RiskLevelChangeDTO>> streamPatientChanges(@PathVariable int patientId) {
+        log.info("Abonnement aux changements de risque du patient ID: {}", patientId);
+        return riskChangeNotifier.subscribe(patientId);
+    }
+}
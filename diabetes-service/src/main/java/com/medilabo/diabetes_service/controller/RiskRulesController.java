@@ -0,0 +1,78 @@
+package com.medilabo.diabetes_service.controller;
+
+import com.medilabo.diabetes_service.dto.RiskRulesStatusDTO;
+import com.medilabo.diabetes_service.engine.RiskDecisionTable;
+import com.medilabo.diabetes_service.engine.RiskRulesConfig;
+import com.medilabo.diabetes_service.service.RiskRulesService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Contrôleur REST d'administration de la table de décision du risque de diabète.
+ */
+@RestController
+@RequestMapping("/diabetes/rules")
+@RequiredArgsConstructor
+@Slf4j
+public class RiskRulesController {
+
+    private final RiskRulesService riskRulesService;
+
+    /**
+     * Compare la table en service aux règles historiques pour toutes les combinaisons d'entrées.
+     *
+     * @return La version des règles et les premières différences trouvées
+     */
+    @GetMapping("/verify")
+    public RiskRulesStatusDTO verifyRules() {
+        return new RiskRulesStatusDTO(riskRulesService.current().version(), riskRulesService.verify());
+    }
+
+    /**
+     * Remplace à chaud les règles en service.
+     *
+     * @param config Nouvelles règles, par ordre de priorité
+     * @return La version des nouvelles règles, ou 400 (Bad Request) si elles sont refusées
+     */
+    @PutMapping
+    public ResponseEntity<RiskRulesStatusDTO> replaceRules(@RequestBody RiskRulesConfig config) {
+        try {
+            RiskDecisionTable table = riskRulesService.replace(config);
+            return ResponseEntity.ok(new RiskRulesStatusDTO(table.version(), List.of()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Règles de risque refusées : {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new RiskRulesStatusDTO(config.version(), List.of(e.getMessage())));
+        }
+    }
+
+    /**
+     * Relit les règles depuis la configuration et les met en service.
+     *
+     * @return La version des règles rechargées, 400 (Bad Request) si elles sont refusées,
+     *         ou 500 (Internal Server Error) si elles ne peuvent pas être lues
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<RiskRulesStatusDTO> reloadRules() {
+        try {
+            RiskDecisionTable table = riskRulesService.reload();
+            return ResponseEntity.ok(new RiskRulesStatusDTO(table.version(), List.of()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Règles de risque refusées : {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new RiskRulesStatusDTO(null, List.of(e.getMessage())));
+        } catch (IOException e) {
+            log.error("Impossible de relire les règles de risque : {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
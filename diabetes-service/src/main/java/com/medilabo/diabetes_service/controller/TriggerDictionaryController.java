@@ -0,0 +1,64 @@
+package com.medilabo.diabetes_service.controller;
+
+import com.medilabo.diabetes_service.dto.TriggerDictionaryDTO;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.service.TriggerDictionaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contrôleur REST d'administration du dictionnaire des termes déclencheurs.
+ */
+@RestController
+@RequestMapping("/diabetes/triggers")
+@RequiredArgsConstructor
+@Slf4j
+public class TriggerDictionaryController {
+
+    private final TriggerDictionaryService dictionaryService;
+
+    /**
+     * @return La version et les termes du dictionnaire en service
+     */
+    @GetMapping
+    public TriggerDictionaryDTO getDictionary() {
+        return toDTO(dictionaryService.current());
+    }
+
+    /**
+     * Relit le dictionnaire depuis le fichier configuré et le met en service sans attendre la prochaine vérification.
+     *
+     * @return Le dictionnaire en service, 400 (Bad Request) s'il est refusé,
+     *         ou 500 (Internal Server Error) si le fichier ne peut pas être lu
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<TriggerDictionaryDTO> reloadDictionary() {
+        try {
+            return ResponseEntity.ok(toDTO(dictionaryService.reload()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Dictionnaire des termes déclencheurs refusé : {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Impossible de relire le dictionnaire des termes déclencheurs : {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private TriggerDictionaryDTO toDTO(TriggerDictionary dictionary) {
+        List<String> terms = new ArrayList<>(dictionary.matcher().termCount());
+        for (int t = 0; t < dictionary.matcher().termCount(); t++) {
+            terms.add(dictionary.matcher().term(t));
+        }
+        return new TriggerDictionaryDTO(dictionary.version(), terms);
+    }
+}
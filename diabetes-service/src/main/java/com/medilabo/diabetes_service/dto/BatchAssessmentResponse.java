@@ -0,0 +1,18 @@
+package com.medilabo.diabetes_service.dto;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+import java.util.Map;
+
+/**
+ * Résultat d'une évaluation groupée du risque de diabète.
+ *
+ * @param results Niveau de risque calculé pour chaque identifiant de patient évalué avec succès
+ * @param errors Message d'erreur pour chaque identifiant de patient qui n'a pas pu être évalué
+ * @param dictionaryVersion Version du dictionnaire de termes déclencheurs avec lequel les risques ont été calculés
+ */
+public record BatchAssessmentResponse(
+        Map<Integer, DiabetesRiskLevel> results,
+        Map<Integer, String> errors,
+        String dictionaryVersion
+) {}
@@ -0,0 +1,18 @@
+package com.medilabo.diabetes_service.dto;
+
+/**
+ * Statistiques du cache des niveaux de risque.
+ *
+ * @param size Nombre approximatif d'entrées présentes dans le cache
+ * @param hitCount Nombre de lectures servies depuis le cache
+ * @param missCount Nombre de lectures ayant nécessité un calcul
+ * @param hitRate Proportion de lectures servies depuis le cache
+ * @param evictionCount Nombre d'entrées retirées par taille maximale ou expiration
+ */
+public record CacheStatsDTO(
+        long size,
+        long hitCount,
+        long missCount,
+        double hitRate,
+        long evictionCount
+) {}
@@ -0,0 +1,36 @@
+package com.medilabo.diabetes_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Niveau de risque d'un patient et données qui l'ont produit.
+ *
+ * @param riskLevel Niveau de risque calculé
+ * @param triggerCount Nombre de termes déclencheurs distincts trouvés dans ses notes
+ * @param triggers Termes déclencheurs trouvés, absents si le dictionnaire utilisé n'est plus en service
+ * @param age Âge du patient au moment du calcul
+ * @param gender Genre du patient
+ * @param dictionaryVersion Version du dictionnaire de termes déclencheurs utilisé
+ * @param rulesVersion Version de la table de décision appliquée
+ * @param nextLevelChange Date à laquelle l'âge du patient changera son niveau de risque, absente si aucune
+ * @param computedAt Date du calcul
+ * @param stale true si un changement a été signalé depuis le calcul et qu'un nouveau calcul est en attente
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MaterializedRiskDTO(
+        DiabetesRiskLevel riskLevel,
+        int triggerCount,
+        Set<String> triggers,
+        int age,
+        String gender,
+        String dictionaryVersion,
+        String rulesVersion,
+        LocalDate nextLevelChange,
+        Instant computedAt,
+        boolean stale
+) {}
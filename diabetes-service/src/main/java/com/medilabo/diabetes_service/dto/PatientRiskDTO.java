@@ -0,0 +1,20 @@
+package com.medilabo.diabetes_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+/**
+ * Niveau de risque d'un patient, tel qu'émis ligne par ligne lors d'une réévaluation complète.
+ *
+ * @param patientId Identifiant du patient
+ * @param riskLevel Niveau de risque calculé, ou null si le patient n'a pas pu être évalué
+ * @param error Message d'erreur si le patient n'a pas pu être évalué, absent sinon
+ * @param dictionaryVersion Version du dictionnaire de termes déclencheurs utilisé, absente en cas d'erreur
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PatientRiskDTO(
+        int patientId,
+        DiabetesRiskLevel riskLevel,
+        String error,
+        String dictionaryVersion
+) {}
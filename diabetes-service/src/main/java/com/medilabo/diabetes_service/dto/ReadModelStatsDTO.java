@@ -0,0 +1,22 @@
+package com.medilabo.diabetes_service.dto;
+
+import java.time.Instant;
+
+/**
+ * État du modèle de lecture des niveaux de risque.
+ *
+ * @param size Nombre de patients dont le niveau de risque est conservé
+ * @param stale Nombre de patients en attente d'un nouveau calcul après un changement
+ * @param mismatches Nombre de niveaux conservés trouvés différents d'un calcul à partir des données sources
+ * @param rebuilding true si une reconstruction complète est en cours
+ * @param lastRebuild Date de fin de la dernière reconstruction complète, absente si aucune
+ * @param lastRebuildPatients Nombre de patients traités lors de la dernière reconstruction complète
+ */
+public record ReadModelStatsDTO(
+        long size,
+        long stale,
+        long mismatches,
+        boolean rebuilding,
+        Instant lastRebuild,
+        long lastRebuildPatients
+) {}
@@ -0,0 +1,19 @@
+package com.medilabo.diabetes_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Résultat de la comparaison entre le niveau de risque conservé d'un patient et un calcul à partir de ses données sources.
+ *
+ * @param patientId Identifiant du patient
+ * @param materialized Niveau conservé avant la vérification, absent si aucun
+ * @param fresh Niveau calculé à partir des données sources
+ * @param consistent true si le niveau conservé et les données qui l'ont produit sont identiques au calcul
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RiskConsistencyDTO(
+        int patientId,
+        MaterializedRiskDTO materialized,
+        MaterializedRiskDTO fresh,
+        boolean consistent
+) {}
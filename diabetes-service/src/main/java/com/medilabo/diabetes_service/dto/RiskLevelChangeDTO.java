@@ -0,0 +1,16 @@
+package com.medilabo.diabetes_service.dto;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+/**
+ * Changement du niveau de risque d'un patient, émis après une écriture sur le patient ou ses notes.
+ *
+ * @param patientId Identifiant du patient
+ * @param previousLevel Niveau de risque avant l'écriture
+ * @param riskLevel Nouveau niveau de risque
+ */
+public record RiskLevelChangeDTO(
+        int patientId,
+        DiabetesRiskLevel previousLevel,
+        DiabetesRiskLevel riskLevel
+) {}
@@ -0,0 +1,14 @@
+package com.medilabo.diabetes_service.dto;
+
+import java.util.List;
+
+/**
+ * État de la table de décision du risque en service.
+ *
+ * @param version Version des règles
+ * @param mismatches Premières différences avec les règles historiques, vide si la table leur est équivalente
+ */
+public record RiskRulesStatusDTO(
+        String version,
+        List<String> mismatches
+) {}
@@ -0,0 +1,14 @@
+package com.medilabo.diabetes_service.dto;
+
+import java.util.List;
+
+/**
+ * Dictionnaire des termes déclencheurs en service.
+ *
+ * @param version Version du dictionnaire
+ * @param terms Termes déclencheurs, en minuscules et sans doublon
+ */
+public record TriggerDictionaryDTO(
+        String version,
+        List<String> terms
+) {}
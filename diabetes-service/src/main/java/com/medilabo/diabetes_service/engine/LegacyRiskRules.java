@@ -0,0 +1,61 @@
+package com.medilabo.diabetes_service.engine;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+/**
+ * Règles de risque historiques, écrites en dur. Elles ne sont plus utilisées pour évaluer les patients,
+ * mais servent de référence pour vérifier qu'une table de décision compilée donne exactement les mêmes résultats.
+ * Cette classe n'est pas instanciable
+ */
+public final class LegacyRiskRules {
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation de cette classe utilitaire.
+     *
+     * @throws IllegalStateException si tentative d'instanciation
+     */
+    private LegacyRiskRules() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Détermine le niveau de risque de diabète en fonction de l'âge, du genre et du nombre de déclencheurs.
+     *
+     * @param age Âge du patient en années
+     * @param gender Genre du patient ('M' pour masculin, 'F' pour féminin)
+     * @param triggerCount Nombre de termes déclencheurs uniques trouvés dans les notes
+     * @return Le niveau de risque de diabète déterminé selon les règles métier
+     */
+    public static DiabetesRiskLevel determineRiskLevel(int age, String gender, long triggerCount) {
+        // Aucun risque si aucun déclencheur
+        if (triggerCount == 0) {
+            return DiabetesRiskLevel.NONE;
+        }
+
+        boolean isMale = "M".equalsIgnoreCase(gender);
+        boolean isFemale = "F".equalsIgnoreCase(gender);
+
+        // Early onset
+        if ((isMale && age < 30 && triggerCount >= 5) ||
+                (isFemale && age < 30 && triggerCount >= 7) ||
+                (age >= 30 && triggerCount >= 8)) {
+            return DiabetesRiskLevel.EARLY_ONSET;
+        }
+
+        // In Danger
+        if ((isMale && age < 30 && triggerCount >= 3) ||
+                (isFemale && age < 30 && triggerCount >= 4) ||
+                (age >= 30 && triggerCount >= 6)) {
+            return DiabetesRiskLevel.IN_DANGER;
+        }
+
+        // Borderline
+        // S'applique SEULEMENT si age > 30 et qu'on n'est pas déjà In Danger ou Early Onset
+        if (age > 30 && triggerCount >= 2 && triggerCount <= 5) {
+            return DiabetesRiskLevel.BORDERLINE;
+        }
+        // Si aucune des règles spécifiques ci-dessus ne correspond
+        // Ou > 30 ans avec 1 seul déclencheur.
+        return DiabetesRiskLevel.NONE;
+    }
+}
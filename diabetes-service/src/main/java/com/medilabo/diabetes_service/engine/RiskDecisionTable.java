@@ -0,0 +1,185 @@
+package com.medilabo.diabetes_service.engine;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Table de décision du risque de diabète, compilée à partir d'une liste ordonnée de règles.
+ * Toutes les combinaisons genre × tranche d'âge × nombre de déclencheurs sont calculées une fois
+ * à la compilation et rangées dans un tableau plat : une évaluation n'est plus qu'un accès à ce tableau.
+ * Les tranches d'âge sont déduites des bornes utilisées par les règles.
+ * Une instance est immuable et peut être partagée entre threads.
+ */
+public final class RiskDecisionTable {
+
+    /**
+     * Âge maximal distingué par la table ; un âge supérieur est traité comme cet âge, un âge négatif comme 0.
+     */
+    public static final int MAX_AGE = 150;
+
+    /**
+     * Nombre maximal de déclencheurs distingué par la table ; un nombre supérieur est traité comme ce nombre.
+     */
+    public static final int MAX_TRIGGERS = TriggerMask.MAX_TERMS;
+
+    private static final String[] GENDERS = {"M", "F", null};
+    private static final int OTHER_GENDER = 2;
+    private static final int TRIGGER_COLUMNS = MAX_TRIGGERS + 1;
+    private static final DiabetesRiskLevel[] LEVELS = DiabetesRiskLevel.values();
+
+    private final String version;
+    /** Tranche de chaque âge, de 0 à MAX_AGE. */
+    private final byte[] ageBands;
+    private final int bandCount;
+    /** Niveau de risque (ordinal) : (genre * bandCount + tranche) * TRIGGER_COLUMNS + déclencheurs. */
+    private final byte[] levels;
+
+    private RiskDecisionTable(String version, byte[] ageBands, int bandCount, byte[] levels) {
+        this.version = version;
+        this.ageBands = ageBands;
+        this.bandCount = bandCount;
+        this.levels = levels;
+    }
+
+    /**
+     * Compile une configuration de règles.
+     *
+     * @param config Règles, par ordre de priorité
+     * @return La table compilée
+     * @throws IllegalArgumentException si une règle est incomplète ou incohérente
+     */
+    public static RiskDecisionTable compile(RiskRulesConfig config) {
+        List<RiskRule> rules = config.rules() == null ? List.of() : config.rules();
+        for (RiskRule rule : rules) {
+            validate(rule);
+        }
+
+        // Tranches d'âge : une nouvelle tranche commence à chaque borne utilisée par une règle
+        TreeSet<Integer> cuts = new TreeSet<>();
+        for (RiskRule rule : rules) {
+            if (rule.minAge() != null && rule.minAge() > 0 && rule.minAge() <= MAX_AGE) {
+                cuts.add(rule.minAge());
+            }
+            if (rule.maxAge() != null && rule.maxAge() >= 0 && rule.maxAge() < MAX_AGE) {
+                cuts.add(rule.maxAge() + 1);
+            }
+        }
+        List<Integer> bandStarts = new ArrayList<>();
+        bandStarts.add(0);
+        bandStarts.addAll(cuts);
+        int bandCount = bandStarts.size();
+        byte[] ageBands = new byte[MAX_AGE + 1];
+        for (int band = 0; band < bandCount; band++) {
+            int end = band + 1 < bandCount ? bandStarts.get(band + 1) : MAX_AGE + 1;
+            for (int age = bandStarts.get(band); age < end; age++) {
+                ageBands[age] = (byte) band;
+            }
+        }
+
+        byte[] levels = new byte[GENDERS.length * bandCount * TRIGGER_COLUMNS];
+        for (int gender = 0; gender < GENDERS.length; gender++) {
+            for (int band = 0; band < bandCount; band++) {
+                int age = bandStarts.get(band);
+                for (int triggers = 0; triggers <= MAX_TRIGGERS; triggers++) {
+                    DiabetesRiskLevel level = firstMatch(rules, gender, age, triggers);
+                    levels[(gender * bandCount + band) * TRIGGER_COLUMNS + triggers] = (byte) level.ordinal();
+                }
+            }
+        }
+        return new RiskDecisionTable(config.version(), ageBands, bandCount, levels);
+    }
+
+    private static void validate(RiskRule rule) {
+        if (rule.level() == null) {
+            throw new IllegalArgumentException("Une règle doit définir un niveau de risque");
+        }
+        if (rule.gender() != null && !"M".equalsIgnoreCase(rule.gender()) && !"F".equalsIgnoreCase(rule.gender())) {
+            throw new IllegalArgumentException("Genre de règle inconnu : " + rule.gender());
+        }
+        if (rule.minAge() != null && rule.maxAge() != null && rule.minAge() > rule.maxAge()) {
+            throw new IllegalArgumentException("Tranche d'âge vide : " + rule.minAge() + "-" + rule.maxAge());
+        }
+        if (rule.minTriggers() != null && rule.maxTriggers() != null && rule.minTriggers() > rule.maxTriggers()) {
+            throw new IllegalArgumentException("Nombre de déclencheurs vide : " + rule.minTriggers() + "-" + rule.maxTriggers());
+        }
+    }
+
+    private static DiabetesRiskLevel firstMatch(List<RiskRule> rules, int gender, int age, int triggers) {
+        for (RiskRule rule : rules) {
+            if ((rule.gender() == null || rule.gender().equalsIgnoreCase(GENDERS[gender]))
+                    && (rule.minAge() == null || age >= rule.minAge())
+                    && (rule.maxAge() == null || age <= rule.maxAge())
+                    && (rule.minTriggers() == null || triggers >= rule.minTriggers())
+                    && (rule.maxTriggers() == null || triggers <= rule.maxTriggers())) {
+                return rule.level();
+            }
+        }
+        return DiabetesRiskLevel.NONE;
+    }
+
+    /**
+     * @param age Âge du patient en années
+     * @param gender Genre du patient ('M' pour masculin, 'F' pour féminin)
+     * @param triggerCount Nombre de termes déclencheurs uniques trouvés dans les notes
+     * @return Le niveau de risque de diabète donné par la table
+     */
+    public DiabetesRiskLevel riskLevel(int age, String gender, long triggerCount) {
+        int genderIndex = "M".equalsIgnoreCase(gender) ? 0 : "F".equalsIgnoreCase(gender) ? 1 : OTHER_GENDER;
+        int band = ageBands[Math.max(0, Math.min(age, MAX_AGE))];
+        int triggers = (int) Math.max(0, Math.min(triggerCount, MAX_TRIGGERS));
+        return LEVELS[levels[(genderIndex * bandCount + band) * TRIGGER_COLUMNS + triggers]];
+    }
+
+    /**
+     * Recherche l'âge auquel le niveau de risque d'un patient changera si ses autres données restent identiques.
+     *
+     * @param age Âge actuel du patient en années
+     * @param gender Genre du patient ('M' pour masculin, 'F' pour féminin)
+     * @param triggerCount Nombre de termes déclencheurs uniques trouvés dans les notes
+     * @return Le premier âge supérieur donnant un autre niveau de risque, ou -1 si le niveau ne changera plus
+     */
+    public int nextLevelChangeAge(int age, String gender, long triggerCount) {
+        DiabetesRiskLevel current = riskLevel(age, gender, triggerCount);
+        for (int next = Math.max(0, age) + 1; next <= MAX_AGE; next++) {
+            if (riskLevel(next, gender, triggerCount) != current) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return La version des règles compilées
+     */
+    public String version() {
+        return version;
+    }
+
+    /**
+     * Compare la table, pour toutes les combinaisons d'entrées, aux règles historiques écrites en dur
+     * ({@link LegacyRiskRules}).
+     *
+     * @param maxReported Nombre maximal de différences décrites
+     * @return La description des premières différences trouvées, vide si la table est équivalente
+     */
+    public List<String> verifyAgainstLegacy(int maxReported) {
+        List<String> mismatches = new ArrayList<>();
+        String[] genders = {"M", "F", null, "X"};
+        for (String gender : genders) {
+            for (int age = -1; age <= MAX_AGE + 1; age++) {
+                for (int triggers = 0; triggers <= MAX_TRIGGERS + 1; triggers++) {
+                    DiabetesRiskLevel expected = LegacyRiskRules.determineRiskLevel(age, gender, triggers);
+                    DiabetesRiskLevel actual = riskLevel(age, gender, triggers);
+                    if (expected != actual && mismatches.size() < maxReported) {
+                        mismatches.add("genre=" + gender + ", âge=" + age + ", déclencheurs=" + triggers
+                                               + " : " + actual + " au lieu de " + expected);
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+}
@@ -0,0 +1,24 @@
+package com.medilabo.diabetes_service.engine;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+/**
+ * Règle de la table de décision du risque de diabète, telle que lue dans la configuration.
+ * Une règle s'applique si toutes ses conditions renseignées sont vérifiées ; une condition absente (null)
+ * est toujours vraie. Les bornes sont inclusives.
+ *
+ * @param level Niveau de risque attribué lorsque la règle s'applique
+ * @param gender Genre concerné ("M" ou "F"), ou null pour tous les genres
+ * @param minAge Âge minimal en années
+ * @param maxAge Âge maximal en années
+ * @param minTriggers Nombre minimal de déclencheurs uniques
+ * @param maxTriggers Nombre maximal de déclencheurs uniques
+ */
+public record RiskRule(
+        DiabetesRiskLevel level,
+        String gender,
+        Integer minAge,
+        Integer maxAge,
+        Integer minTriggers,
+        Integer maxTriggers
+) {}
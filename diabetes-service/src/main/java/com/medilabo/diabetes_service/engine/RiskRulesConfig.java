@@ -0,0 +1,16 @@
+package com.medilabo.diabetes_service.engine;
+
+import java.util.List;
+
+/**
+ * Configuration de la table de décision du risque de diabète.
+ * Les règles sont évaluées dans l'ordre : la première qui s'applique donne le niveau de risque,
+ * et {@code NONE} est attribué si aucune ne s'applique.
+ *
+ * @param version Version des règles, reportée dans les logs
+ * @param rules Règles, par ordre de priorité
+ */
+public record RiskRulesConfig(
+        String version,
+        List<RiskRule> rules
+) {}
@@ -0,0 +1,32 @@
+package com.medilabo.diabetes_service.engine;
+
+/**
+ * Version compilée d'un dictionnaire de termes déclencheurs.
+ * Les masques et états de recherche produits par l'automate n'ont de sens qu'avec ce dictionnaire :
+ * deux dictionnaires sont distingués par leur version.
+ *
+ * @param version Version du dictionnaire
+ * @param matcher Automate de recherche compilé à partir des termes
+ */
+public record TriggerDictionary(
+        String version,
+        TriggerMatcher matcher
+) {
+
+    /**
+     * Compile un dictionnaire.
+     *
+     * @param config Version et termes du dictionnaire
+     * @return Le dictionnaire compilé
+     * @throws IllegalArgumentException si la version est absente, ou si un terme est vide ou trop nombreux
+     */
+    public static TriggerDictionary compile(TriggerTermsConfig config) {
+        if (config.version() == null || config.version().isBlank()) {
+            throw new IllegalArgumentException("Un dictionnaire de termes déclencheurs doit avoir une version");
+        }
+        if (config.terms() == null) {
+            throw new IllegalArgumentException("Le dictionnaire version " + config.version() + " ne contient aucun terme");
+        }
+        return new TriggerDictionary(config.version(), TriggerMatcher.compile(config.terms()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.medilabo.diabetes_service.engine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Classe utilitaire pour manipuler un ensemble de termes déclencheurs représenté par un masque de bits.
+ * Le bit i d'un masque est positionné lorsque le terme d'indice i du dictionnaire a été trouvé.
+ * Un masque est un simple {@code long} : il se fusionne par OU binaire entre plusieurs notes,
+ * se compte sans allocation et se transmet tel quel (JSON, cache, événements) entre composants
+ * partageant le même dictionnaire.
+ * Cette classe n'est pas instanciable
+ */
+public final class TriggerMask {
+
+    /**
+     * Nombre maximal de termes représentables dans un masque.
+     */
+    public static final int MAX_TERMS = Long.SIZE;
+
+    /**
+     * Masque ne contenant aucun terme.
+     */
+    public static final long EMPTY = 0L;
+
+    /**
+     * Constructeur privé pour empêcher l'instanciation de cette classe utilitaire.
+     *
+     * @throws IllegalStateException si tentative d'instanciation
+     */
+    private TriggerMask() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param termIndex Indice du terme dans le dictionnaire
+     * @return Le masque ne contenant que ce terme
+     */
+    public static long of(int termIndex) {
+        return 1L << termIndex;
+    }
+
+    /**
+     * @param termCount Nombre de termes du dictionnaire
+     * @return Le masque contenant tous les termes du dictionnaire
+     */
+    public static long all(int termCount) {
+        return termCount == MAX_TERMS ? -1L : (1L << termCount) - 1;
+    }
+
+    /**
+     * Fusionne deux ensembles de termes.
+     *
+     * @param first Premier masque
+     * @param second Second masque
+     * @return L'union des deux masques
+     */
+    public static long merge(long first, long second) {
+        return first | second;
+    }
+
+    /**
+     * @param mask Masque de termes
+     * @return Le nombre de termes distincts contenus dans le masque
+     */
+    public static int count(long mask) {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * @param mask Masque de termes
+     * @param termIndex Indice du terme recherché
+     * @return true si le terme est contenu dans le masque
+     */
+    public static boolean contains(long mask, int termIndex) {
+        return (mask & of(termIndex)) != 0;
+    }
+
+    /**
+     * Convertit un masque en liste lisible de termes, par exemple pour les logs.
+     *
+     * @param mask Masque de termes
+     * @param matcher Automate définissant l'ordre des termes
+     * @return Les termes contenus dans le masque, dans l'ordre du dictionnaire
+     */
+    public static Set<String> toTerms(long mask, TriggerMatcher matcher) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (int t = 0; t < matcher.termCount(); t++) {
+            if (contains(mask, t)) {
+                terms.add(matcher.term(t));
+            }
+        }
+        return Collections.unmodifiableSet(terms);
+    }
+
+    /**
+     * Construit un masque à partir d'une liste de termes. Les termes absents du dictionnaire sont ignorés.
+     *
+     * @param terms Termes à inclure
+     * @param matcher Automate définissant l'ordre des termes
+     * @return Le masque correspondant
+     */
+    public static long fromTerms(Collection<String> terms, TriggerMatcher matcher) {
+        long mask = EMPTY;
+        for (int t = 0; t < matcher.termCount(); t++) {
+            if (terms.contains(matcher.term(t))) {
+                mask |= of(t);
+            }
+        }
+        return mask;
+    }
+}
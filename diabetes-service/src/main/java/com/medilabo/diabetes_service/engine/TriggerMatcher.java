@@ -0,0 +1,295 @@
+package com.medilabo.diabetes_service.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Automate d'Aho-Corasick compilé à partir d'une liste de termes déclencheurs.
+ * Permet de trouver tous les termes présents dans un texte en un seul passage linéaire,
+ * au lieu d'un parcours complet du texte par terme.
+ * La comparaison est insensible à la casse : chaque caractère lu est converti en minuscule
+ * à la volée, avec le même résultat que {@link String#toLowerCase()} en locale neutre.
+ * Les termes trouvés sont représentés par un masque de bits ({@link TriggerMask}) : le bit i
+ * correspond au terme d'indice i, ce qui limite un dictionnaire à {@value TriggerMask#MAX_TERMS} termes.
+ * Une instance est immuable et peut être partagée entre threads.
+ */
+public final class TriggerMatcher {
+
+    private static final int ROOT = 0;
+
+    private final String[] terms;
+    /** Classe de chaque caractère de l'alphabet des termes, 0 pour tout autre caractère. */
+    private final char[] charClasses;
+    private final int classCount;
+    /** Table de transitions aplatie : état * classCount + classe -> état suivant. */
+    private final int[] transitions;
+    /** Masque des termes reconnus en arrivant dans chaque état (liens de suffixe inclus). */
+    private final long[] outputs;
+    private final long allTerms;
+
+    private TriggerMatcher(String[] terms, char[] charClasses, int classCount, int[] transitions, long[] outputs) {
+        this.terms = terms;
+        this.charClasses = charClasses;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.allTerms = TriggerMask.all(terms.length);
+    }
+
+    /**
+     * Compile un automate à partir des termes fournis. Les termes sont convertis en minuscules
+     * et les doublons ignorés.
+     *
+     * @param triggerTerms Liste des termes à rechercher
+     * @return L'automate compilé
+     * @throws IllegalArgumentException si un terme est vide ou s'il y a plus de {@value TriggerMask#MAX_TERMS} termes
+     */
+    public static TriggerMatcher compile(List<String> triggerTerms) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String term : triggerTerms) {
+            if (term == null || term.isEmpty()) {
+                throw new IllegalArgumentException("Un terme déclencheur ne peut pas être vide");
+            }
+            distinct.add(term.toLowerCase(Locale.ROOT));
+        }
+        if (distinct.size() > TriggerMask.MAX_TERMS) {
+            throw new IllegalArgumentException("Un dictionnaire ne peut pas dépasser " + TriggerMask.MAX_TERMS + " termes");
+        }
+        String[] terms = distinct.toArray(new String[0]);
+
+        // Alphabet : chaque caractère distinct des termes reçoit une classe à partir de 1
+        int maxChar = 0;
+        for (String term : terms) {
+            for (int i = 0; i < term.length(); i++) {
+                maxChar = Math.max(maxChar, term.charAt(i));
+            }
+        }
+        char[] charClasses = new char[maxChar + 1];
+        int classCount = 1;
+        for (String term : terms) {
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                if (charClasses[c] == 0) {
+                    charClasses[c] = (char) classCount++;
+                }
+            }
+        }
+
+        // Construction du trie
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<Long> termsEndingAt = new ArrayList<>();
+        trie.add(new HashMap<>());
+        termsEndingAt.add(0L);
+        for (int t = 0; t < terms.length; t++) {
+            int state = ROOT;
+            for (int i = 0; i < terms[t].length(); i++) {
+                int cls = charClasses[terms[t].charAt(i)];
+                Integer next = trie.get(state).get(cls);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    termsEndingAt.add(0L);
+                    trie.get(state).put(cls, next);
+                }
+                state = next;
+            }
+            termsEndingAt.set(state, termsEndingAt.get(state) | TriggerMask.of(t));
+        }
+
+        // Parcours en largeur : liens de suffixe et transitions complètes de l'automate
+        int stateCount = trie.size();
+        int[] transitions = new int[stateCount * classCount];
+        int[] fail = new int[stateCount];
+        long[] outputs = new long[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 1; cls < classCount; cls++) {
+            Integer child = trie.get(ROOT).get(cls);
+            if (child != null) {
+                transitions[cls] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = termsEndingAt.get(state) | outputs[fail[state]];
+            for (int cls = 1; cls < classCount; cls++) {
+                Integer child = trie.get(state).get(cls);
+                int fallback = transitions[fail[state] * classCount + cls];
+                if (child != null) {
+                    fail[child] = fallback;
+                    transitions[state * classCount + cls] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * classCount + cls] = fallback;
+                }
+            }
+        }
+        return new TriggerMatcher(terms, charClasses, classCount, transitions, outputs);
+    }
+
+    /**
+     * @return Le nombre de termes distincts reconnus par l'automate
+     */
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * @return Les termes distincts reconnus par l'automate, en minuscules, dans l'ordre du dictionnaire
+     */
+    public List<String> terms() {
+        return List.of(terms);
+    }
+
+    /**
+     * @param index Indice du terme
+     * @return Le terme (en minuscules) correspondant à l'indice
+     */
+    public String term(int index) {
+        return terms[index];
+    }
+
+    /**
+     * @return Le masque contenant tous les termes de l'automate
+     */
+    public long allTermsMask() {
+        return allTerms;
+    }
+
+    /**
+     * Crée un curseur de recherche positionné au début d'un texte.
+     *
+     * @return Un nouveau curseur, à usage d'un seul thread
+     */
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * Crée un curseur de recherche qui reprend là où une recherche précédente s'est arrêtée.
+     *
+     * @param from État sauvegardé d'une recherche faite avec ce même automate
+     * @return Un nouveau curseur, à usage d'un seul thread
+     * @throws IllegalArgumentException si l'état ne correspond pas à cet automate
+     */
+    public Scanner newScanner(TriggerState from) {
+        if (from.automatonState() < 0 || from.automatonState() >= outputs.length || (from.mask() & ~allTerms) != 0) {
+            throw new IllegalArgumentException("État de recherche incompatible avec cet automate");
+        }
+        Scanner scanner = new Scanner();
+        scanner.state = from.automatonState();
+        scanner.mask = from.mask();
+        return scanner;
+    }
+
+    private int step(int state, char c) {
+        int cls = c < charClasses.length ? charClasses[c] : 0;
+        return transitions[state * classCount + cls];
+    }
+
+    /**
+     * Curseur de recherche : conserve l'état de l'automate entre plusieurs fragments de texte,
+     * de sorte qu'un terme à cheval entre deux fragments consécutifs est reconnu comme
+     * s'ils avaient été concaténés.
+     */
+    public final class Scanner {
+        private int state = ROOT;
+        private long mask;
+
+        private Scanner() {
+        }
+
+        /**
+         * Lit un fragment de texte. S'arrête dès que tous les termes ont été trouvés.
+         *
+         * @param text Le texte à analyser
+         * @return Ce curseur
+         */
+        public Scanner feed(CharSequence text) {
+            for (int i = 0, length = text.length(); i < length && !isComplete(); i++) {
+                feed(text.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * Lit une portion d'un tableau de caractères, par exemple le tampon d'un analyseur JSON,
+         * sans créer de chaîne intermédiaire. S'arrête dès que tous les termes ont été trouvés.
+         *
+         * @param buffer Tableau contenant le texte
+         * @param offset Position du premier caractère à lire
+         * @param length Nombre de caractères à lire
+         * @return Ce curseur
+         */
+        public Scanner feed(char[] buffer, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end && !isComplete(); i++) {
+                feed(buffer[i]);
+            }
+            return this;
+        }
+
+        /**
+         * Lit un caractère, converti en minuscule à la volée.
+         *
+         * @param c Le caractère à lire
+         * @return Ce curseur
+         */
+        public Scanner feed(char c) {
+            if (c == '\u0130') {
+                // String.toLowerCase() transforme 'İ' en deux caractères : 'i' suivi du point suscrit
+                advance('i');
+                advance('\u0307');
+            } else {
+                advance(Character.toLowerCase(c));
+            }
+            return this;
+        }
+
+        private void advance(char lower) {
+            state = step(state, lower);
+            mask |= outputs[state];
+        }
+
+        /**
+         * @return true si tous les termes de l'automate ont été trouvés
+         */
+        public boolean isComplete() {
+            return mask == allTerms;
+        }
+
+        /**
+         * @return L'état courant de l'automate, pour reprendre la recherche plus tard
+         */
+        public int state() {
+            return state;
+        }
+
+        /**
+         * @return Le masque des termes distincts trouvés jusqu'ici
+         */
+        public long mask() {
+            return mask;
+        }
+
+        /**
+         * @return Le nombre de termes distincts trouvés jusqu'ici
+         */
+        public int foundCount() {
+            return TriggerMask.count(mask);
+        }
+
+        /**
+         * @return Les termes distincts trouvés jusqu'ici, dans l'ordre du dictionnaire
+         */
+        public Set<String> foundTerms() {
+            return TriggerMask.toTerms(mask, TriggerMatcher.this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.medilabo.diabetes_service.engine;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * État d'une recherche de termes déclencheurs sur les notes successives d'un patient.
+ * Les notes sont lues dans l'ordre, séparées par un espace comme si elles étaient concaténées :
+ * ajouter une note à cet état donne le même résultat qu'une relecture de toutes les notes,
+ * y compris pour un terme à cheval entre la note précédente et la nouvelle.
+ *
+ * @param automatonState État de l'automate après la dernière note lue
+ * @param mask Masque des termes trouvés (voir {@link TriggerMask})
+ * @param noteCount Nombre de notes non nulles lues
+ */
+public record TriggerState(
+        int automatonState,
+        long mask,
+        int noteCount
+) {
+
+    /**
+     * État initial, avant la lecture de toute note.
+     */
+    public static final TriggerState EMPTY = new TriggerState(0, TriggerMask.EMPTY, 0);
+
+    /**
+     * Lit une liste de notes depuis l'état initial. Les notes nulles sont ignorées.
+     *
+     * @param matcher Automate de recherche
+     * @param notes Notes, dans leur ordre de création
+     * @param text Accès au texte d'une note
+     * @return L'état après lecture de toutes les notes
+     */
+    public static <T> TriggerState scan(TriggerMatcher matcher, List<T> notes, Function<? super T, String> text) {
+        TriggerMatcher.Scanner scanner = matcher.newScanner();
+        int count = 0;
+        for (int i = 0, size = notes.size(); i < size; i++) {
+            String note = text.apply(notes.get(i));
+            if (note == null) {
+                continue; // Ignorer les notes nulles
+            }
+            // Une note est comptée même lorsque tous les termes ont déjà été trouvés et que son texte n'est plus lu
+            if (!scanner.isComplete()) {
+                if (count > 0) {
+                    scanner.feed(' ');
+                }
+                scanner.feed(note);
+            }
+            count++;
+        }
+        return new TriggerState(scanner.state(), scanner.mask(), count);
+    }
+
+    /**
+     * Lit une nouvelle note à la suite des précédentes, sans les relire.
+     *
+     * @param matcher Automate ayant produit cet état
+     * @param note Texte de la nouvelle note ; une note nulle est ignorée
+     * @return Le nouvel état
+     */
+    public TriggerState append(TriggerMatcher matcher, String note) {
+        if (note == null) {
+            return this;
+        }
+        TriggerMatcher.Scanner scanner = matcher.newScanner(this);
+        if (noteCount > 0) {
+            scanner.feed(' ');
+        }
+        scanner.feed(note);
+        return new TriggerState(scanner.state(), scanner.mask(), noteCount + 1);
+    }
+}
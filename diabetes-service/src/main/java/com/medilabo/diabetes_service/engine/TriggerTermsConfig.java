@@ -0,0 +1,14 @@
+package com.medilabo.diabetes_service.engine;
+
+import java.util.List;
+
+/**
+ * Dictionnaire des termes déclencheurs, tel que lu dans la configuration.
+ *
+ * @param version Version du dictionnaire, reportée avec chaque évaluation calculée à partir de lui
+ * @param terms Termes déclencheurs
+ */
+public record TriggerTermsConfig(
+        String version,
+        List<String> terms
+) {}
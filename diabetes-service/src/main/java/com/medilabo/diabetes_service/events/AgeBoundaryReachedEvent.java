@@ -0,0 +1,9 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsqu'un patient atteint un âge qui change son niveau de risque, sans qu'aucune de ses données
+ * n'ait changé.
+ *
+ * @param patientId Identifiant du patient concerné
+ */
+public record AgeBoundaryReachedEvent(int patientId) {}
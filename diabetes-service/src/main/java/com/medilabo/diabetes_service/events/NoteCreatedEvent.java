@@ -0,0 +1,10 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsqu'une note médicale a été ajoutée à un patient dans le service de notes.
+ *
+ * @param patientId Identifiant du patient concerné
+ * @param noteId Identifiant de la nouvelle note
+ * @param note Texte de la nouvelle note
+ */
+public record NoteCreatedEvent(int patientId, String noteId, String note) {}
@@ -0,0 +1,9 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsque les notes médicales d'un patient ont été supprimées ou modifiées
+ * dans le service de notes. Un ajout de note est signalé par {@link NoteCreatedEvent}.
+ *
+ * @param patientId Identifiant du patient concerné
+ */
+public record NotesChangedEvent(int patientId) {}
@@ -0,0 +1,9 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsque les données d'un patient ont été créées, modifiées ou supprimées
+ * dans le service patient.
+ *
+ * @param patientId Identifiant du patient concerné
+ */
+public record PatientChangedEvent(int patientId) {}
@@ -0,0 +1,8 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsque la table de décision du risque a été remplacée à chaud.
+ *
+ * @param version Version des nouvelles règles
+ */
+public record RiskRulesChangedEvent(String version) {}
@@ -0,0 +1,8 @@
+package com.medilabo.diabetes_service.events;
+
+/**
+ * Événement publié lorsque le dictionnaire des termes déclencheurs a été remplacé à chaud.
+ *
+ * @param version Version du nouveau dictionnaire
+ */
+public record TriggerDictionaryChangedEvent(String version) {}
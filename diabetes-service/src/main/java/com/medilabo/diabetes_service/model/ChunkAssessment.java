@@ -0,0 +1,30 @@
+package com.medilabo.diabetes_service.model;
+
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Évaluations d'un lot de patients, avec les données ayant servi à chaque calcul.
+ *
+ * @param assessments Évaluation de chaque patient évalué avec succès
+ * @param errors Message d'erreur pour chaque patient qui n'a pas pu être évalué
+ * @param dictionaryVersion Version du dictionnaire de termes déclencheurs utilisé pour tout le lot
+ */
+public record ChunkAssessment(
+        Map<Integer, RiskAssessment> assessments,
+        Map<Integer, String> errors,
+        String dictionaryVersion
+) {
+
+    /**
+     * @return Les niveaux de risque du lot, tels que renvoyés par les API d'évaluation groupée
+     */
+    public BatchAssessmentResponse toResponse() {
+        Map<Integer, DiabetesRiskLevel> results = new LinkedHashMap<>();
+        assessments.forEach((id, assessment) -> results.put(id, assessment.riskLevel()));
+        return new BatchAssessmentResponse(results, errors, dictionaryVersion);
+    }
+}
@@ -0,0 +1,54 @@
+package com.medilabo.diabetes_service.model;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+import java.time.Instant;
+
+/**
+ * Niveau de risque conservé pour un patient dans le modèle de lecture, avec les données qui l'ont produit.
+ *
+ * @param riskLevel Dernier niveau de risque calculé, ou null s'il n'a pas encore été calculé
+ * @param inputs Données ayant servi au calcul, ou null si le niveau n'a pas encore été calculé
+ * @param dictionaryVersion Version du dictionnaire de termes avec lequel le niveau a été calculé
+ * @param computedAt Date du calcul, ou null si le niveau n'a pas encore été calculé
+ * @param generation Nombre de changements signalés pour le patient ; un calcul lancé avant le dernier changement est ignoré
+ * @param stale true si un changement a été signalé depuis le calcul et qu'un nouveau calcul est attendu
+ */
+public record MaterializedRisk(
+        DiabetesRiskLevel riskLevel,
+        RiskInputs inputs,
+        String dictionaryVersion,
+        Instant computedAt,
+        long generation,
+        boolean stale
+) {
+
+    /**
+     * @param assessment Évaluation complète du patient
+     * @param generation Génération du patient au lancement du calcul
+     * @return Le niveau de risque à conserver
+     */
+    public static MaterializedRisk of(RiskAssessment assessment, long generation) {
+        return new MaterializedRisk(assessment.riskLevel(), assessment.inputs(), assessment.dictionaryVersion(),
+                                    Instant.now(), generation, false);
+    }
+
+    /**
+     * @return Le même niveau, daté de maintenant, après une vérification qui l'a confirmé
+     */
+    public MaterializedRisk verified() {
+        return new MaterializedRisk(riskLevel, inputs, dictionaryVersion, Instant.now(), generation, stale);
+    }
+
+    /**
+     * @param current Niveau conservé pour le patient, ou null si aucun
+     * @return Le niveau conservé, marqué à recalculer après un nouveau changement
+     */
+    public static MaterializedRisk stale(MaterializedRisk current) {
+        if (current == null) {
+            return new MaterializedRisk(null, null, null, null, 1, true);
+        }
+        return new MaterializedRisk(current.riskLevel, current.inputs, current.dictionaryVersion, current.computedAt,
+                                    current.generation + 1, true);
+    }
+}
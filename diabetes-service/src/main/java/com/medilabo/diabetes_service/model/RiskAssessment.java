@@ -0,0 +1,24 @@
+package com.medilabo.diabetes_service.model;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+
+/**
+ * Résultat de l'évaluation du risque de diabète d'un patient.
+ *
+ * @param riskLevel Niveau de risque calculé
+ * @param complete true si toutes les données du patient ont pu être récupérées ; un résultat
+ *                 obtenu par une valeur de repli (patient introuvable, notes indisponibles) ne doit pas être conservé en cache
+ * @param dictionaryVersion Version du dictionnaire de termes déclencheurs avec lequel le risque a été calculé
+ * @param inputs Données ayant servi au calcul, ou null si le patient n'a pas été trouvé
+ */
+public record RiskAssessment(
+        DiabetesRiskLevel riskLevel,
+        boolean complete,
+        String dictionaryVersion,
+        RiskInputs inputs
+) {
+
+    public RiskAssessment(DiabetesRiskLevel riskLevel, boolean complete, String dictionaryVersion) {
+        this(riskLevel, complete, dictionaryVersion, null);
+    }
+}
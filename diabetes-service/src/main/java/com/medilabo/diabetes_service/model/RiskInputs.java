@@ -0,0 +1,31 @@
+package com.medilabo.diabetes_service.model;
+
+import com.medilabo.diabetes_service.engine.TriggerMask;
+
+import java.time.LocalDate;
+
+/**
+ * Données utilisées pour calculer le risque de diabète d'un patient.
+ *
+ * @param age Âge du patient au moment du calcul
+ * @param gender Genre du patient
+ * @param triggerMask Masque des termes déclencheurs trouvés dans ses notes (voir {@link TriggerMask})
+ * @param rulesVersion Version de la table de décision appliquée
+ * @param nextLevelChange Date à laquelle l'âge du patient changera son niveau de risque, à données identiques ;
+ *                        null si son niveau ne dépend plus de son âge
+ */
+public record RiskInputs(
+        int age,
+        String gender,
+        long triggerMask,
+        String rulesVersion,
+        LocalDate nextLevelChange
+) {
+
+    /**
+     * @return Le nombre de termes déclencheurs distincts trouvés
+     */
+    public int triggerCount() {
+        return TriggerMask.count(triggerMask);
+    }
+}
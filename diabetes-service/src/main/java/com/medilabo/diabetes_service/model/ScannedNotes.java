@@ -0,0 +1,14 @@
+package com.medilabo.diabetes_service.model;
+
+import com.medilabo.diabetes_service.engine.TriggerState;
+
+/**
+ * Résultat de la lecture de toutes les notes d'un patient.
+ *
+ * @param state État de recherche des termes déclencheurs après la dernière note
+ * @param lastNoteId Identifiant le plus récent parmi les notes lues, ou null si aucune
+ */
+public record ScannedNotes(
+        TriggerState state,
+        String lastNoteId
+) {}
@@ -1,10 +1,13 @@
 package com.medilabo.diabetes_service.proxies;
 
 import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.dto.TriggerSummaryDTO;
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -15,4 +18,30 @@ public interface NoteProxy {
 
     @GetMapping("/{patId}")
     List<NoteDTO> getNotesByPatientId(@PathVariable("patId") Integer patId);
+
+    /**
+     * Même requête que {@link #getNotesByPatientId(Integer)}, mais renvoie la réponse brute
+     * afin que les notes puissent être analysées au fil de la lecture, sans être désérialisées.
+     * Seuls l'identifiant et le texte des notes sont demandés au service de notes.
+     * La réponse doit être fermée par l'appelant.
+     *
+     * @param patId Identifiant du patient
+     * @return La réponse HTTP non décodée
+     */
+    @GetMapping("/{patId}?fields=id,note")
+    Response streamNotesByPatientId(@PathVariable("patId") Integer patId);
+
+    /**
+     * @param patId Identifiant du patient
+     * @return Les termes déclencheurs enregistrés pour les notes du patient, sans le texte des notes
+     */
+    @GetMapping("/{patId}/triggers")
+    TriggerSummaryDTO getTriggerSummary(@PathVariable("patId") Integer patId);
+
+    /**
+     * @param patIds Identifiants des patients
+     * @return Les notes de ces patients, réduites aux champs de {@link NoteDTO}
+     */
+    @GetMapping("?fields=id,patId,note")
+    List<NoteDTO> getNotesByPatientIds(@RequestParam("patIds") List<Integer> patIds);
 }
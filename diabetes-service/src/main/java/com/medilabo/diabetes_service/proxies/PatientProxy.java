@@ -1,9 +1,11 @@
 package com.medilabo.diabetes_service.proxies;
 
 import com.medilabo.diabetes_service.dto.PatientDTO;
+import feign.Response;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -15,4 +17,17 @@ public interface PatientProxy {
 
     @GetMapping()
     List<PatientDTO> getAllPatients();
+
+    /**
+     * Même requête que {@link #getAllPatients()}, mais renvoie la réponse brute
+     * afin que la liste puisse être lue patient par patient sans être chargée entièrement en mémoire.
+     * La réponse doit être fermée par l'appelant.
+     *
+     * @return La réponse HTTP non décodée
+     */
+    @GetMapping()
+    Response streamAllPatients();
+
+    @GetMapping("/batch")
+    List<PatientDTO> getPatientsByIds(@RequestParam("ids") List<Integer> ids);
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index des patients par date du prochain changement de leur niveau de risque dû à leur âge seul
+ * (par exemple à 30 ans), sans qu'aucune de leurs données ne change.
+ * À cette date, un événement {@link AgeBoundaryReachedEvent} est publié pour chacun de ces patients :
+ * son niveau est recalculé et, s'il a changé, diffusé aux clients abonnés, avant même toute nouvelle lecture.
+ * <p>
+ * L'index est alimenté par le modèle de lecture des risques à chaque niveau conservé. Les dates échues sont
+ * relevées périodiquement, ce qui rattrape aussi une date indexée juste après son début.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AgeBoundaryScheduler {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final NavigableMap<LocalDate, Set<Integer>> patientsByDate = new TreeMap<>();
+    private final Map<Integer, LocalDate> dateByPatient = new HashMap<>();
+
+    /**
+     * Indexe un patient à la date du prochain changement de son niveau de risque, en remplaçant sa date précédente.
+     *
+     * @param patientId Identifiant du patient
+     * @param nextLevelChange Date du prochain changement dû à l'âge, ou null si aucun
+     */
+    public synchronized void index(int patientId, LocalDate nextLevelChange) {
+        LocalDate previous = nextLevelChange == null ? dateByPatient.remove(patientId)
+                : dateByPatient.put(patientId, nextLevelChange);
+        if (previous != null && !previous.equals(nextLevelChange)) {
+            removeFromDate(patientId, previous);
+        }
+        if (nextLevelChange != null) {
+            patientsByDate.computeIfAbsent(nextLevelChange, date -> new HashSet<>()).add(patientId);
+        }
+    }
+
+    /**
+     * @param patientId Identifiant du patient à retirer de l'index
+     */
+    public synchronized void remove(int patientId) {
+        LocalDate previous = dateByPatient.remove(patientId);
+        if (previous != null) {
+            removeFromDate(patientId, previous);
+        }
+    }
+
+    private void removeFromDate(int patientId, LocalDate date) {
+        Set<Integer> patients = patientsByDate.get(date);
+        if (patients != null && patients.remove(patientId) && patients.isEmpty()) {
+            patientsByDate.remove(date);
+        }
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return La date indexée du prochain changement de son niveau de risque, ou null si aucune
+     */
+    public synchronized LocalDate nextLevelChange(int patientId) {
+        return dateByPatient.get(patientId);
+    }
+
+    /**
+     * Publie un événement pour chaque patient dont la date de changement est arrivée, et le retire de l'index ;
+     * il y sera de nouveau ajouté avec sa date suivante lorsque son niveau aura été recalculé.
+     *
+     * @return Le nombre de patients concernés
+     */
+    @Scheduled(cron = "${diabetes.age-boundaries.cron:0 0 * * * *}")
+    public int publishDue() {
+        List<Integer> due = takeDue(LocalDate.now());
+        due.forEach(patientId -> eventPublisher.publishEvent(new AgeBoundaryReachedEvent(patientId)));
+        if (!due.isEmpty()) {
+            log.info("{} patient(s) à réévaluer après un changement d'âge", due.size());
+        }
+        return due.size();
+    }
+
+    private synchronized List<Integer> takeDue(LocalDate today) {
+        List<Integer> due = new ArrayList<>();
+        NavigableMap<LocalDate, Set<Integer>> reached = patientsByDate.headMap(today, true);
+        reached.values().forEach(due::addAll);
+        reached.clear();
+        due.forEach(dateByPatient::remove);
+        return due;
+    }
+}
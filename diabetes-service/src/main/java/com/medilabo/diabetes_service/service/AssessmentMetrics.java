@@ -0,0 +1,148 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Mesures de l'évaluation du risque de diabète, publiées par Micrometer (endpoint {@code /actuator/prometheus}).
+ * Chaque étape de l'évaluation a son minuteur, avec un histogramme permettant de calculer les centiles ;
+ * les niveaux de risque renvoyés et les valeurs de repli utilisées sont comptés.
+ * Tous les compteurs sont créés au démarrage, pour être publiés même à zéro.
+ */
+@Component
+public class AssessmentMetrics {
+
+    /**
+     * Étapes chronométrées d'une évaluation.
+     */
+    public enum Stage {
+        /** Évaluation complète, cache compris. */
+        TOTAL("total"),
+        /** Récupération des données du patient. */
+        PATIENT_FETCH("patient_fetch"),
+        /** Attente de la réponse du service de notes, jusqu'à la réception des en-têtes. */
+        NOTES_FETCH("notes_fetch"),
+        /** Recherche des termes déclencheurs, lecture du corps de la réponse comprise lorsqu'elle est lue au fil de l'eau. */
+        TRIGGER_SCAN("trigger_scan"),
+        /** Application des règles de risque. */
+        RULE_EVALUATION("rule_evaluation");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Valeurs de repli utilisées lorsqu'une donnée n'a pas pu être obtenue.
+     */
+    public enum Fallback {
+        /** Patient absent, ou service patient sans réponse et aucune donnée connue du patient. */
+        PATIENT_NOT_FOUND("patient_not_found"),
+        /** Service patient sans réponse, dernières données connues du patient utilisées à la place. */
+        PATIENT_LAST_KNOWN("patient_last_known"),
+        /** Service patient sans réponse pour tout un lot. */
+        PATIENT_ERROR("patient_error"),
+        /** Service de notes sans réponse : évaluation sans déclencheurs, ou patient en erreur dans un lot. */
+        NOTES_ERROR("notes_error");
+
+        private final String tag;
+
+        Fallback(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<DiabetesRiskLevel, Counter> levelCounters = new EnumMap<>(DiabetesRiskLevel.class);
+    private final Map<Fallback, Counter> fallbackCounters = new EnumMap<>(Fallback.class);
+
+    public AssessmentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("diabetes.assessment.stage")
+                                        .description("Durée des étapes de l'évaluation du risque de diabète")
+                                        .tag("stage", stage.tag)
+                                        .publishPercentileHistogram()
+                                        .register(registry));
+        }
+        for (DiabetesRiskLevel level : DiabetesRiskLevel.values()) {
+            levelCounters.put(level, Counter.builder("diabetes.assessment.result")
+                                            .description("Niveaux de risque renvoyés")
+                                            .tag("level", level.name())
+                                            .register(registry));
+        }
+        for (Fallback fallback : Fallback.values()) {
+            fallbackCounters.put(fallback, Counter.builder("diabetes.assessment.fallback")
+                                                  .description("Valeurs de repli utilisées pendant l'évaluation")
+                                                  .tag("reason", fallback.tag)
+                                                  .register(registry));
+        }
+    }
+
+    /**
+     * Chronomètre une étape.
+     *
+     * @param stage Étape
+     * @param call Traitement de l'étape
+     * @return Le résultat du traitement
+     */
+    public <T> T time(Stage stage, Supplier<T> call) {
+        return stageTimers.get(stage).record(call);
+    }
+
+    /**
+     * Chronomètre une étape non bloquante, de l'abonnement jusqu'à sa fin, son erreur ou son annulation.
+     *
+     * @param stage Étape
+     * @param call Traitement de l'étape
+     * @return Le traitement chronométré
+     */
+    public <T> Mono<T> time(Stage stage, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = start();
+            return call.doFinally(signal -> stop(sample, stage));
+        });
+    }
+
+    /**
+     * Démarre le chronométrage d'une étape dont le traitement peut lever une exception vérifiée.
+     *
+     * @return Le chronomètre, à arrêter avec {@link #stop(Timer.Sample, Stage)}
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * @param sample Chronomètre démarré par {@link #start()}
+     * @param stage Étape chronométrée
+     */
+    public void stop(Timer.Sample sample, Stage stage) {
+        sample.stop(stageTimers.get(stage));
+    }
+
+    /**
+     * @param level Niveau de risque renvoyé
+     */
+    public void result(DiabetesRiskLevel level) {
+        levelCounters.get(level).increment();
+    }
+
+    /**
+     * @param fallback Valeur de repli utilisée
+     */
+    public void fallback(Fallback fallback) {
+        fallbackCounters.get(fallback).increment();
+    }
+}
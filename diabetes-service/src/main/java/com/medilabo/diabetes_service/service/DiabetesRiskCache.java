@@ -0,0 +1,329 @@
+package com.medilabo.diabetes_service.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.medilabo.diabetes_service.dto.CacheStatsDTO;
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.events.RiskRulesChangedEvent;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Cache borné des évaluations de risque de diabète, par patient.
+ * Les entrées sont retirées au-delà d'une taille maximale, après une durée de vie maximale,
+ * dès qu'un changement est signalé sur le patient ou ses notes, ou lorsque les règles de risque changent.
+ * Une évaluation expire aussi au début du jour où l'âge du patient change son niveau de risque :
+ * la durée de vie maximale n'a donc pas à être courte pour tenir compte des anniversaires.
+ * Plusieurs demandes simultanées pour un même patient absent du cache partagent un seul calcul.
+ * Une évaluation calculée hors du cache n'y est enregistrée que si le patient n'a pas été invalidé depuis
+ * le début de la récupération de ses données (voir {@link #stamp()}) : une invalidation reçue pendant le calcul
+ * n'est pas perdue.
+ * Les statistiques du cache sont publiées par Micrometer sous le nom {@code diabetes.risk}.
+ */
+@Component
+@Slf4j
+public class DiabetesRiskCache implements MeterBinder {
+
+    private final AsyncCache<Integer, RiskAssessment> cache;
+
+    /**
+     * Numéro de la dernière invalidation.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Numéro de la dernière invalidation de chaque patient, conservé au moins aussi longtemps qu'une évaluation.
+     */
+    private final Cache<Integer, Long> invalidatedAt;
+
+    /**
+     * Numéro de la dernière invalidation de tout le cache, ou de la plus récente invalidation oubliée :
+     * une évaluation commencée avant ce numéro n'est pas enregistrée.
+     */
+    private final AtomicLong invalidatedFloor = new AtomicLong();
+
+    public DiabetesRiskCache(@Value("${diabetes.cache.max-size:10000}") long maxSize,
+                             @Value("${diabetes.cache.ttl:PT1H}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfter(new AgeAwareExpiry(ttl))
+                             .recordStats()
+                             .buildAsync();
+        this.invalidatedAt = Caffeine.newBuilder()
+                                     .maximumSize(maxSize)
+                                     .expireAfterWrite(ttl)
+                                     .<Integer, Long>evictionListener((patientId, invalidation, cause) ->
+                                             invalidatedFloor.accumulateAndGet(invalidation, Math::max))
+                                     .build();
+    }
+
+    /**
+     * Durée de vie d'une entrée fixée à son écriture, et conservée lors de ses lectures.
+     */
+    private record AgeAwareExpiry(Duration ttl) implements Expiry<Integer, RiskAssessment> {
+
+        @Override
+        public long expireAfterCreate(Integer patientId, RiskAssessment assessment, long currentTime) {
+            return timeToLive(assessment, ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer patientId, RiskAssessment assessment, long currentTime, long currentDuration) {
+            return timeToLive(assessment, ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(Integer patientId, RiskAssessment assessment, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * @param assessment Évaluation à conserver
+     * @param ttl Durée de vie maximale d'une entrée
+     * @return La durée de vie maximale, raccourcie jusqu'au jour où l'âge du patient change son niveau de risque
+     */
+    static Duration timeToLive(RiskAssessment assessment, Duration ttl) {
+        LocalDate nextLevelChange = assessment.inputs() == null ? null : assessment.inputs().nextLevelChange();
+        if (nextLevelChange == null) {
+            return ttl;
+        }
+        Duration untilChange = Duration.between(Instant.now(), nextLevelChange.atStartOfDay(ZoneId.systemDefault()));
+        return untilChange.isNegative() ? Duration.ZERO : untilChange.compareTo(ttl) < 0 ? untilChange : ttl;
+    }
+
+    /**
+     * Renvoie l'évaluation en cache d'un patient, ou la calcule sur le thread appelant si elle est absente.
+     * Les appels concurrents pour le même patient attendent le calcul en cours au lieu d'en lancer un autre.
+     * Une évaluation incomplète est renvoyée à ses demandeurs mais n'est pas conservée.
+     * Une évaluation calculée avec une autre version du dictionnaire de termes est retirée et recalculée.
+     *
+     * @param patientId Identifiant du patient
+     * @param dictionaryVersion Version du dictionnaire de termes en service
+     * @param loader Calcul de l'évaluation en cas d'absence
+     * @return L'évaluation du patient
+     */
+    public RiskAssessment get(int patientId, String dictionaryVersion, IntFunction<RiskAssessment> loader) {
+        RiskAssessment assessment = get(patientId, loader);
+        if (!dictionaryVersion.equals(assessment.dictionaryVersion())) {
+            log.debug("Risque en cache du patient ID {} calculé avec le dictionnaire version {}, recalcul",
+                      patientId, assessment.dictionaryVersion());
+            cache.asMap().computeIfPresent(patientId, (key, future) -> future.isDone() && !future.isCompletedExceptionally()
+                    && !dictionaryVersion.equals(future.join().dictionaryVersion()) ? null : future);
+            assessment = get(patientId, loader);
+        }
+        return assessment;
+    }
+
+    private RiskAssessment get(int patientId, IntFunction<RiskAssessment> loader) {
+        CompletableFuture<RiskAssessment> created = new CompletableFuture<>();
+        CompletableFuture<RiskAssessment> future = cache.get(patientId, (key, executor) -> created);
+        if (future == created) {
+            try {
+                RiskAssessment assessment = loader.apply(patientId);
+                created.complete(assessment);
+                if (!assessment.complete()) {
+                    cache.asMap().remove(patientId, created);
+                }
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                cache.asMap().remove(patientId, created);
+                throw e;
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Renvoie l'évaluation en cache d'un patient, ou lance son calcul sans attendre s'il est absent.
+     * Mêmes règles que {@link #get(int, String, IntFunction)} : un calcul en cours est partagé,
+     * une évaluation incomplète ou en erreur n'est pas conservée, et une évaluation calculée
+     * avec une autre version du dictionnaire de termes est retirée et recalculée.
+     *
+     * @param patientId Identifiant du patient
+     * @param dictionaryVersion Version du dictionnaire de termes en service
+     * @param loader Lancement du calcul de l'évaluation en cas d'absence
+     * @return L'évaluation du patient, à venir
+     */
+    public CompletableFuture<RiskAssessment> getAsync(int patientId, String dictionaryVersion,
+                                                      IntFunction<CompletableFuture<RiskAssessment>> loader) {
+        CompletableFuture<RiskAssessment> future = getAsync(patientId, loader);
+        return future.thenCompose(assessment -> {
+            if (dictionaryVersion.equals(assessment.dictionaryVersion())) {
+                return CompletableFuture.completedFuture(assessment);
+            }
+            log.debug("Risque en cache du patient ID {} calculé avec le dictionnaire version {}, recalcul",
+                      patientId, assessment.dictionaryVersion());
+            cache.asMap().remove(patientId, future);
+            return getAsync(patientId, loader);
+        });
+    }
+
+    private CompletableFuture<RiskAssessment> getAsync(int patientId, IntFunction<CompletableFuture<RiskAssessment>> loader) {
+        CompletableFuture<RiskAssessment> created = new CompletableFuture<>();
+        CompletableFuture<RiskAssessment> future = cache.get(patientId, (key, executor) -> created);
+        if (future == created) {
+            CompletableFuture<RiskAssessment> loading;
+            try {
+                loading = loader.apply(patientId);
+            } catch (RuntimeException e) {
+                loading = CompletableFuture.failedFuture(e);
+            }
+            loading.whenComplete((assessment, error) -> {
+                if (error != null || !assessment.complete()) {
+                    cache.asMap().remove(patientId, created);
+                }
+                if (error != null) {
+                    created.completeExceptionally(error);
+                } else {
+                    created.complete(assessment);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @param dictionaryVersion Version du dictionnaire de termes en service
+     * @return L'évaluation en cache du patient, ou null si elle est absente, en cours de calcul
+     *         ou calculée avec une autre version du dictionnaire
+     */
+    public RiskAssessment getIfPresent(int patientId, String dictionaryVersion) {
+        CompletableFuture<RiskAssessment> future = cache.getIfPresent(patientId);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        RiskAssessment assessment = future.join();
+        return dictionaryVersion.equals(assessment.dictionaryVersion()) ? assessment : null;
+    }
+
+    /**
+     * @return Repère à prendre avant de récupérer les données d'une évaluation calculée hors du cache,
+     *         et à donner à {@link #put(int, RiskAssessment, long)}
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Enregistre une évaluation calculée en dehors du cache, par exemple lors d'une évaluation groupée.
+     * Une évaluation incomplète est ignorée, de même qu'une évaluation dont le patient a été invalidé
+     * depuis le repère : elle a pu être calculée avec des données antérieures au changement.
+     *
+     * @param patientId Identifiant du patient
+     * @param assessment Évaluation à conserver
+     * @param stamp Repère obtenu par {@link #stamp()} avant la récupération des données du patient
+     * @return true si l'évaluation a été enregistrée
+     */
+    public boolean put(int patientId, RiskAssessment assessment, long stamp) {
+        if (!assessment.complete()) {
+            return false;
+        }
+        CompletableFuture<RiskAssessment> completed = CompletableFuture.completedFuture(assessment);
+        // Contrôle et écriture sous le verrou de l'entrée : une invalidation note son numéro avant de retirer l'entrée
+        CompletableFuture<RiskAssessment> stored = cache.asMap().compute(patientId, (key, current) ->
+                invalidatedSince(patientId, stamp) ? current : completed);
+        if (stored != completed) {
+            log.debug("Risque du patient ID {} non mis en cache : patient invalidé pendant le calcul", patientId);
+        }
+        return stored == completed;
+    }
+
+    /**
+     * Enregistre une évaluation dont les données viennent d'être lues, sans contrôle des invalidations passées.
+     *
+     * @param patientId Identifiant du patient
+     * @param assessment Évaluation à conserver
+     */
+    public void put(int patientId, RiskAssessment assessment) {
+        put(patientId, assessment, stamp());
+    }
+
+    private boolean invalidatedSince(int patientId, long stamp) {
+        Long invalidation = invalidatedAt.getIfPresent(patientId);
+        return invalidation != null && invalidation > stamp || invalidatedFloor.get() > stamp;
+    }
+
+    /**
+     * Retire l'évaluation d'un patient du cache.
+     *
+     * @param patientId Identifiant du patient
+     */
+    public void invalidate(int patientId) {
+        invalidatedAt.put(patientId, invalidations.incrementAndGet());
+        cache.synchronous().invalidate(patientId);
+    }
+
+    /**
+     * Vide entièrement le cache.
+     */
+    public void invalidateAll() {
+        invalidatedFloor.accumulateAndGet(invalidations.incrementAndGet(), Math::max);
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * @return Les compteurs de succès, d'échecs et d'évictions du cache
+     */
+    public CacheStatsDTO stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new CacheStatsDTO(cache.synchronous().estimatedSize(), stats.hitCount(), stats.missCount(),
+                                 stats.hitRate(), stats.evictionCount());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "diabetes.risk");
+    }
+
+    @EventListener
+    public void onPatientChanged(PatientChangedEvent event) {
+        log.debug("Invalidation du risque en cache du patient ID {} (patient modifié)", event.patientId());
+        invalidate(event.patientId());
+    }
+
+    @EventListener
+    public void onNotesChanged(NotesChangedEvent event) {
+        log.debug("Invalidation du risque en cache du patient ID {} (notes modifiées)", event.patientId());
+        invalidate(event.patientId());
+    }
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        log.debug("Invalidation du risque en cache du patient ID {} (note ajoutée)", event.patientId());
+        invalidate(event.patientId());
+    }
+
+    @EventListener
+    public void onAgeBoundaryReached(AgeBoundaryReachedEvent event) {
+        log.debug("Invalidation du risque en cache du patient ID {} (changement d'âge)", event.patientId());
+        invalidate(event.patientId());
+    }
+
+    @EventListener
+    public void onRiskRulesChanged(RiskRulesChangedEvent event) {
+        log.info("Vidage du cache des risques (règles version {})", event.version());
+        invalidateAll();
+    }
+}
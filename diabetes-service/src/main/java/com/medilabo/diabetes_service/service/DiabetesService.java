@@ -1,24 +1,51 @@
 package com.medilabo.diabetes_service.service;
 
-import com.medilabo.diabetes_service.config.DiabetesConstants;
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
 import com.medilabo.diabetes_service.dto.NoteDTO;
 import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.TriggerSummaryDTO;
+import com.medilabo.diabetes_service.engine.RiskDecisionTable;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.engine.TriggerMatcher;
+import com.medilabo.diabetes_service.engine.TriggerState;
 import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.model.ChunkAssessment;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import com.medilabo.diabetes_service.model.RiskInputs;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import com.medilabo.diabetes_service.service.AssessmentMetrics.Fallback;
+import com.medilabo.diabetes_service.service.AssessmentMetrics.Stage;
+import com.medilabo.diabetes_service.service.RemoteCallGuard.Dependency;
+import feign.FeignException;
+import feign.Response;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.medilabo.diabetes_service.proxies.NoteProxy;
 import com.medilabo.diabetes_service.proxies.PatientProxy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.time.Period;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Classe d'évaluation du risque de diabète.
@@ -33,163 +60,647 @@ public class DiabetesService {
 
     private final PatientProxy patientProxy;
     private final NoteProxy noteProxy;
+    @Qualifier("fetchExecutor")
+    private final Executor fetchExecutor;
+    private final DiabetesRiskCache riskCache;
+    private final TriggerStateStore triggerStore;
+    private final NoteStreamScanner noteStreamScanner;
+    private final RiskRulesService riskRules;
+    private final AssessmentMetrics metrics;
+    private final RemoteCallGuard callGuard;
+    private final LastKnownPatients lastKnownPatients;
+    private final PatientDemographics demographics;
 
+    /**
+     * Délai maximal d'attente de la réponse du service patient, en millisecondes.
+     */
+    @Value("${diabetes.fetch.patient-timeout-ms:2000}")
+    private long patientTimeoutMs;
+
+    /**
+     * Délai maximal d'attente de la réponse du service de notes, en millisecondes.
+     */
+    @Value("${diabetes.fetch.notes-timeout-ms:3000}")
+    private long notesTimeoutMs;
+
+    /**
+     * Utiliser les termes déclencheurs enregistrés par le service de notes avec chaque note,
+     * plutôt que de recevoir et relire le texte des notes.
+     */
+    @Value("${diabetes.notes.trigger-summary:true}")
+    private boolean triggerSummaryEnabled;
+
+    /**
+     * Nombre maximal de patients acceptés dans une évaluation groupée.
+     */
+    @Value("${diabetes.batch.max-size:1000}")
+    private int batchMaxSize;
+
+    /**
+     * Nombre de patients récupérés par requête groupée vers les services patient et notes.
+     */
+    @Value("${diabetes.batch.chunk-size:50}")
+    private int batchChunkSize;
+
+    /**
+     * Nombre maximal de lots traités en parallèle lors d'une évaluation groupée.
+     */
+    @Value("${diabetes.batch.parallelism:4}")
+    private int batchParallelism;
+
+    /**
+     * Délai maximal d'attente d'une requête groupée, en millisecondes.
+     */
+    @Value("${diabetes.batch.timeout-ms:10000}")
+    private long batchTimeoutMs;
 
     /**
      * Evalue le risque de diabète d'un patient en récupérant les données du patient,
      * ses notes médicales, en comptant les déclencheurs et en appliquant les règles métier.
+     * Le résultat est conservé en cache jusqu'à sa péremption ou jusqu'à un changement
+     * signalé sur le patient ou ses notes.
      *
      * @param patientId Identifiant du patient à évaluer
      * @return Le niveau de risque de diabète calculé (NONE, BORDERLINE, IN_DANGER ou EARLY_ONSET)
      */
     public DiabetesRiskLevel assessDiabetesRisk(int patientId) {
-        // Récupérer les informations du patient
-        PatientDTO patient = getPatientInfo(patientId);
+        return assess(patientId).riskLevel();
+    }
+
+    /**
+     * Même évaluation que {@link #assessDiabetesRisk(int)}, en indiquant si des valeurs de repli ont été utilisées.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @return L'évaluation du patient
+     */
+    public RiskAssessment assess(int patientId) {
+        return metrics.time(Stage.TOTAL, () -> {
+            RiskAssessment assessment = riskCache.get(patientId, triggerStore.dictionary().version(), this::computeDiabetesRisk);
+            metrics.result(assessment.riskLevel());
+            return assessment;
+        });
+    }
+
+    /**
+     * Calcule le risque de diabète d'un patient sans passer par le cache.
+     * Les données du patient ne sont récupérées que s'il est absent de la copie locale des données patient,
+     * et ses notes que si ses termes déclencheurs ne sont pas déjà connus ;
+     * les deux récupérations sont faites en parallèle, chacune avec son propre délai.
+     * Si le service patient ne peut pas répondre, les dernières données connues du patient sont utilisées.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @return L'évaluation du patient, marquée incomplète si une valeur de repli a été utilisée
+     */
+    private RiskAssessment computeDiabetesRisk(int patientId) {
+        return computeDiabetesRisk(patientId, triggerStore.snapshot(patientId), demographics.find(patientId));
+    }
+
+    /**
+     * Calcule le risque de diabète d'un patient à partir de ses données sources uniquement :
+     * ni le cache, ni la copie locale des données patient, ni les termes déclencheurs déjà connus ne sont utilisés :
+     * le patient est relu depuis le service patient et toutes ses notes sont relues.
+     * Sert à vérifier qu'un niveau de risque conservé correspond toujours aux données du patient.
+     * L'état des termes déclencheurs relu remplace celui qui était conservé pour le patient.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @return L'évaluation du patient, marquée incomplète si une valeur de repli a été utilisée
+     */
+    public RiskAssessment assessFromSource(int patientId) {
+        TriggerStateStore.Snapshot current = triggerStore.snapshot(patientId);
+        return computeDiabetesRisk(patientId, new TriggerStateStore.Snapshot(current.generation(), null, null, current.dictionary()),
+                                   null);
+    }
+
+    /**
+     * @param patientId Identifiant du patient à évaluer
+     * @param known Ce qui est connu des termes déclencheurs du patient ; ses notes sont relues si l'état est absent
+     * @param replicated Données du patient dans la copie locale ; il est lu depuis le service patient si elles sont absentes
+     * @return L'évaluation du patient, marquée incomplète si une valeur de repli a été utilisée
+     */
+    private RiskAssessment computeDiabetesRisk(int patientId, TriggerStateStore.Snapshot known, PatientDTO replicated) {
+        // Lancer en parallèle, si nécessaire, la récupération du patient et celle de ses notes
+        CompletableFuture<PatientDTO> patientFuture = replicated != null ? CompletableFuture.completedFuture(replicated)
+                : fetchAsync(() -> metrics.time(Stage.PATIENT_FETCH, () -> getPatientInfo(patientId)),
+                             patientTimeoutMs, () -> lastKnownPatient(patientId), "patient", patientId);
+        CompletableFuture<ScannedNotes> notesFuture = known.state() != null ? null
+                : fetchAsync(() -> scanPatientNotes(patientId, known.dictionary()), notesTimeoutMs, () -> null, "notes", patientId);
+
+        // Récupérer les informations du patient, puis les notes si le patient existe
+        PatientDTO patient = patientFuture.join();
+        ScannedNotes scanned = patient == null || notesFuture == null ? null : notesFuture.join();
+        return assessFetched(patientId, known, patient, scanned);
+    }
+
+    /**
+     * Calcule le risque de diabète d'un patient à partir des données déjà récupérées.
+     * Cette étape est commune aux modes d'exécution bloquant et réactif : seule la récupération diffère.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @param known Ce qui était connu des termes déclencheurs du patient avant la récupération de ses notes
+     * @param patient Données du patient, ou null s'il n'a pas été trouvé
+     * @param scanned Résultat de la lecture des notes, ou null si elles n'ont pas été lues
+     *                (termes déjà connus, ou service de notes sans réponse)
+     * @return L'évaluation du patient, marquée incomplète si une valeur de repli a été utilisée
+     */
+    public RiskAssessment assessFetched(int patientId, TriggerStateStore.Snapshot known, PatientDTO patient, ScannedNotes scanned) {
         if (patient == null) {
+            metrics.fallback(Fallback.PATIENT_NOT_FOUND);
             log.warn("Patient non trouvé avec ID: {}. Impossible d'évaluer.", patientId);
-            return DiabetesRiskLevel.NONE;
+            return new RiskAssessment(DiabetesRiskLevel.NONE, false, known.dictionary().version());
         }
-        int age = calculateAge(patient.getBirthdate());
-        String gender = patient.getGender();
-
-        // Récupérer les notes du patient
-        List<NoteDTO> notes = getPatientNotes(patientId);
 
-        // Compter les déclencheurs uniques
-        long uniqueTriggerCount = countUniqueTriggers(notes);
-        log.info("Nombre de déclencheurs uniques trouvés pour le patient ID {}: {}", patientId, uniqueTriggerCount);
+        // Termes déclencheurs déjà connus, ou relecture des notes ; aucun si le service de notes n'a pas répondu
+        TriggerState triggers = known.state();
+        boolean complete = true;
+        if (triggers == null) {
+            complete = scanned != null;
+            if (!complete) {
+                metrics.fallback(Fallback.NOTES_ERROR);
+            }
+            triggers = complete ? triggerStore.rebuild(patientId, known, scanned) : TriggerState.EMPTY;
+        }
 
-        // Appliquer les règles de risque
-        DiabetesRiskLevel riskLevel = determineRiskLevel(age, gender, uniqueTriggerCount);
-        log.info("Niveau de risque calculé pour le patient ID {}: {}", patientId, riskLevel);
-        return riskLevel;
+        RiskAssessment assessment = evaluate(patient, triggers.mask(), known.dictionary(), complete);
+        log.info("Niveau de risque calculé pour le patient ID {}: {}", patientId, assessment.riskLevel());
+        return assessment;
     }
 
     /**
-     * Récupère les informations d'un patient depuis le service patient.
+     * Evalue le risque de diabète d'un groupe de patients. Les patients sont traités par lots :
+     * les données et les notes de chaque lot sont récupérées en une seule requête par service,
+     * et un nombre limité de lots est traité en parallèle.
+     * Un patient qui ne peut pas être évalué est signalé dans les erreurs sans interrompre le reste du groupe.
+     * Tout le groupe est évalué avec le dictionnaire de termes en service au début de l'évaluation.
+     * Les patients dont le risque est déjà en cache ne sont pas réévalués, les données patient ne sont récupérées
+     * que pour les patients absents de la copie locale, et les notes ne sont
+     * récupérées que pour les patients dont les termes déclencheurs ne sont pas déjà connus.
      *
-     * @param patientId Identifiant du patient à récupérer
-     * @return Les données du patient ou null si le patient n'existe pas ou si une erreur survient
+     * @param patientIds Identifiants des patients à évaluer
+     * @return Les niveaux de risque calculés et les erreurs rencontrées, par identifiant de patient
+     * @throws IllegalArgumentException si le nombre de patients dépasse la taille maximale autorisée
      */
-    private PatientDTO getPatientInfo(int patientId) {
+    public BatchAssessmentResponse assessDiabetesRiskBatch(List<Integer> patientIds) {
+        List<Integer> ids = patientIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Le nombre de patients (" + ids.size() + ") dépasse la limite de " + batchMaxSize);
+        }
+        Map<Integer, DiabetesRiskLevel> results = new LinkedHashMap<>();
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        TriggerDictionary dictionary = triggerStore.dictionary();
 
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            RiskAssessment cached = riskCache.getIfPresent(id, dictionary.version());
+            if (cached != null) {
+                results.put(id, cached.riskLevel());
+            } else {
+                missing.add(id);
+            }
+        }
 
-        try {
-            return patientProxy.getPatientById(patientId);
-        } catch (HttpClientErrorException.NotFound e) {
-            log.warn("Patient non trouvé (via Feign) avec ID {}: {}", patientId, e.getMessage());
-            return null;
-        } catch (Exception e) {
-            log.error("Erreur lors de la récupération des informations patient (via Feign) pour ID {}: {}", patientId, e.getMessage(), e);
-            return null;
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += batchChunkSize) {
+            chunks.add(missing.subList(i, Math.min(i + batchChunkSize, missing.size())));
+        }
+
+        // Au plus batchParallelism lots en cours à la fois, chacun avec ses deux appels groupés
+        for (int start = 0; start < chunks.size(); start += batchParallelism) {
+            List<List<Integer>> window = chunks.subList(start, Math.min(start + batchParallelism, chunks.size()));
+            List<Map<Integer, TriggerStateStore.Snapshot>> knownTriggers = new ArrayList<>();
+            List<CompletableFuture<List<PatientDTO>>> patientFutures = new ArrayList<>();
+            List<CompletableFuture<List<NoteDTO>>> notesFutures = new ArrayList<>();
+            long cacheStamp = riskCache.stamp();
+            for (List<Integer> chunk : window) {
+                Map<Integer, TriggerStateStore.Snapshot> known = snapshots(chunk, dictionary);
+                knownTriggers.add(known);
+                patientFutures.add(fetchPatients(chunk));
+                notesFutures.add(fetchNotesToScan(chunk, known));
+            }
+            for (int c = 0; c < window.size(); c++) {
+                Map<Integer, RiskAssessment> assessments = new LinkedHashMap<>();
+                evaluateChunk(window.get(c), knownTriggers.get(c), patientFutures.get(c).join(), notesFutures.get(c).join(),
+                              cacheStamp, assessments, errors);
+                assessments.forEach((id, assessment) -> results.put(id, assessment.riskLevel()));
+            }
         }
+        results.values().forEach(metrics::result);
+        log.info("Évaluation groupée terminée : {} patient(s) évalué(s), {} erreur(s)", results.size(), errors.size());
+        return new BatchAssessmentResponse(results, errors, dictionary.version());
     }
 
     /**
-     * Récupère les notes médicales d'un patient depuis le service de notes.
+     * Evalue un lot de patients dont les données sont déjà connues. Seules leurs notes
+     * sont récupérées, en une seule requête vers le service de notes.
+     * Le cache n'est pas consulté, mais il est mis à jour avec les nouveaux résultats.
      *
-     * @param patientId Identifiant du patient dont on veut récupérer les notes
-     * @return Liste des notes médicales du patient ou une liste vide si aucune note n'existe
+     * @param patients Patients à évaluer
+     * @return Les niveaux de risque calculés et les erreurs rencontrées, à venir
      */
-    private List<NoteDTO> getPatientNotes(int patientId) {
+    public CompletableFuture<BatchAssessmentResponse> assessKnownPatients(List<PatientDTO> patients) {
+        return evaluateKnownPatients(patients).thenApply(ChunkAssessment::toResponse);
+    }
 
-        try {
-            return noteProxy.getNotesByPatientId(patientId);
-        } catch (HttpClientErrorException.NotFound e) {
-            log.info("Aucune note trouvée (via Feign) pour le patient ID {}", patientId);
-            return Collections.emptyList();
-        } catch (Exception e) {
-            log.error("Erreur lors de la récupération des notes patient (via Feign) pour ID {}: {}", patientId, e.getMessage(), e);
-            return Collections.emptyList();
+    /**
+     * Même évaluation que {@link #assessKnownPatients(List)}, en conservant les données ayant servi à chaque calcul.
+     *
+     * @param patients Patients à évaluer
+     * @return Les évaluations et les erreurs rencontrées, à venir
+     */
+    public CompletableFuture<ChunkAssessment> evaluateKnownPatients(List<PatientDTO> patients) {
+        List<Integer> ids = patients.stream().map(PatientDTO::getId).toList();
+        long cacheStamp = riskCache.stamp();
+        TriggerDictionary dictionary = triggerStore.dictionary();
+        Map<Integer, TriggerStateStore.Snapshot> known = snapshots(ids, dictionary);
+        return fetchNotesToScan(ids, known)
+                .thenApply(notes -> {
+                    Map<Integer, RiskAssessment> assessments = new LinkedHashMap<>();
+                    Map<Integer, String> errors = new LinkedHashMap<>();
+                    evaluateChunk(ids, known, patients, notes, cacheStamp, assessments, errors);
+                    return new ChunkAssessment(assessments, errors, dictionary.version());
+                });
+    }
+
+    /**
+     * Récupère les données des patients du lot : depuis la copie locale, et en une seule requête
+     * vers le service patient pour ceux qui en sont absents.
+     *
+     * @param chunk Identifiants des patients du lot
+     * @return Les patients trouvés, ou null si le service patient n'a pas répondu, à venir
+     */
+    private CompletableFuture<List<PatientDTO>> fetchPatients(List<Integer> chunk) {
+        List<PatientDTO> replicated = new ArrayList<>(chunk.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : chunk) {
+            PatientDTO patient = demographics.find(id);
+            if (patient != null) {
+                replicated.add(patient);
+            } else {
+                missing.add(id);
+            }
         }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(replicated);
+        }
+        return fetchAsync(() -> getPatientsInfo(missing), batchTimeoutMs, () -> null, "patients", missing)
+                .thenApply(fetched -> {
+                    if (fetched == null) {
+                        return null;
+                    }
+                    replicated.addAll(fetched);
+                    return replicated;
+                });
+    }
+
+    /**
+     * @param chunk Identifiants des patients du lot
+     * @param dictionary Dictionnaire de termes utilisé pour tout le lot
+     * @return Ce qui est connu des termes déclencheurs de chaque patient, avant la récupération des notes
+     */
+    private Map<Integer, TriggerStateStore.Snapshot> snapshots(List<Integer> chunk, TriggerDictionary dictionary) {
+        Map<Integer, TriggerStateStore.Snapshot> known = new HashMap<>();
+        chunk.forEach(id -> known.put(id, triggerStore.snapshot(id, dictionary)));
+        return known;
     }
 
     /**
-     * Calcule l'âge d'une personne à partir de sa date de naissance.
+     * Récupère en une seule requête les notes des patients du lot dont les termes déclencheurs ne sont pas connus.
      *
-     * @param dateOfBirth Date de naissance de la personne
-     * @return L'âge en années ou 0 si la date de naissance est null
+     * @param chunk Identifiants des patients du lot
+     * @param known Ce qui est connu des termes déclencheurs de chaque patient
+     * @return Les notes récupérées, ou null si le service de notes n'a pas répondu, à venir
      */
-    private int calculateAge(LocalDate dateOfBirth) {
-        if (dateOfBirth == null) {
-            log.warn("Date de naissance nulle, impossible de calculer l'âge.");
-            return 0;
+    private CompletableFuture<List<NoteDTO>> fetchNotesToScan(List<Integer> chunk, Map<Integer, TriggerStateStore.Snapshot> known) {
+        List<Integer> toScan = chunk.stream().filter(id -> known.get(id).state() == null).toList();
+        if (toScan.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
-        return Period.between(dateOfBirth, LocalDate.now()).getYears();
+        return fetchAsync(() -> callGuard.call(Dependency.NOTES, () -> noteProxy.getNotesByPatientIds(toScan)),
+                          batchTimeoutMs, () -> null, "notes", toScan);
     }
 
     /**
-     * Compte le nombre de termes déclencheurs uniques présents dans les notes d'un patient.
-     * Les termes déclencheurs sont définis dans DiabetesConstants.TRIGGER_TERMS.
+     * Evalue chaque patient d'un lot à partir des données récupérées en bloc.
      *
-     * @param notes Liste des notes médicales du patient
-     * @return Le nombre de termes déclencheurs uniques trouvés
+     * @param chunk Identifiants des patients du lot
+     * @param known Ce qui était connu des termes déclencheurs de chaque patient avant la récupération des notes
+     * @param patients Patients récupérés, ou null si le service patient n'a pas répondu
+     * @param notes Notes récupérées, ou null si le service de notes n'a pas répondu
+     * @param cacheStamp Repère du cache pris avant la récupération des données ; une évaluation dont le patient
+     *                   a été invalidé depuis est renvoyée mais pas mise en cache
+     * @param assessments Évaluations calculées, complétées par cette méthode
+     * @param errors Erreurs par patient, complétées par cette méthode
      */
-    private long countUniqueTriggers(List<NoteDTO> notes) {
-        if (notes == null || notes.isEmpty()) {
-            return 0;
+    private void evaluateChunk(List<Integer> chunk, Map<Integer, TriggerStateStore.Snapshot> known,
+                               List<PatientDTO> patients, List<NoteDTO> notes, long cacheStamp,
+                               Map<Integer, RiskAssessment> assessments, Map<Integer, String> errors) {
+        if (patients == null) {
+            chunk.forEach(id -> {
+                metrics.fallback(Fallback.PATIENT_ERROR);
+                errors.put(id, "Service patient indisponible");
+            });
+            return;
+        }
+        Map<Integer, PatientDTO> patientsById = new HashMap<>();
+        patients.forEach(patient -> patientsById.put(patient.getId(), patient));
+        Map<Integer, List<NoteDTO>> notesByPatient = new HashMap<>();
+        if (notes != null) {
+            notes.forEach(note -> notesByPatient.computeIfAbsent(note.getPatId(), id -> new ArrayList<>()).add(note));
         }
 
-        Set<String> foundTriggers = new HashSet<>();
+        for (Integer id : chunk) {
+            PatientDTO patient = patientsById.get(id);
+            TriggerStateStore.Snapshot before = known.get(id);
+            if (patient == null) {
+                metrics.fallback(Fallback.PATIENT_NOT_FOUND);
+                errors.put(id, "Patient non trouvé");
+                continue;
+            }
+            if (notes == null && before.state() == null) {
+                metrics.fallback(Fallback.NOTES_ERROR);
+                errors.put(id, "Service de notes indisponible");
+                continue;
+            }
+            try {
+                TriggerState triggers = before.state() != null ? before.state()
+                        : metrics.time(Stage.TRIGGER_SCAN, () -> triggerStore.rebuild(id, before,
+                                notesByPatient.getOrDefault(id, Collections.emptyList())));
+                RiskAssessment assessment = evaluate(patient, triggers.mask(), before.dictionary(), true);
+                riskCache.put(id, assessment, cacheStamp);
+                assessments.put(id, assessment);
+            } catch (Exception e) {
+                log.error("Erreur lors de l'évaluation du patient ID {}: {}", id, e.getMessage(), e);
+                errors.put(id, "Erreur d'évaluation");
+            }
+        }
+    }
 
-        // Convertir toutes les notes en une seule chaîne en minuscules pour une recherche globale
-        String allNotesContent = notes.stream()
-                                      .map(NoteDTO::getNote)
-                                      .filter(Objects::nonNull) // Ignorer les notes nulles
-                                      .collect(Collectors.joining(" "))
-                                      .toLowerCase();
+    /**
+     * Applique les règles métier à un patient et aux termes déclencheurs trouvés dans ses notes.
+     *
+     * @param patient Données du patient
+     * @param triggerMask Masque des termes déclencheurs trouvés (voir {@link TriggerMask})
+     * @param dictionary Dictionnaire de termes ayant produit le masque
+     * @param complete false si une valeur de repli a été utilisée pour les termes déclencheurs
+     * @return L'évaluation du patient, avec les données ayant servi au calcul
+     */
+    private RiskAssessment evaluate(PatientDTO patient, long triggerMask, TriggerDictionary dictionary, boolean complete) {
+        int age = calculateAge(patient.getBirthdate());
 
-        if(allNotesContent.isBlank()){
-            return 0;
+        // Compter les déclencheurs uniques
+        int uniqueTriggerCount = TriggerMask.count(triggerMask);
+        if (log.isDebugEnabled()) {
+            log.debug("Déclencheurs uniques trouvés pour le patient ID {}: {} {}", patient.getId(), uniqueTriggerCount,
+                      TriggerMask.toTerms(triggerMask, dictionary.matcher()));
+        }
+
+        // Appliquer les règles de risque
+        RiskDecisionTable rules = riskRules.current();
+        DiabetesRiskLevel riskLevel = metrics.time(Stage.RULE_EVALUATION,
+                                                   () -> rules.riskLevel(age, patient.getGender(), uniqueTriggerCount));
+        LocalDate nextLevelChange = levelChangeDate(patient.getBirthdate(),
+                                                    rules.nextLevelChangeAge(age, patient.getGender(), uniqueTriggerCount));
+        return new RiskAssessment(riskLevel, complete, dictionary.version(),
+                                  new RiskInputs(age, patient.getGender(), triggerMask, rules.version(), nextLevelChange));
+    }
+
+    /**
+     * Calcule la date à laquelle une personne atteint un âge donné, selon le même calcul que {@link #calculateAge(LocalDate)}.
+     *
+     * @param birthdate Date de naissance de la personne, éventuellement null
+     * @param age Âge à atteindre, négatif si aucun
+     * @return La date à laquelle l'âge est atteint, ou null si la date de naissance ou l'âge est inconnu
+     */
+    static LocalDate levelChangeDate(LocalDate birthdate, int age) {
+        if (birthdate == null || age < 0) {
+            return null;
         }
+        LocalDate date = birthdate.plusYears(age);
+        // Né un 29 février : l'âge n'est atteint que le 1er mars des années non bissextiles
+        return PatientDemographics.age(birthdate.toEpochDay(), date.toEpochDay()) < age ? date.plusDays(1) : date;
+    }
 
-        for (String trigger : DiabetesConstants.TRIGGER_TERMS) {
-            if (allNotesContent.contains(trigger)) {
-                foundTriggers.add(trigger);
+    /**
+     * Exécute un appel vers un service distant sur l'exécuteur dédié, en limitant sa durée.
+     * En cas de dépassement du délai ou d'erreur, la valeur de repli est renvoyée et l'appel est interrompu ;
+     * si l'exécuteur est saturé, l'appel n'est pas lancé et la valeur de repli est renvoyée aussitôt.
+     * L'appel n'est jamais exécuté sur le thread appelant, dont le délai ne serait alors plus respecté.
+     *
+     * @param call Appel à exécuter
+     * @param timeoutMs Délai maximal en millisecondes
+     * @param fallback Calcul de la valeur renvoyée si l'appel n'aboutit pas
+     * @param resource Nom de la ressource récupérée, pour les logs
+     * @param patientIds Identifiant(s) des patients concernés, pour les logs
+     * @return Le résultat de l'appel, à venir
+     */
+    private <T> CompletableFuture<T> fetchAsync(Supplier<T> call, long timeoutMs, Supplier<T> fallback, String resource, Object patientIds) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            try {
+                T value = call.get();
+                result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+                throw e;
             }
+        });
+        try {
+            fetchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Récupération {} refusée pour le(s) patient(s) ID {} : exécuteur saturé", resource, patientIds);
+            return CompletableFuture.completedFuture(fallback.get());
         }
-        log.debug("Déclencheurs trouvés : {}", foundTriggers);
-        return foundTriggers.size();
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                     .whenComplete((value, error) -> {
+                         if (error != null) {
+                             // Libérer le thread de l'exécuteur, ou retirer l'appel de la file s'il n'a pas commencé
+                             task.cancel(true);
+                         }
+                     })
+                     .exceptionally(e -> {
+                         log.error("Récupération {} abandonnée pour le(s) patient(s) ID {} (délai {} ms): {}",
+                                   resource, patientIds, timeoutMs, e.toString());
+                         return fallback.get();
+                     });
     }
 
     /**
-     * Détermine le niveau de risque de diabète en fonction de l'âge, du genre et du nombre de déclencheurs.
+     * Demande au service patient si un patient existe toujours, sans utiliser de valeur de repli.
      *
-     * @param age Âge du patient en années
-     * @param gender Genre du patient ('M' pour masculin, 'F' pour féminin)
-     * @param triggerCount Nombre de termes déclencheurs uniques trouvés dans les notes
-     * @return Le niveau de risque de diabète déterminé selon les règles métier
+     * @param patientId Identifiant du patient
+     * @return false si le service patient répond que le patient n'existe pas
+     * @throws RuntimeException si le service patient ne peut pas répondre
      */
-    private DiabetesRiskLevel determineRiskLevel(int age, String gender, long triggerCount) {
-        // Aucun risque si aucun déclencheur
-        if (triggerCount == 0) {
-            return DiabetesRiskLevel.NONE;
+    public boolean patientExists(int patientId) {
+        try {
+            return callGuard.call(Dependency.PATIENTS, () -> patientProxy.getPatientById(patientId)) != null;
+        } catch (HttpClientErrorException.NotFound | FeignException.NotFound e) {
+            return false;
         }
+    }
 
-        boolean isMale = "M".equalsIgnoreCase(gender);
-        boolean isFemale = "F".equalsIgnoreCase(gender);
+    /**
+     * Récupère les informations d'un patient depuis le service patient.
+     *
+     * @param patientId Identifiant du patient à récupérer
+     * @return Les données du patient, null si le patient n'existe pas, ou ses dernières données connues
+     *         (null si aucune) si le service patient ne peut pas répondre
+     */
+    private PatientDTO getPatientInfo(int patientId) {
+        try {
+            long stamp = demographics.stamp();
+            PatientDTO patient = callGuard.call(Dependency.PATIENTS, () -> patientProxy.getPatientById(patientId));
+            lastKnownPatients.put(patient);
+            demographics.put(patient, stamp);
+            return patient;
+        } catch (HttpClientErrorException.NotFound | FeignException.NotFound e) {
+            log.warn("Patient non trouvé (via Feign) avec ID {}: {}", patientId, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            if (RemoteCallGuard.isRejection(e)) {
+                log.warn("Appel au service patient refusé pour ID {}: {}", patientId, e.getMessage());
+            } else {
+                log.error("Erreur lors de la récupération des informations patient (via Feign) pour ID {}: {}", patientId, e.getMessage(), e);
+            }
+            return lastKnownPatient(patientId);
+        }
+    }
 
-        // Early onset
-        if ((isMale && age < 30 && triggerCount >= 5) ||
-                (isFemale && age < 30 && triggerCount >= 7) ||
-                (age >= 30 && triggerCount >= 8)) {
-            return DiabetesRiskLevel.EARLY_ONSET;
+    /**
+     * @param patientId Identifiant du patient
+     * @return Les dernières données connues du patient, ou null si aucune
+     */
+    PatientDTO lastKnownPatient(int patientId) {
+        PatientDTO patient = lastKnownPatients.get(patientId);
+        if (patient != null) {
+            metrics.fallback(Fallback.PATIENT_LAST_KNOWN);
+            log.info("Dernières données connues utilisées pour le patient ID {}", patientId);
         }
+        return patient;
+    }
 
-        // In Danger
-        if ((isMale && age < 30 && triggerCount >= 3) ||
-                (isFemale && age < 30 && triggerCount >= 4) ||
-                (age >= 30 && triggerCount >= 6)) {
-            return DiabetesRiskLevel.IN_DANGER;
+    /**
+     * Récupère en une seule requête les informations d'un lot de patients depuis le service patient.
+     *
+     * @param patientIds Identifiants des patients
+     * @return Les patients trouvés
+     */
+    private List<PatientDTO> getPatientsInfo(List<Integer> patientIds) {
+        long stamp = demographics.stamp();
+        List<PatientDTO> patients = callGuard.call(Dependency.PATIENTS, () -> patientProxy.getPatientsByIds(patientIds));
+        lastKnownPatients.putAll(patients);
+        demographics.putAll(patients, stamp);
+        return patients;
+    }
+
+    /**
+     * Récupère les termes déclencheurs d'un patient depuis le service de notes : ceux enregistrés avec ses notes
+     * s'ils sont disponibles, sinon en recherchant les termes dans le texte des notes au fil de la lecture
+     * de la réponse, sans charger les notes en mémoire.
+     *
+     * @param patientId Identifiant du patient dont on veut analyser les notes
+     * @param dictionary Dictionnaire de termes à rechercher
+     * @return Le résultat de la lecture des notes, vide si aucune note n'existe,
+     *         ou null si le service de notes est en erreur
+     */
+    private ScannedNotes scanPatientNotes(int patientId, TriggerDictionary dictionary) {
+        try {
+            return callGuard.call(Dependency.NOTES, () -> {
+                ScannedNotes summarized = triggerSummaryEnabled ? readTriggerSummary(patientId, dictionary) : null;
+                return summarized != null ? summarized : readPatientNotes(patientId, dictionary);
+            });
+        } catch (Exception e) {
+            if (RemoteCallGuard.isRejection(e)) {
+                log.warn("Appel au service de notes refusé pour ID {}: {}", patientId, e.getMessage());
+            } else {
+                log.error("Erreur lors de la récupération des notes patient (via Feign) pour ID {}: {}", patientId, e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Récupère les termes déclencheurs enregistrés par le service de notes pour un patient, sans le texte des notes.
+     *
+     * @return Le résultat équivalent à la lecture des notes, ou null si le service de notes ne fournit pas
+     *         ce résumé ou l'a calculé avec une autre version du dictionnaire
+     */
+    private ScannedNotes readTriggerSummary(int patientId, TriggerDictionary dictionary) {
+        TriggerSummaryDTO summary;
+        try {
+            summary = metrics.time(Stage.NOTES_FETCH, () -> noteProxy.getTriggerSummary(patientId));
+        } catch (FeignException.NotFound e) {
+            log.debug("Résumé des termes déclencheurs non fourni par le service de notes : {}", e.getMessage());
+            return null;
+        }
+        ScannedNotes scanned = fromTriggerSummary(summary, dictionary);
+        if (scanned == null && summary != null) {
+            log.debug("Termes déclencheurs du patient ID {} enregistrés avec la version {} au lieu de {}, relecture des notes",
+                      patientId, summary.version(), dictionary.version());
+        }
+        return scanned;
+    }
+
+    /**
+     * Convertit les termes déclencheurs enregistrés par le service de notes en résultat de lecture des notes.
+     * Le service de notes sépare les notes par un espace, comme la lecture des notes ({@link TriggerState}) :
+     * les termes à cheval entre deux notes en font partie. L'état de l'automate après la dernière note est retrouvé
+     * en lisant la fin du texte des notes, plus courte que le plus long terme : une note ajoutée ensuite donne
+     * le même résultat qu'une relecture de toutes les notes.
+     *
+     * @param summary Résumé reçu du service de notes, éventuellement null
+     * @param dictionary Dictionnaire de termes en service
+     * @return Le résultat de la lecture des notes, ou null si le résumé a été calculé avec une autre version du dictionnaire
+     */
+    static ScannedNotes fromTriggerSummary(TriggerSummaryDTO summary, TriggerDictionary dictionary) {
+        if (summary == null || summary.triggers() == null || !dictionary.version().equals(summary.version())) {
+            return null;
         }
+        TriggerMatcher.Scanner scanner = dictionary.matcher().newScanner();
+        if (summary.tail() != null) {
+            scanner.feed(summary.tail());
+        }
+        long mask = TriggerMask.fromTerms(summary.triggers(), dictionary.matcher()) | scanner.mask();
+        return new ScannedNotes(new TriggerState(scanner.state(), mask, summary.noteCount()), summary.lastNoteId());
+    }
 
-        // Borderline
-        // S'applique SEULEMENT si age > 30 et qu'on n'est pas déjà In Danger ou Early Onset
-        if (age > 30 && triggerCount >= 2 && triggerCount <= 5) {
-            return DiabetesRiskLevel.BORDERLINE;
+    /**
+     * Lit la réponse du service de notes pour un patient, la lecture du corps faisant partie de l'appel protégé.
+     *
+     * @throws IllegalStateException si le service de notes renvoie une réponse inattendue
+     * @throws UncheckedIOException si la réponse ne peut pas être lue
+     */
+    private ScannedNotes readPatientNotes(int patientId, TriggerDictionary dictionary) {
+        try (Response response = metrics.time(Stage.NOTES_FETCH, () -> noteProxy.streamNotesByPatientId(patientId))) {
+            if (response.status() == 404) {
+                log.info("Aucune note trouvée (via Feign) pour le patient ID {}", patientId);
+                return new ScannedNotes(TriggerState.EMPTY, null);
+            }
+            if (response.status() != 200 || response.body() == null) {
+                throw new IllegalStateException("Réponse inattendue du service de notes : " + response.status());
+            }
+            Timer.Sample scan = metrics.start();
+            try (InputStream body = response.body().asInputStream()) {
+                return noteStreamScanner.scan(body, dictionary.matcher());
+            } finally {
+                metrics.stop(scan, Stage.TRIGGER_SCAN);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Calcule l'âge d'une personne à partir de sa date de naissance, en arithmétique entière.
+     *
+     * @param dateOfBirth Date de naissance de la personne
+     * @return L'âge en années ou 0 si la date de naissance est null
+     */
+    private int calculateAge(LocalDate dateOfBirth) {
+        if (dateOfBirth == null) {
+            log.warn("Date de naissance nulle, impossible de calculer l'âge.");
+            return 0;
         }
-        // Si aucune des règles spécifiques ci-dessus ne correspond
-        // Ou > 30 ans avec 1 seul déclencheur.
-        return DiabetesRiskLevel.NONE;
+        return PatientDemographics.age(dateOfBirth.toEpochDay(), LocalDate.now().toEpochDay());
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.medilabo.diabetes_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Dernières données reçues du service patient, par patient, utilisées comme valeur de repli
+ * lorsque ce service ne peut pas être appelé (disjoncteur ouvert, cloison pleine, erreur ou délai dépassé).
+ * Une entrée est retirée dès qu'un changement est signalé sur le patient : une valeur de repli
+ * est donc toujours la dernière version connue du patient.
+ */
+@Component
+public class LastKnownPatients {
+
+    private final Cache<Integer, PatientDTO> patients;
+
+    public LastKnownPatients(@Value("${diabetes.resilience.last-known.max-size:10000}") long maxSize) {
+        this.patients = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * @param patient Patient reçu du service patient
+     */
+    public void put(PatientDTO patient) {
+        if (patient != null) {
+            patients.put(patient.getId(), patient);
+        }
+    }
+
+    /**
+     * @param received Patients reçus du service patient
+     */
+    public void putAll(List<PatientDTO> received) {
+        if (received != null) {
+            received.forEach(this::put);
+        }
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return Les dernières données connues du patient, ou null si aucune
+     */
+    public PatientDTO get(int patientId) {
+        return patients.getIfPresent(patientId);
+    }
+
+    @EventListener
+    public void onPatientChanged(PatientChangedEvent event) {
+        patients.invalidate(event.patientId());
+    }
+}
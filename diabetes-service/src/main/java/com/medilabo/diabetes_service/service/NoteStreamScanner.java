@@ -0,0 +1,192 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.engine.TriggerMatcher;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Recherche les termes déclencheurs directement dans la réponse JSON du service de notes,
+ * au fil de sa lecture. Les notes ne sont ni désérialisées en objets ni copiées en chaînes :
+ * les caractères du champ {@code note} sont transmis à l'automate depuis le tampon de l'analyseur JSON,
+ * et les autres champs sont ignorés. La mémoire utilisée ne dépend pas de la longueur de l'historique,
+ * seulement de la taille de la plus longue note.
+ * <p>
+ * La réponse peut être lue depuis un flux bloquant ({@link #scan(InputStream, TriggerMatcher)}),
+ * ou fournie morceau par morceau à une {@link Session}, à mesure de sa réception par un client non bloquant.
+ */
+@Component
+@RequiredArgsConstructor
+public class NoteStreamScanner {
+
+    private static final String ID_FIELD = "id";
+    private static final String NOTE_FIELD = "note";
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Lit un tableau JSON de notes, séparées par un espace comme si elles étaient concaténées.
+     * Les notes nulles ou sans texte sont ignorées. Une fois tous les termes trouvés,
+     * le texte des notes suivantes n'est plus décodé.
+     *
+     * @param body Corps de la réponse du service de notes
+     * @param matcher Automate de recherche
+     * @return L'état de recherche après la dernière note et l'identifiant de note le plus récent
+     * @throws IOException si la réponse n'est pas un tableau JSON de notes
+     */
+    public ScannedNotes scan(InputStream body, TriggerMatcher matcher) throws IOException {
+        Notes notes = new Notes(matcher);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("La liste des notes n'est pas un tableau JSON");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                        parser.skipChildren();
+                    } else {
+                        notes.onField(field, parser);
+                    }
+                }
+            }
+        }
+        return notes.result();
+    }
+
+    /**
+     * @param matcher Automate de recherche
+     * @return Une lecture de tableau JSON de notes, à alimenter morceau par morceau
+     * @throws IOException si l'analyseur JSON ne peut pas être créé
+     */
+    public Session newSession(TriggerMatcher matcher) throws IOException {
+        return new Session(objectMapper.getFactory().createNonBlockingByteArrayParser(), matcher);
+    }
+
+    /**
+     * Lecture incrémentale d'un tableau JSON de notes, mêmes règles que {@link #scan(InputStream, TriggerMatcher)}.
+     * Chaque morceau est analysé dès sa réception ; un morceau peut couper un jeton ou un caractère.
+     * L'analyseur non bloquant étant plus lent que l'analyseur sur flux, il n'est utilisé que pour les réponses
+     * reçues morceau par morceau.
+     * Une session n'est pas thread-safe et ne sert qu'à une seule réponse.
+     */
+    public static final class Session {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final Notes notes;
+        /** Profondeur d'imbrication : 1 dans le tableau, 2 dans une note. */
+        private int depth;
+        private boolean started;
+        private String field;
+
+        private Session(JsonParser parser, TriggerMatcher matcher) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.notes = new Notes(matcher);
+        }
+
+        /**
+         * Analyse un morceau de la réponse. Le tableau peut être réutilisé dès le retour de la méthode.
+         *
+         * @throws IOException si la réponse n'est pas un tableau JSON de notes
+         */
+        public void feed(byte[] data, int offset, int length) throws IOException {
+            feeder.feedInput(data, offset, offset + length);
+            drain();
+        }
+
+        /**
+         * Termine la lecture après le dernier morceau.
+         *
+         * @return L'état de recherche après la dernière note et l'identifiant de note le plus récent
+         * @throws IOException si la réponse est vide, incomplète ou n'est pas un tableau JSON de notes
+         */
+        public ScannedNotes finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+            if (!started || depth != 0) {
+                throw new IOException("La liste des notes est vide ou incomplète");
+            }
+            return notes.result();
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (depth == 0 && (started || token != JsonToken.START_ARRAY)) {
+                    throw new IOException("La liste des notes n'est pas un tableau JSON");
+                }
+                switch (token) {
+                    case START_ARRAY, START_OBJECT -> {
+                        started = true;
+                        depth++;
+                    }
+                    case END_ARRAY, END_OBJECT -> depth--;
+                    case FIELD_NAME -> {
+                        if (depth == 2) {
+                            field = parser.currentName();
+                        }
+                    }
+                    case VALUE_STRING -> {
+                        if (depth == 2) {
+                            notes.onField(field, parser);
+                        }
+                    }
+                    default -> {
+                        // Autres valeurs ignorées
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ce qui est retenu des notes lues : état de recherche, nombre de notes et identifiant le plus récent.
+     */
+    private static final class Notes {
+
+        private final TriggerMatcher.Scanner scanner;
+        private int noteCount;
+        private String lastNoteId;
+
+        private Notes(TriggerMatcher matcher) {
+            this.scanner = matcher.newScanner();
+        }
+
+        /**
+         * @param field Nom d'un champ texte d'une note
+         * @param parser Analyseur positionné sur la valeur du champ
+         */
+        private void onField(String field, JsonParser parser) throws IOException {
+            if (ID_FIELD.equals(field)) {
+                String id = parser.getText();
+                if (lastNoteId == null || id.compareTo(lastNoteId) > 0) {
+                    lastNoteId = id;
+                }
+            } else if (NOTE_FIELD.equals(field)) {
+                // Une note est comptée même lorsque tous les termes ont déjà été trouvés et que son texte n'est plus lu
+                if (!scanner.isComplete()) {
+                    if (noteCount > 0) {
+                        scanner.feed(' ');
+                    }
+                    scanner.feed(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+                noteCount++;
+            }
+        }
+
+        private ScannedNotes result() {
+            return new ScannedNotes(new TriggerState(scanner.state(), scanner.mask(), noteCount), lastNoteId);
+        }
+    }
+}
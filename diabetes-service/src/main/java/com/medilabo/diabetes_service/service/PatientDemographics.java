@@ -0,0 +1,340 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.proxies.PatientProxy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Copie locale des seules données patient utiles au calcul du risque : date de naissance et genre.
+ * Un patient présent dans la copie est évalué sans appel au service patient.
+ * <p>
+ * Les données sont rangées dans deux tableaux indexés par identifiant de patient : la date de naissance
+ * en nombre de jours depuis le 1er janvier 1970 ({@code int}) et le genre ({@code byte}), soit 5 octets par patient.
+ * La copie est chargée en entier au démarrage, puis un patient en est retiré dès qu'un changement est signalé
+ * sur lui ; il y est de nouveau ajouté à sa prochaine lecture depuis le service patient.
+ * Les changements étant signalés au mieux, la copie est aussi rechargée entièrement selon
+ * {@code diabetes.demographics.reconcile-cron} : une notification perdue n'est servie que jusqu'à ce rechargement.
+ * Un patient dont l'identifiant dépasse {@code diabetes.demographics.max-patient-id}, ou dont le genre
+ * n'est ni M ni F, n'est pas copié et reste lu depuis le service patient.
+ * La taille de la copie est publiée par Micrometer sous le nom {@code diabetes.demographics.size}.
+ */
+@Component
+@Slf4j
+public class PatientDemographics implements MeterBinder {
+
+    /**
+     * Patient absent de la copie.
+     */
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    /**
+     * Patient présent dans la copie, sans date de naissance.
+     */
+    private static final int NO_BIRTHDATE = Integer.MAX_VALUE;
+
+    private static final byte NO_GENDER = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Lecture et écriture ordonnées des dates de naissance : le genre, écrit avant la date,
+     * est toujours visible d'un lecteur qui voit la date.
+     */
+    private static final VarHandle BIRTH_DAYS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private record Table(int[] birthDays, byte[] genders) {}
+
+    private final PatientProxy patientProxy;
+    private final Executor loadExecutor;
+    private final int maxPatientId;
+    private final boolean loadOnStartup;
+
+    private volatile Table table;
+
+    private int size;
+
+    /**
+     * Nombre de retraits depuis le démarrage : une donnée lue avant un retrait n'est pas copiée.
+     */
+    private long modifications;
+
+    /**
+     * Patients retirés pendant un chargement complet, à ne pas recopier depuis la liste chargée.
+     */
+    private Set<Integer> changedDuringLoad;
+
+    public PatientDemographics(PatientProxy patientProxy,
+                               @Qualifier("readModelExecutor") Executor loadExecutor,
+                               @Value("${diabetes.demographics.max-patient-id:10000000}") int maxPatientId,
+                               @Value("${diabetes.demographics.load-on-startup:true}") boolean loadOnStartup) {
+        this.patientProxy = patientProxy;
+        this.loadExecutor = loadExecutor;
+        this.maxPatientId = maxPatientId;
+        this.loadOnStartup = loadOnStartup;
+        this.table = newTable(INITIAL_CAPACITY);
+    }
+
+    private static Table newTable(int capacity) {
+        int[] birthDays = new int[capacity];
+        Arrays.fill(birthDays, ABSENT);
+        return new Table(birthDays, new byte[capacity]);
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return Les données du patient utiles au calcul du risque, sans appel au service patient,
+     *         ou null s'il est absent de la copie
+     */
+    public PatientDTO find(int patientId) {
+        Table current = table;
+        if (patientId < 0 || patientId >= current.birthDays().length) {
+            return null;
+        }
+        int birthDay = (int) BIRTH_DAYS.getAcquire(current.birthDays(), patientId);
+        if (birthDay == ABSENT) {
+            return null;
+        }
+        return new PatientDTO(patientId, birthDay == NO_BIRTHDATE ? null : LocalDate.ofEpochDay(birthDay),
+                              gender(current.genders()[patientId]));
+    }
+
+    /**
+     * @return Le repère à passer à {@link #put(PatientDTO, long)} pour une donnée lue à partir de maintenant
+     */
+    public synchronized long stamp() {
+        return modifications;
+    }
+
+    /**
+     * Copie un patient lu depuis le service patient, sauf si un changement a été signalé depuis sa lecture.
+     *
+     * @param patient Patient reçu du service patient, éventuellement null
+     * @param stamp Repère obtenu par {@link #stamp()} avant la lecture du patient
+     */
+    public synchronized void put(PatientDTO patient, long stamp) {
+        if (patient != null && stamp == modifications) {
+            store(patient);
+        }
+    }
+
+    /**
+     * @param patients Patients reçus du service patient, éventuellement null
+     * @param stamp Repère obtenu par {@link #stamp()} avant la lecture des patients
+     */
+    public synchronized void putAll(List<PatientDTO> patients, long stamp) {
+        if (patients != null && stamp == modifications) {
+            patients.forEach(this::store);
+        }
+    }
+
+    /**
+     * Retire un patient de la copie.
+     *
+     * @param patientId Identifiant du patient
+     */
+    public synchronized void invalidate(int patientId) {
+        modifications++;
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(patientId);
+        }
+        Table current = table;
+        if (patientId >= 0 && patientId < current.birthDays().length
+                && (int) BIRTH_DAYS.getAndSet(current.birthDays(), patientId, ABSENT) != ABSENT) {
+            size--;
+        }
+    }
+
+    /**
+     * @return Le nombre de patients présents dans la copie
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Charge la liste complète des patients depuis le service patient. Les patients copiés sont remplacés
+     * par leurs données chargées, et ceux absents de la liste sont retirés ; un patient modifié pendant
+     * le chargement n'est ni copié depuis la liste chargée, ni retiré.
+     *
+     * @return Le nombre de patients copiés
+     */
+    public int load() {
+        synchronized (this) {
+            changedDuringLoad = new HashSet<>();
+        }
+        List<PatientDTO> patients;
+        try {
+            patients = patientProxy.getAllPatients();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringLoad = null;
+            }
+            throw e;
+        }
+        int loaded = 0;
+        int removed = 0;
+        synchronized (this) {
+            Set<Integer> listed = new HashSet<>();
+            for (PatientDTO patient : patients) {
+                listed.add(patient.getId());
+                if (!changedDuringLoad.contains(patient.getId()) && store(patient)) {
+                    loaded++;
+                }
+            }
+            int[] birthDays = table.birthDays();
+            for (int id = 0; id < birthDays.length; id++) {
+                if (birthDays[id] != ABSENT && !listed.contains(id) && !changedDuringLoad.contains(id)) {
+                    BIRTH_DAYS.setRelease(birthDays, id, ABSENT);
+                    size--;
+                    removed++;
+                }
+            }
+            changedDuringLoad = null;
+        }
+        log.info("Copie des données patient chargée : {} patient(s), {} retiré(s)", loaded, removed);
+        return loaded;
+    }
+
+    /**
+     * Recharge entièrement la copie, pour corriger les changements dont la notification a été perdue.
+     */
+    @Scheduled(cron = "${diabetes.demographics.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            log.error("Rechargement de la copie des données patient impossible : {}", e.getMessage());
+        }
+    }
+
+    private boolean store(PatientDTO patient) {
+        int id = patient.getId();
+        byte gender = genderCode(patient.getGender());
+        if (id < 0 || id > maxPatientId || (gender == NO_GENDER && patient.getGender() != null)) {
+            return false;
+        }
+        int birthDay = patient.getBirthdate() == null ? NO_BIRTHDATE : epochDay(patient.getBirthdate());
+        if (birthDay == ABSENT) {
+            return false;
+        }
+        Table current = ensureCapacity(id);
+        current.genders()[id] = gender;
+        if ((int) BIRTH_DAYS.getAndSet(current.birthDays(), id, birthDay) == ABSENT) {
+            size++;
+        }
+        return true;
+    }
+
+    private Table ensureCapacity(int patientId) {
+        Table current = table;
+        if (patientId < current.birthDays().length) {
+            return current;
+        }
+        int capacity = (int) Math.min(Math.max((long) current.birthDays().length * 2, patientId + 1L), maxPatientId + 1L);
+        int[] birthDays = Arrays.copyOf(current.birthDays(), capacity);
+        Arrays.fill(birthDays, current.birthDays().length, capacity, ABSENT);
+        Table grown = new Table(birthDays, Arrays.copyOf(current.genders(), capacity));
+        table = grown;
+        return grown;
+    }
+
+    /**
+     * @return Le nombre de jours depuis le 1er janvier 1970, ou {@link #ABSENT} si la date ne tient pas dans un int
+     */
+    private static int epochDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return day <= ABSENT || day >= NO_BIRTHDATE ? ABSENT : (int) day;
+    }
+
+    private static byte genderCode(String gender) {
+        if ("M".equals(gender)) {
+            return 'M';
+        }
+        return "F".equals(gender) ? (byte) 'F' : NO_GENDER;
+    }
+
+    private static String gender(byte code) {
+        return switch (code) {
+            case 'M' -> "M";
+            case 'F' -> "F";
+            default -> null;
+        };
+    }
+
+    /**
+     * Calcule un âge en années révolues, en arithmétique entière et sans créer d'objet.
+     * Donne le même résultat que {@code Period.between(birthdate, today).getYears()}.
+     *
+     * @param birthEpochDay Date de naissance, en jours depuis le 1er janvier 1970
+     * @param todayEpochDay Date du jour, en jours depuis le 1er janvier 1970
+     * @return L'âge en années
+     */
+    public static int age(long birthEpochDay, long todayEpochDay) {
+        return (int) ((dateKey(todayEpochDay) - dateKey(birthEpochDay)) / 10_000);
+    }
+
+    /**
+     * Convertit un nombre de jours depuis le 1er janvier 1970 en date du calendrier grégorien,
+     * sous la forme d'un nombre AAAAMMJJ (algorithme « civil_from_days » de H. Hinnant).
+     */
+    static long dateKey(long epochDay) {
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10_000 + month * 100 + day;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("diabetes.demographics.size", this, PatientDemographics::size)
+             .description("Nombre de patients présents dans la copie locale des données patient")
+             .register(registry);
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPatientChanged(PatientChangedEvent event) {
+        invalidate(event.patientId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (loadOnStartup) {
+            loadExecutor.execute(() -> {
+                try {
+                    load();
+                } catch (RuntimeException e) {
+                    log.error("Chargement de la copie des données patient impossible, lecture depuis le service patient : {}",
+                              e.getMessage());
+                }
+            });
+        }
+    }
+}
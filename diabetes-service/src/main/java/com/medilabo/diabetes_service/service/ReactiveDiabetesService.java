@@ -0,0 +1,236 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.TriggerSummaryDTO;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import com.medilabo.diabetes_service.service.AssessmentMetrics.Stage;
+import com.medilabo.diabetes_service.service.RemoteCallGuard.Dependency;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Évaluation du risque de diabète d'un patient en mode réactif ({@code diabetes.mode=reactive}).
+ * Les données du patient et ses notes sont récupérées par un client HTTP non bloquant :
+ * aucun thread n'est retenu pendant l'attente des services patient et notes.
+ * Les notes sont analysées morceau par morceau, à mesure de leur réception.
+ * Le cache, les disjoncteurs, les cloisons, les valeurs de repli et les mesures sont ceux du mode bloquant,
+ * et le calcul du risque est délégué à {@link DiabetesService#assessFetched}.
+ */
+@Service
+@ConditionalOnProperty(name = "diabetes.mode", havingValue = "reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveDiabetesService {
+
+    private final WebClient webClient;
+    private final DiabetesService diabetesService;
+    private final DiabetesRiskCache riskCache;
+    private final TriggerStateStore triggerStore;
+    private final NoteStreamScanner noteStreamScanner;
+    private final AssessmentMetrics metrics;
+    private final RemoteCallGuard callGuard;
+    private final LastKnownPatients lastKnownPatients;
+    private final PatientDemographics demographics;
+
+    @Value("${patient.service.url}")
+    private String patientServiceUrl;
+
+    @Value("${note.service.url}")
+    private String noteServiceUrl;
+
+    /**
+     * Délai maximal d'attente de la réponse du service patient, en millisecondes.
+     */
+    @Value("${diabetes.fetch.patient-timeout-ms:2000}")
+    private long patientTimeoutMs;
+
+    /**
+     * Délai maximal d'attente de la réponse du service de notes, lecture comprise, en millisecondes.
+     */
+    @Value("${diabetes.fetch.notes-timeout-ms:3000}")
+    private long notesTimeoutMs;
+
+    /**
+     * Utiliser les termes déclencheurs enregistrés par le service de notes plutôt que le texte des notes.
+     */
+    @Value("${diabetes.notes.trigger-summary:true}")
+    private boolean triggerSummaryEnabled;
+
+    /**
+     * Evalue le risque de diabète d'un patient, avec les mêmes règles et le même cache que
+     * {@link DiabetesService#assessDiabetesRisk(int)}.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @return Le niveau de risque de diabète calculé, à venir
+     */
+    public Mono<DiabetesRiskLevel> assessDiabetesRisk(int patientId) {
+        // Le calcul en cache est partagé : l'annulation d'un demandeur ne doit pas l'interrompre
+        Mono<RiskAssessment> assessment = Mono.fromFuture(() -> riskCache.getAsync(
+                patientId, triggerStore.dictionary().version(), id -> computeDiabetesRisk(id).toFuture()), true);
+        return metrics.time(Stage.TOTAL, assessment.map(RiskAssessment::riskLevel))
+                      .doOnNext(metrics::result);
+    }
+
+    /**
+     * Calcule le risque de diabète d'un patient sans passer par le cache.
+     * Les données du patient, s'il est absent de la copie locale des données patient, et ses notes,
+     * si ses termes déclencheurs ne sont pas déjà connus, sont récupérées en parallèle, chacune avec son propre délai.
+     *
+     * @param patientId Identifiant du patient à évaluer
+     * @return L'évaluation du patient, marquée incomplète si une valeur de repli a été utilisée, à venir
+     */
+    private Mono<RiskAssessment> computeDiabetesRisk(int patientId) {
+        TriggerStateStore.Snapshot known = triggerStore.snapshot(patientId);
+        PatientDTO replicated = demographics.find(patientId);
+        Mono<Optional<PatientDTO>> patient = replicated != null ? Mono.just(Optional.of(replicated))
+                : fetchPatient(patientId).map(Optional::of).defaultIfEmpty(Optional.empty());
+        Mono<Optional<ScannedNotes>> notes = known.state() != null ? Mono.just(Optional.empty())
+                : scanPatientNotes(patientId, known.dictionary()).map(Optional::of).defaultIfEmpty(Optional.empty());
+        return Mono.zip(patient, notes)
+                   .map(fetched -> diabetesService.assessFetched(patientId, known, fetched.getT1().orElse(null),
+                                                                 fetched.getT2().orElse(null)));
+    }
+
+    /**
+     * Récupère les informations d'un patient depuis le service patient.
+     *
+     * @param patientId Identifiant du patient à récupérer
+     * @return Les données du patient, vide si le patient n'existe pas, ou ses dernières données connues
+     *         (vide si aucune) si le service patient ne peut pas répondre
+     */
+    private Mono<PatientDTO> fetchPatient(int patientId) {
+        long stamp = demographics.stamp();
+        Mono<PatientDTO> call = webClient.get()
+                                         .uri(patientServiceUrl + "/{id}", patientId)
+                                         .retrieve()
+                                         .bodyToMono(PatientDTO.class)
+                                         .timeout(Duration.ofMillis(patientTimeoutMs))
+                                         .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                                             log.warn("Patient non trouvé (via WebClient) avec ID {}: {}", patientId, e.getMessage());
+                                             return Mono.empty();
+                                         });
+        return metrics.time(Stage.PATIENT_FETCH, callGuard.call(Dependency.PATIENTS, call))
+                      .doOnNext(received -> {
+                          lastKnownPatients.put(received);
+                          demographics.put(received, stamp);
+                      })
+                      .onErrorResume(e -> {
+                          if (RemoteCallGuard.isRejection(e)) {
+                              log.warn("Appel au service patient refusé pour ID {}: {}", patientId, e.getMessage());
+                          } else {
+                              log.error("Erreur lors de la récupération des informations patient (via WebClient) pour ID {}: {}",
+                                        patientId, e.toString());
+                          }
+                          return Mono.justOrEmpty(diabetesService.lastKnownPatient(patientId));
+                      });
+    }
+
+    /**
+     * Récupère les termes déclencheurs d'un patient depuis le service de notes : ceux enregistrés avec ses notes
+     * s'ils sont disponibles, sinon en recherchant les termes dans le texte des notes à mesure de sa réception.
+     *
+     * @param patientId Identifiant du patient dont on veut analyser les notes
+     * @param dictionary Dictionnaire de termes à rechercher
+     * @return Le résultat de la lecture des notes, vide si le service de notes est en erreur
+     */
+    private Mono<ScannedNotes> scanPatientNotes(int patientId, TriggerDictionary dictionary) {
+        Mono<ScannedNotes> summarized = triggerSummaryEnabled ? readTriggerSummary(patientId, dictionary) : Mono.empty();
+        Mono<ScannedNotes> call = summarized.switchIfEmpty(Mono.defer(() -> streamNotes(patientId, dictionary)))
+                                            .timeout(Duration.ofMillis(notesTimeoutMs));
+        return callGuard.call(Dependency.NOTES, call)
+                        .onErrorResume(e -> {
+                            if (RemoteCallGuard.isRejection(e)) {
+                                log.warn("Appel au service de notes refusé pour ID {}: {}", patientId, e.getMessage());
+                            } else {
+                                log.error("Erreur lors de la récupération des notes patient (via WebClient) pour ID {}: {}",
+                                          patientId, e.toString());
+                            }
+                            return Mono.empty();
+                        });
+    }
+
+    /**
+     * Récupère les termes déclencheurs enregistrés par le service de notes pour un patient, sans le texte des notes.
+     *
+     * @return Le résultat équivalent à la lecture des notes, vide si le service de notes ne fournit pas
+     *         ce résumé ou l'a calculé avec une autre version du dictionnaire
+     */
+    private Mono<ScannedNotes> readTriggerSummary(int patientId, TriggerDictionary dictionary) {
+        Mono<TriggerSummaryDTO> summary = webClient.get()
+                                                   .uri(noteServiceUrl + "/{patId}/triggers", patientId)
+                                                   .retrieve()
+                                                   .bodyToMono(TriggerSummaryDTO.class);
+        return metrics.time(Stage.NOTES_FETCH, summary)
+                      .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                      .mapNotNull(received -> DiabetesService.fromTriggerSummary(received, dictionary));
+    }
+
+    /**
+     * Reçoit le texte des notes d'un patient et y recherche les termes déclencheurs à mesure de sa réception.
+     */
+    private Mono<ScannedNotes> streamNotes(int patientId, TriggerDictionary dictionary) {
+        return Mono.defer(() -> {
+            Timer.Sample fetch = metrics.start();
+            return webClient.get()
+                            .uri(noteServiceUrl + "/{patId}", patientId)
+                            .exchangeToMono(response -> {
+                                metrics.stop(fetch, Stage.NOTES_FETCH);
+                                if (response.statusCode().value() == 404) {
+                                    log.info("Aucune note trouvée (via WebClient) pour le patient ID {}", patientId);
+                                    return response.releaseBody().thenReturn(new ScannedNotes(TriggerState.EMPTY, null));
+                                }
+                                if (response.statusCode().value() != 200) {
+                                    return response.releaseBody().then(Mono.error(new IllegalStateException(
+                                            "Réponse inattendue du service de notes : " + response.statusCode().value())));
+                                }
+                                Timer.Sample scan = metrics.start();
+                                return readNotes(response.bodyToFlux(DataBuffer.class), dictionary)
+                                        .doFinally(signal -> metrics.stop(scan, Stage.TRIGGER_SCAN));
+                            });
+        });
+    }
+
+    /**
+     * Analyse le corps de la réponse du service de notes, chaque morceau étant libéré dès sa lecture.
+     *
+     * @param body Morceaux du corps de la réponse
+     * @param dictionary Dictionnaire de termes à rechercher
+     * @return Le résultat de la lecture des notes
+     */
+    private Mono<ScannedNotes> readNotes(Flux<DataBuffer> body, TriggerDictionary dictionary) {
+        return Mono.fromCallable(() -> noteStreamScanner.newSession(dictionary.matcher()))
+                   .flatMap(session -> body.doOnNext(buffer -> feed(session, buffer))
+                                           .then(Mono.fromCallable(session::finish)));
+    }
+
+    private static void feed(NoteStreamScanner.Session session, DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            session.feed(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.medilabo.diabetes_service.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Protège les appels vers les services patient et notes par un disjoncteur et une cloison par service
+ * (configuration {@code resilience4j.circuitbreaker.instances.*} et {@code resilience4j.bulkhead.instances.*}).
+ * La cloison limite le nombre d'appels simultanés vers un service et refuse immédiatement les appels
+ * au-delà ; le disjoncteur refuse les appels tant qu'un service échoue ou répond trop lentement.
+ * Un service lent ne peut donc plus bloquer tous les threads du service de diabète.
+ */
+@Component
+public class RemoteCallGuard {
+
+    /**
+     * Services distants protégés, nommés comme leurs instances de disjoncteur et de cloison.
+     */
+    public enum Dependency {
+        PATIENTS("patient-service"),
+        NOTES("notes-service");
+
+        private final String instanceName;
+
+        Dependency(String instanceName) {
+            this.instanceName = instanceName;
+        }
+    }
+
+    private final Map<Dependency, CircuitBreaker> circuitBreakers = new EnumMap<>(Dependency.class);
+    private final Map<Dependency, Bulkhead> bulkheads = new EnumMap<>(Dependency.class);
+
+    public RemoteCallGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        for (Dependency dependency : Dependency.values()) {
+            circuitBreakers.put(dependency, circuitBreakerRegistry.circuitBreaker(dependency.instanceName));
+            bulkheads.put(dependency, bulkheadRegistry.bulkhead(dependency.instanceName));
+        }
+    }
+
+    /**
+     * Exécute un appel vers un service distant. Un appel refusé par la cloison n'est pas compté
+     * comme un échec du service par le disjoncteur.
+     *
+     * @param dependency Service appelé
+     * @param call Appel à exécuter
+     * @return Le résultat de l'appel
+     * @throws BulkheadFullException si trop d'appels vers ce service sont déjà en cours
+     * @throws CallNotPermittedException si le disjoncteur de ce service est ouvert
+     */
+    public <T> T call(Dependency dependency, Supplier<T> call) {
+        return Bulkhead.decorateSupplier(bulkheads.get(dependency),
+                                         CircuitBreaker.decorateSupplier(circuitBreakers.get(dependency), call)).get();
+    }
+
+    /**
+     * Protège un appel non bloquant vers un service distant, avec la même cloison et le même disjoncteur
+     * que {@link #call(Dependency, Supplier)}. L'appel occupe la cloison de son abonnement jusqu'à sa fin.
+     *
+     * @param dependency Service appelé
+     * @param call Appel à exécuter
+     * @return L'appel protégé, en erreur {@link BulkheadFullException} ou {@link CallNotPermittedException} s'il est refusé
+     */
+    public <T> Mono<T> call(Dependency dependency, Mono<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreakers.get(dependency)))
+                   .transformDeferred(BulkheadOperator.of(bulkheads.get(dependency)));
+    }
+
+    /**
+     * @param e Exception levée par {@link #call(Dependency, Supplier)}
+     * @return true si l'appel a été refusé sans être tenté
+     */
+    public static boolean isRejection(Throwable e) {
+        return e instanceof BulkheadFullException || e instanceof CallNotPermittedException;
+    }
+}
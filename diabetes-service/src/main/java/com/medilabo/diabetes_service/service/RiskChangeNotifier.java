@@ -0,0 +1,207 @@
+package com.medilabo.diabetes_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medilabo.diabetes_service.dto.RiskLevelChangeDTO;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffuse les changements de niveau de risque des patients aux clients abonnés (Server-Sent Events).
+ * Le risque d'un patient est réévalué après chaque écriture signalée sur le patient ou ses notes, ou lorsque son âge
+ * change son niveau de risque,
+ * uniquement si au moins un client suit ce patient ou tous les patients ; un événement n'est émis
+ * que si le niveau calculé diffère du précédent. Les clients n'ont donc plus à interroger le service
+ * pour savoir si le risque a changé.
+ * <p>
+ * Le niveau précédent est le dernier niveau diffusé ou calculé pour le patient, ou à défaut celui du modèle de lecture
+ * ou du cache des risques au moment de l'écriture. S'il n'est pas connu, la première réévaluation sert de référence
+ * sans émettre d'événement. Une évaluation incomplète (service patient ou notes indisponible) est ignorée.
+ */
+@Service
+@Slf4j
+public class RiskChangeNotifier {
+
+    private static final String EVENT_NAME = "risk-level";
+
+    private final DiabetesService diabetesService;
+    private final DiabetesRiskCache riskCache;
+    private final RiskReadModel riskReadModel;
+    private final TriggerStateStore triggerStore;
+    private final Executor riskChangeExecutor;
+    private final int bufferSize;
+    private final Duration heartbeat;
+
+    /** Dernier niveau connu des patients suivis. */
+    private final Cache<Integer, DiabetesRiskLevel> levels;
+    private final Sinks.Many<RiskLevelChangeDTO> changes = Sinks.many().multicast().directBestEffort();
+    /** Nombre d'abonnements par patient suivi individuellement. */
+    private final Map<Integer, AtomicInteger> watchedPatients = new ConcurrentHashMap<>();
+    private final AtomicInteger allPatientsWatchers = new AtomicInteger();
+    /** Patients dont la réévaluation est en attente, pour regrouper les écritures rapprochées. */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    public RiskChangeNotifier(DiabetesService diabetesService, DiabetesRiskCache riskCache, RiskReadModel riskReadModel,
+                              TriggerStateStore triggerStore,
+                              @Qualifier("riskChangeExecutor") Executor riskChangeExecutor,
+                              @Value("${diabetes.changes.max-tracked-patients:10000}") long maxTrackedPatients,
+                              @Value("${diabetes.changes.buffer-size:256}") int bufferSize,
+                              @Value("${diabetes.changes.heartbeat:PT30S}") Duration heartbeat) {
+        this.diabetesService = diabetesService;
+        this.riskCache = riskCache;
+        this.riskReadModel = riskReadModel;
+        this.triggerStore = triggerStore;
+        this.riskChangeExecutor = riskChangeExecutor;
+        this.bufferSize = bufferSize;
+        this.heartbeat = heartbeat;
+        this.levels = Caffeine.newBuilder().maximumSize(maxTrackedPatients).build();
+    }
+
+    /**
+     * Ouvre un abonnement aux changements de niveau de risque. Un commentaire vide est envoyé
+     * périodiquement pour maintenir la connexion ouverte et détecter les clients déconnectés.
+     * Un client trop lent perd les changements les plus anciens au-delà de la taille de sa file.
+     *
+     * @param patientId Identifiant du patient suivi, ou null pour suivre tous les patients
+     * @return Le flux des changements, nommés {@code risk-level}
+     */
+    public Flux<ServerSentEvent<RiskLevelChangeDTO>> subscribe(Integer patientId) {
+        Flux<RiskLevelChangeDTO> patientChanges = patientId == null ? changes.asFlux()
+                : changes.asFlux().filter(change -> change.patientId() == patientId);
+        Flux<ServerSentEvent<RiskLevelChangeDTO>> events = patientChanges
+                .onBackpressureBuffer(bufferSize,
+                                      dropped -> log.warn("Abonné trop lent, changement du patient ID {} perdu", dropped.patientId()),
+                                      BufferOverflowStrategy.DROP_OLDEST)
+                .map(change -> ServerSentEvent.builder(change).event(EVENT_NAME).build());
+        Flux<ServerSentEvent<RiskLevelChangeDTO>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<RiskLevelChangeDTO>builder().comment("").build());
+        return Flux.merge(events, heartbeats)
+                   .doOnSubscribe(subscription -> watch(patientId))
+                   .doFinally(signal -> unwatch(patientId));
+    }
+
+    private void watch(Integer patientId) {
+        if (patientId == null) {
+            allPatientsWatchers.incrementAndGet();
+        } else {
+            watchedPatients.computeIfAbsent(patientId, id -> new AtomicInteger()).incrementAndGet();
+        }
+        log.debug("Abonnement aux changements de risque ouvert (patient {})", patientId == null ? "tous" : patientId);
+    }
+
+    private void unwatch(Integer patientId) {
+        if (patientId == null) {
+            allPatientsWatchers.decrementAndGet();
+        } else {
+            watchedPatients.computeIfPresent(patientId, (id, count) -> count.decrementAndGet() == 0 ? null : count);
+        }
+        log.debug("Abonnement aux changements de risque fermé (patient {})", patientId == null ? "tous" : patientId);
+    }
+
+    private boolean isWatched(int patientId) {
+        return allPatientsWatchers.get() > 0 || watchedPatients.containsKey(patientId);
+    }
+
+    /**
+     * Planifie la réévaluation d'un patient après une écriture. Appelée avant l'invalidation du cache
+     * des risques, pour pouvoir y relever le niveau précédent.
+     *
+     * @param patientId Identifiant du patient modifié
+     */
+    private void onWrite(int patientId) {
+        if (!isWatched(patientId)) {
+            // Le niveau connu ne serait plus à jour quand le patient sera de nouveau suivi
+            levels.invalidate(patientId);
+            return;
+        }
+        if (levels.getIfPresent(patientId) == null) {
+            DiabetesRiskLevel known = riskReadModel.riskLevel(patientId);
+            if (known == null) {
+                RiskAssessment cached = riskCache.getIfPresent(patientId, triggerStore.dictionary().version());
+                known = cached == null ? null : cached.riskLevel();
+            }
+            if (known != null) {
+                levels.asMap().putIfAbsent(patientId, known);
+            }
+        }
+        if (pending.add(patientId)) {
+            riskChangeExecutor.execute(() -> reassess(patientId));
+        }
+    }
+
+    /**
+     * Réévalue un patient et diffuse son nouveau niveau de risque s'il a changé.
+     */
+    private void reassess(int patientId) {
+        pending.remove(patientId);
+        try {
+            // L'écriture peut ne pas encore avoir retiré l'ancienne évaluation du cache
+            riskCache.invalidate(patientId);
+            RiskAssessment assessment = diabetesService.assess(patientId);
+            if (!assessment.complete()) {
+                log.debug("Évaluation incomplète du patient ID {}, aucun changement diffusé", patientId);
+                return;
+            }
+            DiabetesRiskLevel previous = levels.asMap().put(patientId, assessment.riskLevel());
+            if (previous != null && previous != assessment.riskLevel()) {
+                log.info("Risque du patient ID {} passé de {} à {}", patientId, previous, assessment.riskLevel());
+                publish(new RiskLevelChangeDTO(patientId, previous, assessment.riskLevel()));
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de la réévaluation du patient ID {}: {}", patientId, e.getMessage(), e);
+        }
+    }
+
+    private void publish(RiskLevelChangeDTO change) {
+        // Les émissions concurrentes vers un même Sinks.Many doivent être sérialisées
+        synchronized (changes) {
+            changes.tryEmitNext(change);
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onPatientChanged(PatientChangedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onNotesChanged(NotesChangedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onNoteCreated(NoteCreatedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onAgeBoundaryReached(AgeBoundaryReachedEvent event) {
+        onWrite(event.patientId());
+    }
+}
@@ -0,0 +1,505 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.MaterializedRiskDTO;
+import com.medilabo.diabetes_service.dto.ReadModelStatsDTO;
+import com.medilabo.diabetes_service.dto.RiskConsistencyDTO;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.events.RiskRulesChangedEvent;
+import com.medilabo.diabetes_service.events.TriggerDictionaryChangedEvent;
+import com.medilabo.diabetes_service.model.ChunkAssessment;
+import com.medilabo.diabetes_service.model.MaterializedRisk;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modèle de lecture des niveaux de risque de diabète : le dernier niveau calculé pour chaque patient
+ * est conservé avec les données qui l'ont produit, et lu sans calcul ni appel aux services patient et notes.
+ * Le niveau d'un patient est recalculé en arrière-plan après chaque changement signalé sur le patient ou ses notes,
+ * et le jour où son âge change son niveau ({@link AgeBoundaryScheduler}) ;
+ * en attendant, le niveau précédent reste servi. La durée d'une lecture ne dépend donc pas de celle des autres services.
+ * <p>
+ * Un patient absent du modèle est évalué normalement à sa première lecture, puis ajouté au modèle.
+ * Le modèle peut être reconstruit entièrement à partir de la liste des patients, ce qui est fait au démarrage
+ * et après un changement des règles de risque ou du dictionnaire de termes. Un niveau conservé peut être comparé
+ * à un calcul à partir des données sources du patient ; un écart est corrigé et compté.
+ * <p>
+ * Les changements étant signalés au mieux, le modèle ne compte pas seulement sur eux : un recalcul incomplet
+ * (service patient ou notes indisponible) est relancé avec un délai croissant, un patient que le service patient
+ * ne connaît plus est retiré du modèle, et un niveau calculé depuis plus de {@code diabetes.read-model.max-age}
+ * est vérifié en arrière-plan à partir des données sources.
+ * Les mesures du modèle sont publiées par Micrometer sous le nom {@code diabetes.read_model}.
+ */
+@Service
+@Slf4j
+public class RiskReadModel implements MeterBinder {
+
+    private final DiabetesService diabetesService;
+    private final RiskSweepService riskSweepService;
+    private final DiabetesRiskCache riskCache;
+    private final TriggerStateStore triggerStore;
+    private final AgeBoundaryScheduler ageBoundaries;
+    private final Executor readModelExecutor;
+    private final boolean rebuildOnStartup;
+
+    private final ConcurrentHashMap<Integer, MaterializedRisk> entries = new ConcurrentHashMap<>();
+    /** Patients dont le calcul est en attente, pour regrouper les écritures rapprochées. */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicLong mismatches = new AtomicLong();
+    private volatile Instant lastRebuild;
+    private volatile long lastRebuildPatients;
+    /** Nombre de recalculs incomplets successifs des patients dont un nouvel essai est planifié. */
+    private final ConcurrentHashMap<Integer, Integer> retries = new ConcurrentHashMap<>();
+    /** Patients dont la vérification périodique est en cours. */
+    private final Set<Integer> verifying = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Délai avant le premier nouvel essai d'un recalcul incomplet, doublé à chaque essai.
+     */
+    @Value("${diabetes.read-model.retry.initial-delay:PT1S}")
+    private Duration retryInitialDelay = Duration.ofSeconds(1);
+
+    /**
+     * Délai maximal entre deux essais d'un recalcul incomplet.
+     */
+    @Value("${diabetes.read-model.retry.max-delay:PT5M}")
+    private Duration retryMaxDelay = Duration.ofMinutes(5);
+
+    /**
+     * Nombre maximal de nouveaux essais ; au-delà, le niveau reste marqué à recalculer jusqu'à sa vérification périodique.
+     */
+    @Value("${diabetes.read-model.retry.max-attempts:10}")
+    private int retryMaxAttempts = 10;
+
+    /**
+     * Ancienneté au-delà de laquelle un niveau conservé est vérifié à partir des données sources.
+     */
+    @Value("${diabetes.read-model.max-age:PT6H}")
+    private Duration maxAge = Duration.ofHours(6);
+
+    /**
+     * Nombre maximal de vérifications lancées par passage, pour étaler la charge sur les services patient et notes.
+     */
+    @Value("${diabetes.read-model.verify-batch-size:500}")
+    private int verifyBatchSize = 500;
+
+    /**
+     * Résultat d'un lot de la reconstruction, avec la génération de chaque patient avant son évaluation.
+     */
+    private record RebuiltChunk(Map<Integer, Long> generations, ChunkAssessment result) {}
+
+    public RiskReadModel(DiabetesService diabetesService, RiskSweepService riskSweepService, DiabetesRiskCache riskCache,
+                         TriggerStateStore triggerStore, AgeBoundaryScheduler ageBoundaries,
+                         @Qualifier("readModelExecutor") Executor readModelExecutor,
+                         @Value("${diabetes.read-model.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.diabetesService = diabetesService;
+        this.riskSweepService = riskSweepService;
+        this.riskCache = riskCache;
+        this.triggerStore = triggerStore;
+        this.ageBoundaries = ageBoundaries;
+        this.readModelExecutor = readModelExecutor;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return Le dernier niveau de risque calculé pour le patient, ou null s'il n'a pas encore été calculé
+     */
+    public DiabetesRiskLevel riskLevel(int patientId) {
+        MaterializedRisk entry = entries.get(patientId);
+        return entry == null ? null : entry.riskLevel();
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return Le niveau de risque conservé pour le patient et les données qui l'ont produit, ou null si aucun
+     */
+    public MaterializedRiskDTO find(int patientId) {
+        return toDto(entries.get(patientId));
+    }
+
+    /**
+     * Planifie l'ajout au modèle d'un patient qui n'y figure pas encore, après une lecture qui a dû l'évaluer.
+     * L'évaluation venant d'être calculée, elle est reprise du cache des risques.
+     *
+     * @param patientId Identifiant du patient
+     */
+    public void materialize(int patientId) {
+        if (!entries.containsKey(patientId)) {
+            schedule(patientId);
+        }
+    }
+
+    /**
+     * Compare le niveau de risque conservé d'un patient à un calcul à partir de ses données sources,
+     * sans passer par le cache ni par les termes déclencheurs déjà connus.
+     * En cas d'écart, le niveau calculé remplace celui conservé. Un écart sur un niveau déjà en attente
+     * d'un nouveau calcul n'est pas compté. Un patient que le service patient ne connaît plus est retiré du modèle.
+     *
+     * @param patientId Identifiant du patient
+     * @return Le niveau conservé, le niveau calculé (absent si le patient n'existe plus) et le résultat de la comparaison
+     * @throws IllegalStateException si les données du patient n'ont pas pu être récupérées
+     */
+    public RiskConsistencyDTO verify(int patientId) {
+        MaterializedRisk before = entries.get(patientId);
+        long generation = generation(before);
+        RiskAssessment fresh = diabetesService.assessFromSource(patientId);
+        boolean materialized = before != null && before.riskLevel() != null;
+        if (!fresh.complete()) {
+            if (isDeleted(patientId, fresh)) {
+                if (materialized && !before.stale()) {
+                    mismatches.incrementAndGet();
+                }
+                remove(patientId);
+                return new RiskConsistencyDTO(patientId, toDto(before), null, !materialized);
+            }
+            throw new IllegalStateException("Données du patient ID " + patientId + " indisponibles, vérification impossible");
+        }
+        boolean consistent = materialized && before.riskLevel() == fresh.riskLevel()
+                && Objects.equals(before.dictionaryVersion(), fresh.dictionaryVersion())
+                && Objects.equals(before.inputs(), fresh.inputs());
+        if (!consistent) {
+            if (materialized && !before.stale()) {
+                mismatches.incrementAndGet();
+                log.warn("Niveau de risque conservé du patient ID {} incohérent : {} ({}) au lieu de {} ({})", patientId,
+                         before.riskLevel(), before.inputs(), fresh.riskLevel(), fresh.inputs());
+            }
+            riskCache.invalidate(patientId);
+            store(patientId, fresh, generation);
+        } else {
+            // Niveau confirmé : sa prochaine vérification périodique part de maintenant
+            entries.computeIfPresent(patientId, (id, current) -> current == before ? current.verified() : current);
+        }
+        return new RiskConsistencyDTO(patientId, toDto(before), toDto(MaterializedRisk.of(fresh, generation)), consistent);
+    }
+
+    /**
+     * Demande la reconstruction complète du modèle en arrière-plan. Une demande reçue pendant une reconstruction
+     * en relance une autre à sa fin. Le modèle reste lisible pendant la reconstruction.
+     */
+    public void requestRebuild() {
+        rebuildRequested.set(true);
+        if (rebuilding.compareAndSet(false, true)) {
+            readModelExecutor.execute(this::runRebuilds);
+        }
+    }
+
+    private void runRebuilds() {
+        do {
+            try {
+                while (rebuildRequested.getAndSet(false)) {
+                    try {
+                        rebuild();
+                    } catch (Exception e) {
+                        log.error("Reconstruction du modèle de lecture des risques interrompue : {}", e.getMessage(), e);
+                    }
+                }
+            } finally {
+                rebuilding.set(false);
+            }
+        } while (rebuildRequested.get() && rebuilding.compareAndSet(false, true));
+    }
+
+    /**
+     * Reconstruit le modèle à partir de la liste de tous les patients, évalués par lots.
+     * Les patients qui ne figurent plus dans la liste sont retirés du modèle ; un patient qui n'a pas pu
+     * être évalué garde son niveau précédent.
+     *
+     * @return Le nombre de patients traités
+     * @throws IOException si la liste des patients ne peut pas être lue
+     */
+    long rebuild() throws IOException {
+        long start = System.nanoTime();
+        Set<Integer> listed = ConcurrentHashMap.newKeySet();
+        long count = riskSweepService.forEachChunk(chunk -> {
+            // Générations lues avant la récupération des notes : un changement arrivé entre-temps l'emporte
+            Map<Integer, Long> generations = new HashMap<>();
+            chunk.forEach(patient -> generations.put(patient.getId(), generation(entries.get(patient.getId()))));
+            return diabetesService.evaluateKnownPatients(chunk).thenApply(result -> new RebuiltChunk(generations, result));
+        }, rebuilt -> {
+            listed.addAll(rebuilt.generations().keySet());
+            rebuilt.result().assessments().forEach((id, assessment) -> store(id, assessment, rebuilt.generations().get(id)));
+            return rebuilt.generations().size();
+        });
+        // Un patient créé après la lecture de la liste a un calcul en attente
+        entries.keySet().removeIf(id -> {
+            if (listed.contains(id) || pending.contains(id)) {
+                return false;
+            }
+            ageBoundaries.remove(id);
+            return true;
+        });
+        lastRebuild = Instant.now();
+        lastRebuildPatients = count;
+        log.info("Modèle de lecture des risques reconstruit : {} patient(s) en {} ms",
+                 count, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    /**
+     * @return La taille du modèle, le nombre de niveaux en attente de calcul et l'état des reconstructions
+     */
+    public ReadModelStatsDTO stats() {
+        long size = 0;
+        long stale = 0;
+        for (MaterializedRisk entry : entries.values()) {
+            if (entry.riskLevel() != null) {
+                size++;
+            }
+            if (entry.stale()) {
+                stale++;
+            }
+        }
+        return new ReadModelStatsDTO(size, stale, mismatches.get(), rebuilding.get(), lastRebuild, lastRebuildPatients);
+    }
+
+    /**
+     * Conserve une évaluation complète, sauf si un changement a été signalé pour le patient depuis le lancement du calcul,
+     * et indexe le patient à la date où son âge changera ce niveau.
+     *
+     * @param patientId Identifiant du patient
+     * @param assessment Évaluation calculée
+     * @param generation Génération du patient au lancement du calcul
+     */
+    private void store(int patientId, RiskAssessment assessment, long generation) {
+        if (!assessment.complete()) {
+            return;
+        }
+        MaterializedRisk stored = MaterializedRisk.of(assessment, generation);
+        if (entries.compute(patientId, (id, current) -> generation(current) == generation ? stored : current) == stored) {
+            ageBoundaries.index(patientId, assessment.inputs().nextLevelChange());
+        }
+    }
+
+    private static long generation(MaterializedRisk entry) {
+        return entry == null ? 0 : entry.generation();
+    }
+
+    private void schedule(int patientId) {
+        if (pending.add(patientId)) {
+            readModelExecutor.execute(() -> refresh(patientId));
+        }
+    }
+
+    /**
+     * Recalcule et conserve le niveau de risque d'un patient. Une évaluation incomplète (service patient ou notes
+     * indisponible) n'est pas conservée : le niveau précédent reste servi, et le calcul est relancé plus tard.
+     * Un patient que le service patient ne connaît plus est retiré du modèle.
+     */
+    private void refresh(int patientId) {
+        pending.remove(patientId);
+        try {
+            long generation = generation(entries.get(patientId));
+            RiskAssessment assessment = diabetesService.assess(patientId);
+            if (assessment.complete()) {
+                retries.remove(patientId);
+                store(patientId, assessment, generation);
+            } else if (isDeleted(patientId, assessment)) {
+                log.info("Patient ID {} introuvable, retiré du modèle de lecture des risques", patientId);
+                remove(patientId);
+            } else {
+                retryLater(patientId);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors du recalcul du niveau conservé du patient ID {}: {}", patientId, e.getMessage(), e);
+            retryLater(patientId);
+        }
+    }
+
+    /**
+     * @return true si l'évaluation n'a pas trouvé le patient et que le service patient confirme qu'il n'existe pas
+     */
+    private boolean isDeleted(int patientId, RiskAssessment assessment) {
+        return assessment.inputs() == null && !diabetesService.patientExists(patientId);
+    }
+
+    private void remove(int patientId) {
+        retries.remove(patientId);
+        entries.remove(patientId);
+        ageBoundaries.remove(patientId);
+        riskCache.invalidate(patientId);
+    }
+
+    /**
+     * Planifie un nouvel essai du recalcul d'un patient, après un délai doublé à chaque essai.
+     * Un changement signalé entre-temps relance le calcul sans attendre ce délai.
+     */
+    private void retryLater(int patientId) {
+        int attempt = retries.merge(patientId, 1, Integer::sum);
+        if (attempt > retryMaxAttempts) {
+            retries.remove(patientId);
+            log.warn("Recalcul du niveau conservé du patient ID {} abandonné après {} essais", patientId, retryMaxAttempts);
+            return;
+        }
+        Duration delay = retryDelay(attempt);
+        log.debug("Évaluation incomplète du patient ID {}, nouvel essai dans {} ms", patientId, delay.toMillis());
+        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, readModelExecutor).execute(() -> {
+            if (retries.containsKey(patientId)) {
+                schedule(patientId);
+            }
+        });
+    }
+
+    /**
+     * @param attempt Numéro de l'essai, à partir de 1
+     * @return Le délai avant cet essai
+     */
+    Duration retryDelay(int attempt) {
+        long factor = 1L << Math.min(attempt - 1, 30);
+        Duration delay = retryInitialDelay.multipliedBy(factor);
+        return delay.compareTo(retryMaxDelay) > 0 ? retryMaxDelay : delay;
+    }
+
+    /**
+     * Vérifie en arrière-plan, à partir des données sources, les niveaux calculés depuis plus de
+     * {@code diabetes.read-model.max-age} : un changement dont la notification a été perdue est ainsi corrigé.
+     * Les niveaux en attente de recalcul ne sont pas vérifiés.
+     *
+     * @return Le nombre de vérifications lancées
+     */
+    @Scheduled(fixedDelayString = "${diabetes.read-model.verify-interval-ms:60000}")
+    public int verifyExpired() {
+        Instant limit = Instant.now().minus(maxAge);
+        int started = 0;
+        for (Map.Entry<Integer, MaterializedRisk> entry : entries.entrySet()) {
+            if (started >= verifyBatchSize) {
+                break;
+            }
+            int patientId = entry.getKey();
+            MaterializedRisk risk = entry.getValue();
+            if (risk.computedAt() != null && risk.computedAt().isBefore(limit) && !risk.stale()
+                    && !pending.contains(patientId) && verifying.add(patientId)) {
+                started++;
+                readModelExecutor.execute(() -> verifyInBackground(patientId));
+            }
+        }
+        if (started > 0) {
+            log.debug("{} niveau(x) conservé(s) de plus de {} en cours de vérification", started, maxAge);
+        }
+        return started;
+    }
+
+    private void verifyInBackground(int patientId) {
+        try {
+            verify(patientId);
+        } catch (Exception e) {
+            log.warn("Vérification du niveau conservé du patient ID {} impossible : {}", patientId, e.getMessage());
+        } finally {
+            verifying.remove(patientId);
+        }
+    }
+
+    /**
+     * Marque le niveau d'un patient comme à recalculer et planifie son calcul.
+     */
+    private void onWrite(int patientId) {
+        retries.remove(patientId);
+        entries.compute(patientId, (id, current) -> MaterializedRisk.stale(current));
+        // Le calcul peut commencer avant que le cache des risques ne retire l'ancienne évaluation
+        riskCache.invalidate(patientId);
+        schedule(patientId);
+    }
+
+    private MaterializedRiskDTO toDto(MaterializedRisk entry) {
+        if (entry == null || entry.riskLevel() == null) {
+            return null;
+        }
+        TriggerDictionary dictionary = triggerStore.dictionary();
+        Set<String> triggers = dictionary.version().equals(entry.dictionaryVersion())
+                ? TriggerMask.toTerms(entry.inputs().triggerMask(), dictionary.matcher()) : null;
+        return new MaterializedRiskDTO(entry.riskLevel(), entry.inputs().triggerCount(), triggers, entry.inputs().age(),
+                                       entry.inputs().gender(), entry.dictionaryVersion(), entry.inputs().rulesVersion(),
+                                       entry.inputs().nextLevelChange(), entry.computedAt(), entry.stale());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("diabetes.read_model.size", entries, Map::size)
+             .description("Nombre de patients présents dans le modèle de lecture des risques")
+             .register(registry);
+        FunctionCounter.builder("diabetes.read_model.mismatches", mismatches, AtomicLong::get)
+                       .description("Niveaux conservés trouvés différents d'un calcul à partir des données sources")
+                       .register(registry);
+    }
+
+    @EventListener
+    public void onPatientChanged(PatientChangedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    public void onNotesChanged(NotesChangedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    public void onNoteCreated(NoteCreatedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    public void onAgeBoundaryReached(AgeBoundaryReachedEvent event) {
+        onWrite(event.patientId());
+    }
+
+    @EventListener
+    public void onRiskRulesChanged(RiskRulesChangedEvent event) {
+        log.info("Reconstruction du modèle de lecture des risques (règles version {})", event.version());
+        staleAll();
+        // Les évaluations en cache ne portent pas la version des règles
+        riskCache.invalidateAll();
+        requestRebuild();
+    }
+
+    @EventListener
+    public void onTriggerDictionaryChanged(TriggerDictionaryChangedEvent event) {
+        log.info("Reconstruction du modèle de lecture des risques (dictionnaire version {})", event.version());
+        staleAll();
+        requestRebuild();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Marque tous les niveaux conservés comme à recalculer ; ils restent servis jusqu'à leur recalcul.
+     */
+    private void staleAll() {
+        entries.replaceAll((id, current) -> MaterializedRisk.stale(current));
+    }
+}
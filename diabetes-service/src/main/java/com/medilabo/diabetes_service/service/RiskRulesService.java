@@ -0,0 +1,114 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.engine.RiskDecisionTable;
+import com.medilabo.diabetes_service.engine.RiskRulesConfig;
+import com.medilabo.diabetes_service.events.RiskRulesChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Service détenant la table de décision du risque de diabète en service.
+ * Les règles sont lues depuis la configuration ({@code diabetes.rules.location}) et compilées au démarrage.
+ * Elles peuvent être remplacées à chaud : la nouvelle table est entièrement compilée avant d'être publiée
+ * en une seule écriture, de sorte qu'une évaluation voit toujours soit l'ancienne table, soit la nouvelle.
+ * En mode vérification ({@code diabetes.rules.verify}), une table n'est acceptée que si elle donne
+ * les mêmes résultats que les règles historiques pour toutes les combinaisons d'entrées.
+ */
+@Service
+@Slf4j
+public class RiskRulesService {
+
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String location;
+    private final boolean verify;
+
+    private volatile RiskDecisionTable table;
+
+    public RiskRulesService(ObjectMapper objectMapper, ResourceLoader resourceLoader, ApplicationEventPublisher eventPublisher,
+                            @Value("${diabetes.rules.location:classpath:risk-rules.json}") String location,
+                            @Value("${diabetes.rules.verify:true}") boolean verify) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.eventPublisher = eventPublisher;
+        this.location = location;
+        this.verify = verify;
+        try {
+            this.table = compile(read());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Impossible de charger les règles de risque depuis " + location + " : " + e.getMessage(), e);
+        }
+        log.info("Règles de risque version {} chargées depuis {}", table.version(), location);
+    }
+
+    /**
+     * @return La table de décision en service
+     */
+    public RiskDecisionTable current() {
+        return table;
+    }
+
+    /**
+     * Relit les règles depuis la configuration et remplace la table en service.
+     *
+     * @return La nouvelle table
+     * @throws IOException si les règles ne peuvent pas être lues
+     * @throws IllegalArgumentException si les règles sont invalides ou, en mode vérification, différentes des règles historiques
+     */
+    public RiskDecisionTable reload() throws IOException {
+        return replace(read());
+    }
+
+    /**
+     * Remplace la table en service par la compilation des règles fournies.
+     *
+     * @param config Nouvelles règles
+     * @return La nouvelle table
+     * @throws IllegalArgumentException si les règles sont invalides ou, en mode vérification, différentes des règles historiques
+     */
+    public RiskDecisionTable replace(RiskRulesConfig config) {
+        RiskDecisionTable compiled = compile(config);
+        table = compiled;
+        log.info("Règles de risque remplacées par la version {}", compiled.version());
+        eventPublisher.publishEvent(new RiskRulesChangedEvent(compiled.version()));
+        return compiled;
+    }
+
+    /**
+     * @return Les premières différences entre la table en service et les règles historiques
+     */
+    public List<String> verify() {
+        return table.verifyAgainstLegacy(MAX_REPORTED_MISMATCHES);
+    }
+
+    private RiskRulesConfig read() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, RiskRulesConfig.class);
+        }
+    }
+
+    private RiskDecisionTable compile(RiskRulesConfig config) {
+        RiskDecisionTable compiled = RiskDecisionTable.compile(config);
+        if (verify) {
+            List<String> mismatches = compiled.verifyAgainstLegacy(MAX_REPORTED_MISMATCHES);
+            if (!mismatches.isEmpty()) {
+                throw new IllegalArgumentException("Les règles version " + config.version()
+                                                           + " diffèrent des règles historiques : " + mismatches);
+            }
+        }
+        return compiled;
+    }
+}
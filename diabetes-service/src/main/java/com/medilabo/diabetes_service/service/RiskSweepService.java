@@ -0,0 +1,160 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.PatientRiskDTO;
+import com.medilabo.diabetes_service.proxies.PatientProxy;
+import feign.Response;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Service de réévaluation complète du risque de diabète de toute la population de patients.
+ * La liste des patients est lue au fil de l'eau depuis le service patient, évaluée par lots,
+ * et chaque résultat est écrit dès qu'il est calculé sous forme d'une ligne JSON (NDJSON).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RiskSweepService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final PatientProxy patientProxy;
+    private final DiabetesService diabetesService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Nombre de patients évalués par lot.
+     */
+    @Value("${diabetes.sweep.chunk-size:100}")
+    private int chunkSize;
+
+    /**
+     * Nombre maximal de lots lus et en cours d'évaluation avant que leurs résultats ne soient écrits.
+     * Borne la mémoire utilisée : un client lent bloque l'écriture, ce qui suspend la lecture des patients suivants.
+     */
+    @Value("${diabetes.sweep.max-in-flight-chunks:4}")
+    private int maxInFlightChunks;
+
+    /**
+     * Traitement des résultats d'un lot de patients, dans l'ordre de lecture des lots.
+     *
+     * @param <T> Type du résultat d'un lot
+     */
+    @FunctionalInterface
+    public interface ChunkHandler<T> {
+
+        /**
+         * @param result Résultat du lot
+         * @return Le nombre de patients traités dans le lot
+         * @throws IOException si le résultat ne peut pas être écrit
+         */
+        int handle(T result) throws IOException;
+    }
+
+    /**
+     * Évalue tous les patients et écrit une ligne {@code {"patientId":..,"riskLevel":..}} par patient.
+     * Les lignes sont envoyées au client à la fin de chaque lot.
+     *
+     * @param out Flux de sortie de la réponse HTTP
+     * @return Le nombre de patients traités
+     * @throws IOException si la liste des patients ne peut pas être lue ou si le client se déconnecte
+     */
+    public long sweep(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long count = forEachChunk(diabetesService::assessKnownPatients, batch -> write(batch, out));
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        log.info("Réévaluation complète terminée : {} patient(s) en {} s ({} patients/s)",
+                 count, String.format("%.3f", seconds), String.format("%.1f", count / seconds));
+        return count;
+    }
+
+    /**
+     * Lit la liste de tous les patients au fil de l'eau et les évalue par lots, avec au plus
+     * {@code maxInFlightChunks} lots en cours. Les résultats sont traités dans l'ordre des lots.
+     *
+     * @param evaluate Évaluation d'un lot de patients
+     * @param handler Traitement du résultat d'un lot
+     * @return Le nombre de patients traités
+     * @throws IOException si la liste des patients ne peut pas être lue ou si un résultat ne peut pas être traité
+     */
+    public <T> long forEachChunk(Function<List<PatientDTO>, CompletableFuture<T>> evaluate, ChunkHandler<T> handler)
+            throws IOException {
+        long count = 0;
+        Deque<CompletableFuture<T>> inFlight = new ArrayDeque<>();
+
+        try (Response response = patientProxy.streamAllPatients()) {
+            if (response.status() != 200 || response.body() == null) {
+                throw new IOException("Réponse inattendue du service patient : " + response.status());
+            }
+            try (InputStream body = response.body().asInputStream();
+                 JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("La liste des patients n'est pas un tableau JSON");
+                }
+                List<PatientDTO> chunk = new ArrayList<>(chunkSize);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    chunk.add(objectMapper.readValue(parser, PatientDTO.class));
+                    if (chunk.size() == chunkSize) {
+                        inFlight.addLast(evaluate.apply(chunk));
+                        chunk = new ArrayList<>(chunkSize);
+                        if (inFlight.size() >= maxInFlightChunks) {
+                            count += handler.handle(inFlight.removeFirst().join());
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    inFlight.addLast(evaluate.apply(chunk));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                count += handler.handle(inFlight.removeFirst().join());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Écrit les résultats d'un lot, une ligne par patient, puis les envoie au client.
+     *
+     * @param batch Résultats du lot
+     * @param out Flux de sortie de la réponse HTTP
+     * @return Le nombre de lignes écrites
+     * @throws IOException si le client se déconnecte
+     */
+    private int write(BatchAssessmentResponse batch, OutputStream out) throws IOException {
+        int lines = 0;
+        for (var result : batch.results().entrySet()) {
+            writeLine(new PatientRiskDTO(result.getKey(), result.getValue(), null, batch.dictionaryVersion()), out);
+            lines++;
+        }
+        for (var error : batch.errors().entrySet()) {
+            writeLine(new PatientRiskDTO(error.getKey(), null, error.getValue(), null), out);
+            lines++;
+        }
+        out.flush();
+        return lines;
+    }
+
+    private void writeLine(PatientRiskDTO line, OutputStream out) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,170 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.config.DiabetesConstants;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerTermsConfig;
+import com.medilabo.diabetes_service.events.TriggerDictionaryChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Service détenant le dictionnaire des termes déclencheurs en service.
+ * Le dictionnaire est lu depuis un fichier externe ({@code diabetes.triggers.location}) ; sans fichier configuré,
+ * la liste intégrée {@link DiabetesConstants#TRIGGER_TERMS} est utilisée.
+ * Le fichier est surveillé : une nouvelle version est compilée entièrement, puis publiée en une seule écriture.
+ * Les évaluations en cours terminent avec le dictionnaire qu'elles ont lu, sans être interrompues,
+ * et chaque évaluation indique la version du dictionnaire qui l'a produite.
+ */
+@Service
+@Slf4j
+public class TriggerDictionaryService {
+
+    /**
+     * Version de la liste intégrée de termes déclencheurs, dérivée de son contenu (voir {@link #builtinVersion(List)}).
+     */
+    public static final String BUILTIN_VERSION = builtinVersion(DiabetesConstants.TRIGGER_TERMS);
+
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String location;
+
+    private volatile TriggerDictionary dictionary;
+    private volatile long loadedLastModified;
+
+    public TriggerDictionaryService(ObjectMapper objectMapper, ResourceLoader resourceLoader, ApplicationEventPublisher eventPublisher,
+                                    @Value("${diabetes.triggers.location:}") String location) {
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.eventPublisher = eventPublisher;
+        this.location = location;
+        if (location == null || location.isBlank()) {
+            this.dictionary = TriggerDictionary.compile(new TriggerTermsConfig(BUILTIN_VERSION, DiabetesConstants.TRIGGER_TERMS));
+        } else {
+            try {
+                this.loadedLastModified = lastModified();
+                this.dictionary = TriggerDictionary.compile(read());
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalStateException("Impossible de charger les termes déclencheurs depuis " + location + " : " + e.getMessage(), e);
+            }
+        }
+        log.info("Dictionnaire des termes déclencheurs version {} chargé ({} termes)",
+                 dictionary.version(), dictionary.matcher().termCount());
+    }
+
+    /**
+     * @return Le dictionnaire en service
+     */
+    public TriggerDictionary current() {
+        return dictionary;
+    }
+
+    /**
+     * Relit le dictionnaire depuis le fichier configuré et le met en service.
+     *
+     * @return Le dictionnaire en service après rechargement
+     * @throws IOException si le fichier ne peut pas être lu
+     * @throws IllegalArgumentException si le dictionnaire est invalide ou si aucun fichier n'est configuré
+     */
+    public TriggerDictionary reload() throws IOException {
+        if (location == null || location.isBlank()) {
+            throw new IllegalArgumentException("Aucun fichier de termes déclencheurs n'est configuré");
+        }
+        long lastModified = lastModified();
+        TriggerDictionary reloaded = replace(read());
+        loadedLastModified = lastModified;
+        return reloaded;
+    }
+
+    /**
+     * Remplace le dictionnaire en service. Un dictionnaire de même version que celui en service est ignoré,
+     * avec un avertissement si ses termes diffèrent : la version doit changer pour qu'une modification soit prise en compte.
+     *
+     * @param config Version et termes du nouveau dictionnaire
+     * @return Le dictionnaire en service après remplacement
+     * @throws IllegalArgumentException si le dictionnaire est invalide
+     */
+    public TriggerDictionary replace(TriggerTermsConfig config) {
+        TriggerDictionary compiled = TriggerDictionary.compile(config);
+        synchronized (this) {
+            if (compiled.version().equals(dictionary.version())) {
+                if (!compiled.matcher().terms().equals(dictionary.matcher().terms())) {
+                    log.warn("Termes déclencheurs modifiés sans changement de version ({}) : modification ignorée, "
+                             + "changer la version pour la mettre en service", compiled.version());
+                }
+                return dictionary;
+            }
+            dictionary = compiled;
+        }
+        log.info("Dictionnaire des termes déclencheurs remplacé par la version {} ({} termes)",
+                 compiled.version(), compiled.matcher().termCount());
+        eventPublisher.publishEvent(new TriggerDictionaryChangedEvent(compiled.version()));
+        return compiled;
+    }
+
+    /**
+     * Recharge le dictionnaire si le fichier configuré a été modifié depuis sa dernière lecture.
+     * Un fichier invalide est signalé et le dictionnaire en service est conservé.
+     */
+    @Scheduled(fixedDelayString = "${diabetes.triggers.refresh-ms:30000}")
+    public void refreshIfModified() {
+        if (location == null || location.isBlank()) {
+            return;
+        }
+        try {
+            if (lastModified() != loadedLastModified) {
+                reload();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Rechargement des termes déclencheurs depuis {} impossible, version {} conservée : {}",
+                      location, dictionary.version(), e.getMessage());
+        }
+    }
+
+    /**
+     * Calcule la version d'une liste intégrée de termes à partir de son contenu, selon la même règle que
+     * le service de notes : deux services n'annoncent la même version que s'ils recherchent les mêmes termes.
+     *
+     * @param terms Termes de la liste intégrée
+     * @return {@code builtin-} suivi du début de l'empreinte SHA-256 des termes en minuscules, sans doublon, un par ligne
+     */
+    static String builtinVersion(List<String> terms) {
+        Set<String> distinct = new LinkedHashSet<>();
+        terms.forEach(term -> distinct.add(term.toLowerCase(Locale.ROOT)));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                                         .digest(String.join("\n", distinct).getBytes(StandardCharsets.UTF_8));
+            return "builtin-" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private long lastModified() throws IOException {
+        return resourceLoader.getResource(location).lastModified();
+    }
+
+    private TriggerTermsConfig read() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, TriggerTermsConfig.class);
+        }
+    }
+}
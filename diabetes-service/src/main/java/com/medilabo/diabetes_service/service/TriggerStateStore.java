@@ -0,0 +1,209 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.TriggerDictionaryChangedEvent;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conserve, pour chaque patient, l'état de recherche des termes déclencheurs accumulé sur ses notes.
+ * Les notes n'étant qu'ajoutées, une nouvelle note est lue à la suite de cet état sans relire l'historique :
+ * l'évaluation d'un patient connu ne dépend plus du nombre de ses notes.
+ * L'historique complet n'est relu qu'au premier accès (démarrage à froid) ou après une suppression de notes.
+ * <p>
+ * Chaque changement signalé pour un patient lui attribue une nouvelle génération. Un état reconstruit à partir
+ * de notes récupérées n'est conservé que si aucun changement n'est arrivé pendant leur récupération.
+ * Les événements sont traités avant l'invalidation du cache des risques, pour qu'une évaluation relancée
+ * après l'invalidation voie déjà le nouvel état.
+ * <p>
+ * Un état n'a de sens qu'avec le dictionnaire de termes qui l'a produit : un état construit avec
+ * un autre dictionnaire que celui en service est considéré comme absent.
+ * <p>
+ * Les nouvelles notes étant signalées au mieux, un état n'est utilisé que pendant {@code diabetes.triggers.state.ttl}
+ * après la dernière lecture complète des notes du patient, notes ajoutées ensuite comprises :
+ * une notification perdue ne fausse l'état d'un patient que jusqu'à sa relecture suivante.
+ * Le nombre d'états conservés est borné par {@code diabetes.triggers.state.max-size}.
+ */
+@Component
+@Slf4j
+public class TriggerStateStore {
+
+    /**
+     * Ce qui est connu d'un patient à un instant donné.
+     *
+     * @param generation Génération du dernier changement signalé pour le patient, 0 si aucun
+     * @param state État accumulé sur ses notes, ou null s'il faut relire toutes ses notes
+     * @param lastNoteId Identifiant de la dernière note lue, ou null si aucune
+     * @param dictionary Dictionnaire avec lequel l'état a été construit, ou doit l'être s'il est absent
+     */
+    public record Snapshot(long generation, TriggerState state, String lastNoteId, TriggerDictionary dictionary) {}
+
+    /**
+     * État conservé d'un patient.
+     *
+     * @param snapshot Ce qui est connu du patient
+     * @param readAt Date de la dernière lecture complète de ses notes ({@link System#nanoTime()})
+     */
+    private record Entry(Snapshot snapshot, long readAt) {}
+
+    private final TriggerDictionaryService dictionaryService;
+    private final long ttlNanos;
+
+    private final ConcurrentMap<Integer, Entry> snapshots;
+    private final AtomicLong generations = new AtomicLong();
+
+    public TriggerStateStore(TriggerDictionaryService dictionaryService,
+                             @Value("${diabetes.triggers.state.max-size:100000}") long maxSize,
+                             @Value("${diabetes.triggers.state.ttl:PT1H}") Duration ttl) {
+        this.dictionaryService = dictionaryService;
+        this.ttlNanos = ttl.toNanos();
+        this.snapshots = Caffeine.newBuilder()
+                                 .maximumSize(maxSize)
+                                 .expireAfterWrite(ttl)
+                                 .<Integer, Entry>build()
+                                 .asMap();
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @return Ce qui est connu du patient ; à lire avant de récupérer ses notes si l'état est absent
+     */
+    public Snapshot snapshot(int patientId) {
+        return snapshot(patientId, dictionaryService.current());
+    }
+
+    /**
+     * @param patientId Identifiant du patient
+     * @param dictionary Dictionnaire à utiliser, lu une seule fois pour tout un lot de patients
+     * @return Ce qui est connu du patient avec ce dictionnaire
+     */
+    public Snapshot snapshot(int patientId, TriggerDictionary dictionary) {
+        Entry entry = snapshots.get(patientId);
+        if (entry == null) {
+            return new Snapshot(0, null, null, dictionary);
+        }
+        Snapshot snapshot = entry.snapshot();
+        if (snapshot.dictionary() != dictionary || System.nanoTime() - entry.readAt() > ttlNanos) {
+            return new Snapshot(snapshot.generation(), null, null, dictionary);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return Le dictionnaire de termes déclencheurs en service
+     */
+    public TriggerDictionary dictionary() {
+        return dictionaryService.current();
+    }
+
+    /**
+     * Lit toutes les notes d'un patient et conserve l'état obtenu, sauf si un changement
+     * a été signalé depuis la lecture de {@code before}.
+     *
+     * @param patientId Identifiant du patient
+     * @param before Ce qui était connu du patient avant la récupération de ses notes
+     * @param notes Toutes les notes du patient, dans leur ordre de création
+     * @return L'état accumulé sur les notes
+     */
+    public TriggerState rebuild(int patientId, Snapshot before, List<NoteDTO> notes) {
+        TriggerState state = TriggerState.scan(before.dictionary().matcher(), notes, NoteDTO::getNote);
+        String lastNoteId = null;
+        for (NoteDTO note : notes) {
+            if (note.getId() != null && (lastNoteId == null || note.getId().compareTo(lastNoteId) > 0)) {
+                lastNoteId = note.getId();
+            }
+        }
+        return rebuild(patientId, before, new ScannedNotes(state, lastNoteId));
+    }
+
+    /**
+     * Conserve l'état obtenu par la lecture de toutes les notes d'un patient, sauf si un changement
+     * a été signalé depuis la lecture de {@code before}.
+     *
+     * @param patientId Identifiant du patient
+     * @param before Ce qui était connu du patient avant la récupération de ses notes
+     * @param scanned Résultat de la lecture des notes, avec le dictionnaire de {@code before}
+     * @return L'état accumulé sur les notes
+     */
+    public TriggerState rebuild(int patientId, Snapshot before, ScannedNotes scanned) {
+        Entry rebuilt = new Entry(new Snapshot(before.generation(), scanned.state(), scanned.lastNoteId(), before.dictionary()),
+                                  System.nanoTime());
+        snapshots.compute(patientId, (id, current) -> {
+            long generation = current == null ? 0 : current.snapshot().generation();
+            return generation == before.generation() ? rebuilt : current;
+        });
+        return scanned.state();
+    }
+
+    /**
+     * Lit une nouvelle note à la suite de l'état connu du patient. Si aucun état n'est connu,
+     * il sera construit à la prochaine évaluation. Une note déjà lue est ignorée ; une note plus
+     * ancienne que la dernière lue oblige à relire tout l'historique.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onNoteCreated(NoteCreatedEvent event) {
+        snapshots.compute(event.patientId(), (id, entry) -> {
+            long generation = generations.incrementAndGet();
+            Snapshot current = entry == null ? null : entry.snapshot();
+            if (current == null || current.state() == null || current.dictionary() != dictionaryService.current()) {
+                return unknown(generation);
+            }
+            if (event.noteId() != null && current.lastNoteId() != null) {
+                int order = event.noteId().compareTo(current.lastNoteId());
+                if (order == 0) {
+                    return entry;
+                }
+                if (order < 0) {
+                    log.debug("Note {} reçue dans le désordre pour le patient ID {}, relecture complète", event.noteId(), id);
+                    return unknown(generation);
+                }
+            }
+            TriggerState state = current.state().append(current.dictionary().matcher(), event.note());
+            // L'état garde la date de la dernière lecture complète : une note ajoutée ne prolonge pas sa durée d'utilisation
+            return new Entry(new Snapshot(generation, state, event.noteId() != null ? event.noteId() : current.lastNoteId(),
+                                          current.dictionary()), entry.readAt());
+        });
+    }
+
+    /**
+     * Oublie l'état d'un patient dont des notes ont été supprimées : toutes ses notes seront relues.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onNotesChanged(NotesChangedEvent event) {
+        snapshots.put(event.patientId(), unknown(generations.incrementAndGet()));
+    }
+
+    /**
+     * Libère les états construits avec l'ancien dictionnaire ; ils seront reconstruits à la prochaine évaluation.
+     * Les générations sont conservées, pour qu'une reconstruction en cours ne puisse pas être enregistrée à tort.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDictionaryChanged(TriggerDictionaryChangedEvent event) {
+        snapshots.replaceAll((id, entry) -> unknown(entry.snapshot().generation()));
+    }
+
+    /**
+     * @return Un patient dont toutes les notes sont à relire, à la génération donnée
+     */
+    private static Entry unknown(long generation) {
+        return new Entry(new Snapshot(generation, null, null, null), System.nanoTime());
+    }
+}
@@ -1,13 +1,31 @@
 
 package com.medilabo.diabetes_service.controller;
 
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
+import com.medilabo.diabetes_service.dto.CacheStatsDTO;
+import com.medilabo.diabetes_service.dto.MaterializedRiskDTO;
+import com.medilabo.diabetes_service.dto.RiskConsistencyDTO;
 import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.service.DiabetesRiskCache;
 import com.medilabo.diabetes_service.service.DiabetesService;
+import com.medilabo.diabetes_service.service.ReactiveDiabetesService;
+import com.medilabo.diabetes_service.service.RiskReadModel;
+import com.medilabo.diabetes_service.service.RiskSweepService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -18,6 +36,18 @@ class DiabetesControllerTest {
     @Mock
     private DiabetesService diabetesService;
 
+    @Mock
+    private RiskSweepService riskSweepService;
+
+    @Mock
+    private DiabetesRiskCache riskCache;
+
+    @Mock
+    private ObjectProvider<ReactiveDiabetesService> reactiveDiabetesService;
+
+    @Mock
+    private RiskReadModel riskReadModel;
+
     @InjectMocks
     private DiabetesController diabetesController;
 
@@ -25,10 +55,46 @@ class DiabetesControllerTest {
     void getDiabetesAssessment_NoneTest() {
         when(diabetesService.assessDiabetesRisk(1)).thenReturn(DiabetesRiskLevel.NONE);
 
-        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(1);
+        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(1).block();
 
         assertEquals(DiabetesRiskLevel.NONE, result);
         verify(diabetesService).assessDiabetesRisk(1);
+        verify(riskReadModel).materialize(1);
+    }
+
+    @Test
+    void getDiabetesAssessment_MaterializedTest() {
+        when(riskReadModel.riskLevel(5)).thenReturn(DiabetesRiskLevel.BORDERLINE);
+
+        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(5).block();
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, result);
+        verifyNoInteractions(diabetesService);
+        verify(riskReadModel, never()).materialize(5);
+    }
+
+    @Test
+    void getMaterializedRisk_NotFoundTest() {
+        ResponseEntity<MaterializedRiskDTO> response = diabetesController.getMaterializedRisk(1);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void checkConsistency_UnavailableTest() {
+        when(riskReadModel.verify(1)).thenThrow(new IllegalStateException("indisponible"));
+
+        ResponseEntity<RiskConsistencyDTO> response = diabetesController.checkConsistency(1);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void rebuildReadModelTest() {
+        ResponseEntity<Void> response = diabetesController.rebuildReadModel();
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(riskReadModel).requestRebuild();
     }
 
     @Test
@@ -36,7 +102,7 @@ class DiabetesControllerTest {
 
         when(diabetesService.assessDiabetesRisk(2)).thenReturn(DiabetesRiskLevel.BORDERLINE);
 
-        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(2);
+        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(2).block();
 
         assertEquals(DiabetesRiskLevel.BORDERLINE, result);
         verify(diabetesService).assessDiabetesRisk(2);
@@ -46,7 +112,7 @@ class DiabetesControllerTest {
     void getDiabetesAssessment_InDangerTest() {
         when(diabetesService.assessDiabetesRisk(3)).thenReturn(DiabetesRiskLevel.IN_DANGER);
 
-        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(3);
+        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(3).block();
 
         assertEquals(DiabetesRiskLevel.IN_DANGER, result);
         verify(diabetesService).assessDiabetesRisk(3);
@@ -56,10 +122,59 @@ class DiabetesControllerTest {
     void getDiabetesAssessment_EarlyOnsetTest() {
         when(diabetesService.assessDiabetesRisk(4)).thenReturn(DiabetesRiskLevel.EARLY_ONSET);
 
-        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(4);
+        DiabetesRiskLevel result = diabetesController.getDiabetesAssessment(4).block();
 
         assertEquals(DiabetesRiskLevel.EARLY_ONSET, result);
         verify(diabetesService).assessDiabetesRisk(4);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void getDiabetesAssessmentsTest() {
+        BatchAssessmentResponse expected = new BatchAssessmentResponse(
+                Map.of(1, DiabetesRiskLevel.NONE), Map.of(2, "Patient non trouvé"), "builtin");
+        when(diabetesService.assessDiabetesRiskBatch(List.of(1, 2))).thenReturn(expected);
+
+        ResponseEntity<BatchAssessmentResponse> response = diabetesController.getDiabetesAssessments(List.of(1, 2));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expected, response.getBody());
+    }
+
+    @Test
+    void getDiabetesAssessments_TooLargeTest() {
+        when(diabetesService.assessDiabetesRiskBatch(List.of(1, 2))).thenThrow(new IllegalArgumentException("trop"));
+
+        ResponseEntity<BatchAssessmentResponse> response = diabetesController.getDiabetesAssessments(List.of(1, 2));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void sweepAllPatientsTest() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = diabetesController.sweepAllPatients();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(riskSweepService).sweep(out);
+    }
+
+
+    @Test
+    void getCacheStatsTest() {
+        CacheStatsDTO stats = new CacheStatsDTO(1, 3, 1, 0.75, 0);
+        when(riskCache.stats()).thenReturn(stats);
+
+        assertEquals(stats, diabetesController.getCacheStats());
+    }
+
+    @Test
+    void clearCacheTest() {
+        ResponseEntity<Void> response = diabetesController.clearCache();
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(riskCache).invalidateAll();
+    }
+}
@@ -0,0 +1,53 @@
+package com.medilabo.diabetes_service.controller;
+
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DiabetesEventControllerTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private DiabetesEventController diabetesEventController;
+
+    @Test
+    void patientChangedTest() {
+        assertEquals(HttpStatus.NO_CONTENT, diabetesEventController.patientChanged(1).getStatusCode());
+        verify(eventPublisher).publishEvent(new PatientChangedEvent(1));
+    }
+
+    @Test
+    void noteCreatedTest() {
+        assertEquals(HttpStatus.NO_CONTENT, diabetesEventController.noteCreated(new NoteDTO("a", 2, "poids")).getStatusCode());
+        verify(eventPublisher).publishEvent(new NoteCreatedEvent(2, "a", "poids"));
+    }
+
+    @Test
+    void notesChangedTest() {
+        assertEquals(HttpStatus.NO_CONTENT, diabetesEventController.notesChanged(3).getStatusCode());
+        verify(eventPublisher).publishEvent(new NotesChangedEvent(3));
+    }
+
+    @Test
+    void notesChanged_BulkTest() {
+        assertEquals(HttpStatus.NO_CONTENT, diabetesEventController.notesChanged(List.of(3, 4)).getStatusCode());
+        verify(eventPublisher).publishEvent(new NotesChangedEvent(3));
+        verify(eventPublisher).publishEvent(new NotesChangedEvent(4));
+    }
+}
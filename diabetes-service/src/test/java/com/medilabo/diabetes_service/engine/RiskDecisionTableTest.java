@@ -0,0 +1,77 @@
+package com.medilabo.diabetes_service.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RiskDecisionTableTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private RiskDecisionTable defaultTable() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/risk-rules.json")) {
+            return RiskDecisionTable.compile(objectMapper.readValue(in, RiskRulesConfig.class));
+        }
+    }
+
+    @Test
+    void defaultRulesMatchLegacyTest() throws IOException {
+        RiskDecisionTable table = defaultTable();
+
+        assertEquals(List.of(), table.verifyAgainstLegacy(10));
+        assertEquals("1", table.version());
+    }
+
+    @Test
+    void riskLevelTest() throws IOException {
+        RiskDecisionTable table = defaultTable();
+
+        assertEquals(DiabetesRiskLevel.NONE, table.riskLevel(40, "M", 0));
+        assertEquals(DiabetesRiskLevel.NONE, table.riskLevel(30, "F", 2));
+        assertEquals(DiabetesRiskLevel.BORDERLINE, table.riskLevel(31, "F", 2));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, table.riskLevel(25, "m", 3));
+        assertEquals(DiabetesRiskLevel.EARLY_ONSET, table.riskLevel(200, null, 100));
+    }
+
+    @Test
+    void nextLevelChangeAgeTest() throws IOException {
+        RiskDecisionTable table = defaultTable();
+
+        assertEquals(30, table.nextLevelChangeAge(25, "M", 3));
+        assertEquals(31, table.nextLevelChangeAge(30, "F", 2));
+        assertEquals(30, table.nextLevelChangeAge(29, "F", 7));
+        assertEquals(-1, table.nextLevelChangeAge(40, "M", 2));
+        assertEquals(-1, table.nextLevelChangeAge(20, "M", 0));
+    }
+
+    @Test
+    void customRulesTest() {
+        RiskDecisionTable table = RiskDecisionTable.compile(new RiskRulesConfig("test", List.of(
+                new RiskRule(DiabetesRiskLevel.IN_DANGER, "F", 50, 59, 1, null),
+                new RiskRule(DiabetesRiskLevel.BORDERLINE, null, null, null, 3, null))));
+
+        assertEquals(DiabetesRiskLevel.NONE, table.riskLevel(49, "F", 1));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, table.riskLevel(50, "F", 1));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, table.riskLevel(59, "F", 4));
+        assertEquals(DiabetesRiskLevel.BORDERLINE, table.riskLevel(60, "F", 4));
+        assertEquals(DiabetesRiskLevel.BORDERLINE, table.riskLevel(55, "M", 3));
+        assertFalse(table.verifyAgainstLegacy(5).isEmpty());
+    }
+
+    @Test
+    void invalidRuleTest() {
+        assertThrows(IllegalArgumentException.class, () -> RiskDecisionTable.compile(new RiskRulesConfig("x", List.of(
+                new RiskRule(DiabetesRiskLevel.NONE, "X", null, null, null, null)))));
+        assertThrows(IllegalArgumentException.class, () -> RiskDecisionTable.compile(new RiskRulesConfig("x", List.of(
+                new RiskRule(null, null, null, null, null, null)))));
+        assertThrows(IllegalArgumentException.class, () -> RiskDecisionTable.compile(new RiskRulesConfig("x", List.of(
+                new RiskRule(DiabetesRiskLevel.NONE, null, 40, 30, null, null)))));
+    }
+}
@@ -0,0 +1,123 @@
+package com.medilabo.diabetes_service.engine;
+
+import com.medilabo.diabetes_service.config.DiabetesConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriggerMatcherTest {
+
+    private final TriggerMatcher matcher = TriggerMatcher.compile(DiabetesConstants.TRIGGER_TERMS);
+
+    @Test
+    void overlappingTermsTest() {
+        TriggerMatcher.Scanner scanner = matcher.newScanner().feed("Vertiges et réactions");
+
+        assertEquals(Set.of("vertiges", "vertige", "réaction", "réactions"), scanner.foundTerms());
+        assertEquals(4, scanner.foundCount());
+    }
+
+    @Test
+    void caseInsensitiveTest() {
+        TriggerMatcher.Scanner scanner = matcher.newScanner().feed("HÉMOGLOBINE A1C et Cholestérol");
+
+        assertEquals(Set.of("hémoglobine a1c", "cholestérol"), scanner.foundTerms());
+    }
+
+    @Test
+    void termAcrossFragmentsTest() {
+        TriggerMatcher.Scanner scanner = matcher.newScanner().feed("hémoglobine").feed(' ').feed("a1c");
+
+        assertEquals(Set.of("hémoglobine a1c"), scanner.foundTerms());
+    }
+
+    @Test
+    void stopsWhenCompleteTest() {
+        TriggerMatcher.Scanner scanner = matcher.newScanner().feed(String.join(" ", DiabetesConstants.TRIGGER_TERMS));
+
+        assertTrue(scanner.isComplete());
+        assertEquals(DiabetesConstants.TRIGGER_TERMS.size(), scanner.foundCount());
+    }
+
+    @Test
+    void sameResultAsContainsTest() {
+        List<String> words = List.of("poids", "POIDS", "fumeu", "se", "fumer", "vertig", "e", "s", "réaction", "Réactions",
+                "micro", "albumine", "taille", "anormale", "rechute", "anticorps", "cholestérol", "hémoglobine", "a1c",
+                "İ", "ı", "Σ", " ", "-", "le patient", "é", "é");
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                text.append(words.get(random.nextInt(words.size())));
+                if (random.nextBoolean()) {
+                    text.append(' ');
+                }
+            }
+            String lower = text.toString().toLowerCase();
+            Set<String> expected = new HashSet<>();
+            for (String trigger : DiabetesConstants.TRIGGER_TERMS) {
+                if (lower.contains(trigger)) {
+                    expected.add(trigger);
+                }
+            }
+
+            assertEquals(expected, matcher.newScanner().feed(text).foundTerms(), text::toString);
+        }
+    }
+
+    @Test
+    void incrementalStateTest() {
+        List<String> notes = new ArrayList<>(List.of("Le patient a de l'hémoglobine", "A1C et réact", "ions, vertige"));
+        notes.add(1, null);
+
+        TriggerState incremental = TriggerState.EMPTY;
+        for (String note : notes) {
+            incremental = incremental.append(matcher, note);
+        }
+        TriggerState full = TriggerState.scan(matcher, notes, note -> note);
+
+        assertEquals(full, incremental);
+        assertEquals(3, full.noteCount());
+        // "réact" et "ions" sont séparés par un espace : le terme n'est pas reconnu
+        assertEquals(Set.of("hémoglobine a1c", "vertige"), TriggerMask.toTerms(full.mask(), matcher));
+    }
+
+    @Test
+    void incompatibleStateTest() {
+        assertThrows(IllegalArgumentException.class, () -> matcher.newScanner(new TriggerState(-1, 0L, 1)));
+    }
+
+    @Test
+    void maskTest() {
+        long first = matcher.newScanner().feed("poids et taille").mask();
+        long second = matcher.newScanner().feed("poids, fumeur").mask();
+        long merged = TriggerMask.merge(first, second);
+
+        assertEquals(3, TriggerMask.count(merged));
+        assertTrue(TriggerMask.contains(merged, DiabetesConstants.TRIGGER_TERMS.indexOf("fumeur")));
+        assertEquals(Set.of("poids", "taille", "fumeur"), TriggerMask.toTerms(merged, matcher));
+        assertEquals(merged, TriggerMask.fromTerms(Set.of("poids", "taille", "fumeur", "inconnu"), matcher));
+        assertEquals(matcher.allTermsMask(), TriggerMask.all(DiabetesConstants.TRIGGER_TERMS.size()));
+    }
+
+    @Test
+    void tooManyTermsTest() {
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i <= TriggerMask.MAX_TERMS; i++) {
+            terms.add("terme" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> TriggerMatcher.compile(terms));
+    }
+
+    @Test
+    void emptyTermTest() {
+        assertThrows(IllegalArgumentException.class, () -> TriggerMatcher.compile(List.of("poids", "")));
+    }
+}
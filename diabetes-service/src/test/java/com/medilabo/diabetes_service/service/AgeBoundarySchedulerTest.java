@@ -0,0 +1,44 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeBoundarySchedulerTest {
+
+    private final List<Object> published = new ArrayList<>();
+
+    private final AgeBoundaryScheduler scheduler = new AgeBoundaryScheduler(published::add);
+
+    @Test
+    void indexReplacesPreviousDateTest() {
+        scheduler.index(1, LocalDate.now());
+        scheduler.index(1, LocalDate.now().plusYears(2));
+
+        assertEquals(0, scheduler.publishDue());
+        assertEquals(LocalDate.now().plusYears(2), scheduler.nextLevelChange(1));
+
+        scheduler.index(1, null);
+        assertNull(scheduler.nextLevelChange(1));
+    }
+
+    @Test
+    void publishDueTest() {
+        scheduler.index(1, LocalDate.now().minusDays(1));
+        scheduler.index(2, LocalDate.now());
+        scheduler.index(3, LocalDate.now().plusDays(1));
+        scheduler.index(4, LocalDate.now());
+        scheduler.remove(4);
+
+        assertEquals(2, scheduler.publishDue());
+        assertEquals(List.of(new AgeBoundaryReachedEvent(1), new AgeBoundaryReachedEvent(2)), published);
+        assertNull(scheduler.nextLevelChange(1));
+        assertEquals(LocalDate.now().plusDays(1), scheduler.nextLevelChange(3));
+        assertEquals(0, scheduler.publishDue());
+    }
+}
@@ -0,0 +1,238 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import com.medilabo.diabetes_service.model.RiskInputs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiabetesRiskCacheTest {
+
+    private final DiabetesRiskCache riskCache = new DiabetesRiskCache(100, Duration.ofMinutes(1));
+
+    private RiskAssessment assessment(DiabetesRiskLevel level, LocalDate nextLevelChange) {
+        return new RiskAssessment(level, true, "v1", new RiskInputs(29, "M", 0L, "1", nextLevelChange));
+    }
+
+    @Test
+    void timeToLiveTest() {
+        Duration ttl = Duration.ofDays(7);
+
+        assertEquals(ttl, DiabetesRiskCache.timeToLive(assessment(DiabetesRiskLevel.NONE, null), ttl));
+        assertEquals(ttl, DiabetesRiskCache.timeToLive(assessment(DiabetesRiskLevel.NONE, LocalDate.now().plusYears(1)), ttl));
+        Duration untilTomorrow = DiabetesRiskCache.timeToLive(assessment(DiabetesRiskLevel.NONE, LocalDate.now().plusDays(1)), ttl);
+        assertTrue(untilTomorrow.compareTo(Duration.ZERO) > 0 && untilTomorrow.compareTo(Duration.ofDays(1)) <= 0);
+        assertEquals(Duration.ZERO, DiabetesRiskCache.timeToLive(assessment(DiabetesRiskLevel.NONE, LocalDate.now()), ttl));
+    }
+
+    @Test
+    void levelChangeReachedNotServedTest() {
+        riskCache.put(1, assessment(DiabetesRiskLevel.IN_DANGER, LocalDate.now()));
+        riskCache.put(2, assessment(DiabetesRiskLevel.IN_DANGER, LocalDate.now().plusYears(1)));
+
+        assertNull(riskCache.getIfPresent(1, "v1"));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, riskCache.getIfPresent(2, "v1").riskLevel());
+    }
+
+    @Test
+    void hitAndMissTest() {
+        AtomicInteger loads = new AtomicInteger();
+
+        riskCache.get(1, "v1", id -> {
+            loads.incrementAndGet();
+            return new RiskAssessment(DiabetesRiskLevel.BORDERLINE, true, "v1");
+        });
+        RiskAssessment result = riskCache.get(1, "v1", id -> {
+            loads.incrementAndGet();
+            return new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1");
+        });
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, result.riskLevel());
+        assertEquals(1, loads.get());
+        assertEquals(1, riskCache.stats().hitCount());
+        assertEquals(1, riskCache.stats().missCount());
+    }
+
+    @Test
+    void incompleteNotCachedTest() {
+        riskCache.get(2, "v1", id -> new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"));
+        riskCache.put(3, new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"));
+
+        assertNull(riskCache.getIfPresent(2, "v1"));
+        assertNull(riskCache.getIfPresent(3, "v1"));
+    }
+
+    @Test
+    void loaderExceptionNotCachedTest() {
+        assertThrows(IllegalStateException.class, () -> riskCache.get(4, "v1", id -> {
+            throw new IllegalStateException("erreur");
+        }));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER,
+                     riskCache.get(4, "v1", id -> new RiskAssessment(DiabetesRiskLevel.IN_DANGER, true, "v1")).riskLevel());
+    }
+
+    @Test
+    void concurrentMissesCollapseTest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<?>[] callers = new CompletableFuture<?>[4];
+            callers[0] = CompletableFuture.supplyAsync(() -> riskCache.get(5, "v1", id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new RiskAssessment(DiabetesRiskLevel.EARLY_ONSET, true, "v1");
+            }), executor);
+            // Les autres appelants arrivent pendant le chargement en cours
+            assertTrue(loading.await(1, TimeUnit.SECONDS));
+            CountDownLatch arrived = new CountDownLatch(callers.length - 1);
+            for (int i = 1; i < callers.length; i++) {
+                callers[i] = CompletableFuture.supplyAsync(() -> {
+                    arrived.countDown();
+                    return riskCache.get(5, "v1", id -> {
+                        loads.incrementAndGet();
+                        return new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1");
+                    });
+                }, executor);
+            }
+            assertTrue(arrived.await(1, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertFalse(callers[0].isDone());
+
+            release.countDown();
+            CompletableFuture.allOf(callers).get(2, TimeUnit.SECONDS);
+            for (CompletableFuture<?> caller : callers) {
+                assertEquals(DiabetesRiskLevel.EARLY_ONSET, ((RiskAssessment) caller.get()).riskLevel());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void putAfterInvalidationSkippedTest() {
+        long stamp = riskCache.stamp();
+        // Invalidations reçues entre la récupération des données et l'enregistrement de l'évaluation
+        riskCache.onNoteCreated(new NoteCreatedEvent(8, "b", "Fumeur"));
+        riskCache.onPatientChanged(new PatientChangedEvent(8));
+
+        assertFalse(riskCache.put(8, new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"), stamp));
+        assertTrue(riskCache.put(9, new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"), stamp));
+        assertNull(riskCache.getIfPresent(8, "v1"));
+        assertEquals(DiabetesRiskLevel.NONE, riskCache.getIfPresent(9, "v1").riskLevel());
+
+        assertTrue(riskCache.put(8, new RiskAssessment(DiabetesRiskLevel.BORDERLINE, true, "v1"), riskCache.stamp()));
+        assertEquals(DiabetesRiskLevel.BORDERLINE, riskCache.getIfPresent(8, "v1").riskLevel());
+    }
+
+    @Test
+    void putAfterInvalidateAllSkippedTest() {
+        long stamp = riskCache.stamp();
+        riskCache.invalidateAll();
+
+        assertFalse(riskCache.put(10, new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"), stamp));
+        assertNull(riskCache.getIfPresent(10, "v1"));
+    }
+
+    @Test
+    void invalidateOnEventTest() {
+        riskCache.put(6, new RiskAssessment(DiabetesRiskLevel.BORDERLINE, true, "v1"));
+
+        riskCache.onPatientChanged(new PatientChangedEvent(6));
+
+        assertNull(riskCache.getIfPresent(6, "v1"));
+    }
+
+    @Test
+    void otherDictionaryVersionRecomputedTest() {
+        riskCache.put(7, new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"));
+
+        assertNull(riskCache.getIfPresent(7, "v2"));
+        RiskAssessment result = riskCache.get(7, "v2", id -> new RiskAssessment(DiabetesRiskLevel.BORDERLINE, true, "v2"));
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, result.riskLevel());
+        assertEquals("v2", riskCache.getIfPresent(7, "v2").dictionaryVersion());
+        assertNull(riskCache.getIfPresent(7, "v1"));
+    }
+
+    @Test
+    void getAsyncSharesPendingLoadTest() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<RiskAssessment> loading = new CompletableFuture<>();
+
+        CompletableFuture<RiskAssessment> first = riskCache.getAsync(9, "v1", id -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        CompletableFuture<RiskAssessment> second = riskCache.getAsync(9, "v1", id -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"));
+        });
+        assertFalse(first.isDone());
+        loading.complete(new RiskAssessment(DiabetesRiskLevel.IN_DANGER, true, "v1"));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, first.join().riskLevel());
+        assertEquals(DiabetesRiskLevel.IN_DANGER, second.join().riskLevel());
+        assertEquals(1, loads.get());
+        assertEquals(DiabetesRiskLevel.IN_DANGER, riskCache.getIfPresent(9, "v1").riskLevel());
+    }
+
+    @Test
+    void getAsyncIncompleteOrFailedNotCachedTest() {
+        riskCache.getAsync(10, "v1", id -> CompletableFuture.completedFuture(
+                new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"))).join();
+        CompletableFuture<RiskAssessment> failed = riskCache.getAsync(11, "v1", id -> CompletableFuture.failedFuture(
+                new IllegalStateException("erreur")));
+
+        assertNull(riskCache.getIfPresent(10, "v1"));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(DiabetesRiskLevel.BORDERLINE, riskCache.getAsync(11, "v1", id -> CompletableFuture.completedFuture(
+                new RiskAssessment(DiabetesRiskLevel.BORDERLINE, true, "v1"))).join().riskLevel());
+    }
+
+    @Test
+    void getAsyncOtherDictionaryVersionRecomputedTest() {
+        riskCache.put(12, new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"));
+
+        RiskAssessment result = riskCache.getAsync(12, "v2", id -> CompletableFuture.completedFuture(
+                new RiskAssessment(DiabetesRiskLevel.EARLY_ONSET, true, "v2"))).join();
+
+        assertEquals(DiabetesRiskLevel.EARLY_ONSET, result.riskLevel());
+        assertEquals("v2", riskCache.getIfPresent(12, "v2").dictionaryVersion());
+    }
+
+    @Test
+    void bindToTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        riskCache.bindTo(registry);
+
+        riskCache.get(8, "v1", id -> new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"));
+        riskCache.get(8, "v1", id -> new RiskAssessment(DiabetesRiskLevel.NONE, true, "v1"));
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", "diabetes.risk", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "diabetes.risk", "result", "miss").functionCounter().count());
+    }
+}
@@ -1,28 +1,64 @@
 package com.medilabo.diabetes_service.service;
 
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
 import com.medilabo.diabetes_service.dto.NoteDTO;
 import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.TriggerSummaryDTO;
+import com.medilabo.diabetes_service.engine.TriggerDictionary;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.engine.TriggerState;
 import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import com.medilabo.diabetes_service.model.ScannedNotes;
 import com.medilabo.diabetes_service.proxies.NoteProxy;
 import com.medilabo.diabetes_service.proxies.PatientProxy;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.support.ResourcePropertySource;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,10 +73,47 @@ class DiabetesServiceTest {
     @Mock
     private NoteProxy noteProxy;
 
-    @InjectMocks
+    private DiabetesRiskCache riskCache;
+
+    private TriggerStateStore triggerStore;
+
     private DiabetesService diabetesService;
 
+    private PatientDemographics demographics;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
 
+    private Response notesResponse(List<NoteDTO> notes) {
+        Request request = Request.create(Request.HttpMethod.GET, "/notes", Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+        try {
+            return Response.builder().status(200).request(request).body(objectMapper.writeValueAsString(notes), StandardCharsets.UTF_8).build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        riskCache = new DiabetesRiskCache(100, Duration.ofMinutes(1));
+        triggerStore = new TriggerStateStore(new TriggerDictionaryService(objectMapper, new DefaultResourceLoader(), event -> {}, ""),
+                                             1000, Duration.ofHours(1));
+        RiskRulesService riskRules = new RiskRulesService(objectMapper, new DefaultResourceLoader(), event -> {},
+                                                          "classpath:risk-rules.json", true);
+        meterRegistry = new SimpleMeterRegistry();
+        demographics = new PatientDemographics(patientProxy, Runnable::run, 1000, false);
+        diabetesService = new DiabetesService(patientProxy, noteProxy, Executors.newFixedThreadPool(2), riskCache, triggerStore,
+                                              new NoteStreamScanner(objectMapper), riskRules, new AssessmentMetrics(meterRegistry),
+                                              new RemoteCallGuard(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()),
+                                              new LastKnownPatients(100), demographics);
+        ReflectionTestUtils.setField(diabetesService, "patientTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(diabetesService, "notesTimeoutMs", 200L);
+        ReflectionTestUtils.setField(diabetesService, "batchMaxSize", 10);
+        ReflectionTestUtils.setField(diabetesService, "batchChunkSize", 2);
+        ReflectionTestUtils.setField(diabetesService, "batchParallelism", 2);
+        ReflectionTestUtils.setField(diabetesService, "batchTimeoutMs", 1000L);
+    }
 
     @Test
     void assessDiabetesRisk_NONETest() {
@@ -50,13 +123,13 @@ class DiabetesServiceTest {
         patient.setBirthdate(LocalDate.now().minusYears(40));
         when(patientProxy.getPatientById(1)).thenReturn(patient);
 
-        when(noteProxy.getNotesByPatientId(1)).thenReturn(Collections.emptyList());
+        when(noteProxy.streamNotesByPatientId(1)).thenReturn(notesResponse(Collections.emptyList()));
 
         DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(1);
 
         assertEquals(DiabetesRiskLevel.NONE, result);
         verify(patientProxy).getPatientById(1);
-        verify(noteProxy).getNotesByPatientId(1);
+        verify(noteProxy).streamNotesByPatientId(1);
     }
 
     @Test
@@ -75,13 +148,51 @@ class DiabetesServiceTest {
         List<NoteDTO> notes = Arrays.asList(note1, note2, note3);
 
         when(patientProxy.getPatientById(1)).thenReturn(patient);
-        when(noteProxy.getNotesByPatientId(1)).thenReturn(notes);
+        when(noteProxy.streamNotesByPatientId(1)).thenReturn(notesResponse(notes));
 
         DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(1);
 
         assertEquals(DiabetesRiskLevel.IN_DANGER, result);
         verify(patientProxy).getPatientById(1);
-        verify(noteProxy).getNotesByPatientId(1);
+        verify(noteProxy).streamNotesByPatientId(1);
+        assertEquals(LocalDate.now().plusYears(5),
+                     riskCache.getIfPresent(1, triggerStore.dictionary().version()).inputs().nextLevelChange());
+        assertEquals(1, meterRegistry.get("diabetes.assessment.result").tag("level", "IN_DANGER").counter().count());
+        for (String stage : List.of("total", "patient_fetch", "notes_fetch", "trigger_scan", "rule_evaluation")) {
+            assertEquals(1, meterRegistry.get("diabetes.assessment.stage").tag("stage", stage).timer().count());
+        }
+    }
+
+    @Test
+    void levelChangeDateTest() {
+        assertEquals(LocalDate.of(2030, 5, 12), DiabetesService.levelChangeDate(LocalDate.of(2000, 5, 12), 30));
+        assertEquals(LocalDate.of(2031, 3, 1), DiabetesService.levelChangeDate(LocalDate.of(2000, 2, 29), 31));
+        assertEquals(LocalDate.of(2032, 2, 29), DiabetesService.levelChangeDate(LocalDate.of(2000, 2, 29), 32));
+        assertNull(DiabetesService.levelChangeDate(LocalDate.of(2000, 5, 12), -1));
+        assertNull(DiabetesService.levelChangeDate(null, 30));
+    }
+
+    @Test
+    void assessFromSource_RereadsNotesTest() {
+        PatientDTO patient = new PatientDTO();
+        patient.setId(1);
+        patient.setGender("M");
+        patient.setBirthdate(LocalDate.now().minusYears(25));
+        NoteDTO note = new NoteDTO();
+        note.setId("n1");
+        note.setNote("Hémoglobine A1C, microalbumine, vertige");
+
+        when(patientProxy.getPatientById(1)).thenReturn(patient);
+        when(noteProxy.streamNotesByPatientId(1)).thenAnswer(invocation -> notesResponse(List.of(note)));
+
+        diabetesService.assessDiabetesRisk(1);
+        RiskAssessment fresh = diabetesService.assessFromSource(1);
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, fresh.riskLevel());
+        assertEquals(3, fresh.inputs().triggerCount());
+        assertEquals(25, fresh.inputs().age());
+        assertEquals("M", fresh.inputs().gender());
+        verify(noteProxy, times(2)).streamNotesByPatientId(1);
     }
 
     @Test
@@ -96,13 +207,13 @@ class DiabetesServiceTest {
         List<NoteDTO> notes = Collections.singletonList(note);
 
         when(patientProxy.getPatientById(2)).thenReturn(patient);
-        when(noteProxy.getNotesByPatientId(2)).thenReturn(notes);
+        when(noteProxy.streamNotesByPatientId(2)).thenReturn(notesResponse(notes));
 
         DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(2);
 
         assertEquals(DiabetesRiskLevel.EARLY_ONSET, result);
         verify(patientProxy).getPatientById(2);
-        verify(noteProxy).getNotesByPatientId(2);
+        verify(noteProxy).streamNotesByPatientId(2);
     }
 
     @Test
@@ -117,12 +228,323 @@ class DiabetesServiceTest {
         List<NoteDTO> notes = Collections.singletonList(note);
 
         when(patientProxy.getPatientById(3)).thenReturn(patient);
-        when(noteProxy.getNotesByPatientId(3)).thenReturn(notes);
+        when(noteProxy.streamNotesByPatientId(3)).thenReturn(notesResponse(notes));
 
         DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(3);
 
         assertEquals(DiabetesRiskLevel.BORDERLINE, result);
         verify(patientProxy).getPatientById(3);
-        verify(noteProxy).getNotesByPatientId(3);
+        verify(noteProxy).streamNotesByPatientId(3);
+    }
+
+    @Test
+    void assessDiabetesRisk_NotesTimeoutTest() throws InterruptedException {
+        PatientDTO patient = new PatientDTO();
+        patient.setId(4);
+        patient.setGender("M");
+        patient.setBirthdate(LocalDate.now().minusYears(25));
+
+        NoteDTO note = new NoteDTO();
+        note.setNote("Patient montre des signes d'hémoglobine a1c, microalbumine, taille, poids, fumeur");
+
+        when(patientProxy.getPatientById(4)).thenReturn(patient);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(noteProxy.streamNotesByPatientId(4)).thenAnswer(invocation -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return notesResponse(Collections.singletonList(note));
+        });
+
+        try {
+            DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(4);
+
+            assertEquals(DiabetesRiskLevel.NONE, result);
+            assertNull(riskCache.getIfPresent(4, TriggerDictionaryService.BUILTIN_VERSION));
+            assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "notes_error").counter().count());
+            // L'appel bloqué est annulé au délai dépassé et libère son thread
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void assess_ConcurrentWithinBulkheadTest() throws Exception {
+        // Cloisons et exécuteur réglés comme dans la configuration de l'application
+        MutablePropertySources sources = new MutablePropertySources();
+        sources.addFirst(new ResourcePropertySource(new ClassPathResource("application.properties")));
+        PropertySourcesPropertyResolver properties = new PropertySourcesPropertyResolver(sources);
+        int poolSize = properties.getRequiredProperty("diabetes.fetch.pool-size", Integer.class);
+        BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+        for (String instance : List.of("patient-service", "notes-service")) {
+            String prefix = "resilience4j.bulkhead.instances." + instance;
+            bulkheads.bulkhead(instance, BulkheadConfig.custom()
+                    .maxConcurrentCalls(properties.getRequiredProperty(prefix + ".max-concurrent-calls", Integer.class))
+                    .maxWaitDuration(Duration.ofMillis(properties.getRequiredProperty(prefix + ".max-wait-duration", Long.class)))
+                    .build());
+        }
+        ExecutorService fetchPool = Executors.newFixedThreadPool(poolSize);
+        ExecutorService callers = Executors.newFixedThreadPool(12);
+        DiabetesService service = new DiabetesService(patientProxy, noteProxy, fetchPool, riskCache, triggerStore,
+                                                      new NoteStreamScanner(objectMapper), new RiskRulesService(objectMapper,
+                                                      new DefaultResourceLoader(), event -> {}, "classpath:risk-rules.json", true),
+                                                      new AssessmentMetrics(meterRegistry),
+                                                      new RemoteCallGuard(CircuitBreakerRegistry.ofDefaults(), bulkheads),
+                                                      new LastKnownPatients(100), demographics);
+        ReflectionTestUtils.setField(service, "patientTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "notesTimeoutMs", 5000L);
+
+        // Chaque appel au service patient attend que 12 appels soient en cours en même temps
+        CountDownLatch inFlight = new CountDownLatch(12);
+        when(patientProxy.getPatientById(anyInt())).thenAnswer(invocation -> {
+            inFlight.countDown();
+            inFlight.await(5, TimeUnit.SECONDS);
+            PatientDTO patient = new PatientDTO();
+            patient.setId(invocation.getArgument(0));
+            patient.setGender("F");
+            patient.setBirthdate(LocalDate.now().minusYears(50));
+            return patient;
+        });
+        when(noteProxy.streamNotesByPatientId(anyInt())).thenAnswer(invocation -> notesResponse(Collections.emptyList()));
+
+        try {
+            List<CompletableFuture<RiskAssessment>> assessments = IntStream.rangeClosed(1, 12)
+                    .mapToObj(id -> CompletableFuture.supplyAsync(() -> service.assess(id), callers))
+                    .toList();
+
+            for (CompletableFuture<RiskAssessment> assessment : assessments) {
+                assertTrue(assessment.get(10, TimeUnit.SECONDS).complete());
+            }
+        } finally {
+            callers.shutdownNow();
+            fetchPool.shutdownNow();
+        }
+        assertEquals(0, inFlight.getCount());
+        assertEquals(0, meterRegistry.find("diabetes.assessment.fallback").counters().stream().mapToDouble(Counter::count).sum());
+    }
+
+    @Test
+    void assess_ExecutorSaturatedTest() {
+        Executor saturated = command -> {
+            throw new RejectedExecutionException("Exécuteur saturé");
+        };
+        ReflectionTestUtils.setField(diabetesService, "fetchExecutor", saturated);
+
+        RiskAssessment assessment = diabetesService.assess(5);
+
+        // Aucun appel exécuté sur le thread appelant : repli immédiat
+        assertFalse(assessment.complete());
+        verifyNoInteractions(patientProxy, noteProxy);
+    }
+
+    @Test
+    void assessDiabetesRisk_CachedTest() {
+        PatientDTO patient = new PatientDTO(6, LocalDate.now().minusYears(25), "M");
+        NoteDTO note = new NoteDTO("a", 6, "Hémoglobine A1C, microalbumine, fumeur");
+        when(patientProxy.getPatientById(6)).thenReturn(patient);
+        when(noteProxy.streamNotesByPatientId(6)).thenReturn(notesResponse(Collections.singletonList(note)));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(6));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(6));
+        verify(patientProxy, times(1)).getPatientById(6);
+        verify(noteProxy, times(1)).streamNotesByPatientId(6);
+
+        NotesChangedEvent deleted = new NotesChangedEvent(6);
+        triggerStore.onNotesChanged(deleted);
+        riskCache.onNotesChanged(deleted);
+        diabetesService.assessDiabetesRisk(6);
+        verify(noteProxy, times(2)).streamNotesByPatientId(6);
+    }
+
+    @Test
+    void assessDiabetesRisk_PatientNotFoundTest() {
+        when(patientProxy.getPatientById(5)).thenThrow(new RuntimeException("404"));
+
+        DiabetesRiskLevel result = diabetesService.assessDiabetesRisk(5);
+
+        assertEquals(DiabetesRiskLevel.NONE, result);
+        assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "patient_not_found").counter().count());
+    }
+
+    @Test
+    void assessDiabetesRisk_PatientServiceErrorUsesLastKnownTest() {
+        PatientDTO patient = new PatientDTO(8, LocalDate.now().minusYears(25), "M");
+        NoteDTO note = new NoteDTO("a", 8, "Hémoglobine A1C, microalbumine, fumeur");
+        when(patientProxy.getPatientById(8)).thenReturn(patient).thenThrow(new RuntimeException("503"));
+        when(noteProxy.streamNotesByPatientId(8)).thenReturn(notesResponse(Collections.singletonList(note)));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(8));
+        riskCache.invalidateAll();
+        demographics.invalidate(8);
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(8));
+        assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "patient_last_known").counter().count());
+    }
+
+    @Test
+    void assessDiabetesRisk_ReplicatedPatientTest() {
+        demographics.put(new PatientDTO(9, LocalDate.now().minusYears(25), "M"), demographics.stamp());
+        NoteDTO note = new NoteDTO("a", 9, "Hémoglobine A1C, microalbumine, fumeur");
+        when(noteProxy.streamNotesByPatientId(9)).thenReturn(notesResponse(Collections.singletonList(note)));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(9));
+        verify(patientProxy, never()).getPatientById(anyInt());
+
+        demographics.onPatientChanged(new PatientChangedEvent(9));
+        riskCache.invalidateAll();
+        when(patientProxy.getPatientById(9)).thenReturn(new PatientDTO(9, LocalDate.now().minusYears(45), "M"));
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, diabetesService.assessDiabetesRisk(9));
+        assertEquals(45, riskCache.getIfPresent(9, triggerStore.dictionary().version()).inputs().age());
+    }
+
+        @Test
+    void assessDiabetesRisk_TriggerSummaryTest() {
+        ReflectionTestUtils.setField(diabetesService, "triggerSummaryEnabled", true);
+        PatientDTO patient = new PatientDTO(9, LocalDate.now().minusYears(25), "M");
+        when(patientProxy.getPatientById(9)).thenReturn(patient);
+        when(noteProxy.getTriggerSummary(9)).thenReturn(new TriggerSummaryDTO(
+                9, triggerStore.dictionary().version(), List.of("hémoglobine a1c", "microalbumine", "fumeur"), 2, "b", "ne, fumeur"));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(9));
+        verify(noteProxy, never()).streamNotesByPatientId(anyInt());
+
+        // Une note ajoutée ensuite est lue à la suite des termes enregistrés
+        triggerStore.onNoteCreated(new NoteCreatedEvent(9, "c", "Rechute, réaction, vertige"));
+        riskCache.invalidate(9);
+        assertEquals(DiabetesRiskLevel.EARLY_ONSET, diabetesService.assessDiabetesRisk(9));
+    }
+
+    @Test
+    void fromTriggerSummary_CrossNoteTest() {
+        TriggerDictionary dictionary = triggerStore.dictionary();
+        List<String> notes = List.of("Patient fumeur, hémoglobine", "A1C élevée");
+        // Résumé tel que renvoyé par le service de notes après la première note : fin du texte sur 14 caractères
+        TriggerSummaryDTO summary = new TriggerSummaryDTO(11, dictionary.version(), List.of("fumeur"), 1, "a", "r, hémoglobine");
+
+        ScannedNotes scanned = DiabetesService.fromTriggerSummary(summary, dictionary);
+
+        assertEquals(TriggerState.scan(dictionary.matcher(), notes.subList(0, 1), note -> note), scanned.state());
+        // "hémoglobine" et "a1c" sont séparés par un espace, comme dans une relecture des deux notes
+        TriggerState appended = scanned.state().append(dictionary.matcher(), notes.get(1));
+        assertEquals(TriggerState.scan(dictionary.matcher(), notes, note -> note), appended);
+        assertEquals(Set.of("fumeur", "hémoglobine a1c"), TriggerMask.toTerms(appended.mask(), dictionary.matcher()));
+    }
+
+    @Test
+    void assessDiabetesRisk_TriggerSummaryOtherVersionTest() {
+        ReflectionTestUtils.setField(diabetesService, "triggerSummaryEnabled", true);
+        PatientDTO patient = new PatientDTO(10, LocalDate.now().minusYears(25), "M");
+        when(patientProxy.getPatientById(10)).thenReturn(patient);
+        when(noteProxy.getTriggerSummary(10)).thenReturn(new TriggerSummaryDTO(10, "v0", List.of("poids"), 1, "a", "poids"));
+        when(noteProxy.streamNotesByPatientId(10)).thenReturn(notesResponse(Collections.singletonList(
+                new NoteDTO("a", 10, "Hémoglobine A1C, microalbumine, fumeur"))));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(10));
+        verify(noteProxy).streamNotesByPatientId(10);
+    }
+
+    @Test
+    void assessDiabetesRiskBatchTest() {
+        PatientDTO patient1 = new PatientDTO(1, LocalDate.now().minusYears(55), "M");
+        PatientDTO patient2 = new PatientDTO(2, LocalDate.now().minusYears(25), "M");
+        PatientDTO patient3 = new PatientDTO(3, LocalDate.now().minusYears(40), "F");
+        NoteDTO note1 = new NoteDTO("a", 1, "Cholestérol et poids");
+        NoteDTO note2 = new NoteDTO("b", 2, "Hémoglobine A1C, microalbumine, fumeur");
+
+        when(patientProxy.getPatientsByIds(List.of(1, 2))).thenReturn(Arrays.asList(patient1, patient2));
+        when(noteProxy.getNotesByPatientIds(List.of(1, 2))).thenReturn(Arrays.asList(note1, note2));
+        when(patientProxy.getPatientsByIds(List.of(3, 4))).thenReturn(Collections.singletonList(patient3));
+        when(noteProxy.getNotesByPatientIds(List.of(3, 4))).thenReturn(Collections.emptyList());
+        when(patientProxy.getPatientsByIds(List.of(5))).thenThrow(new RuntimeException("503"));
+        when(noteProxy.getNotesByPatientIds(List.of(5))).thenReturn(Collections.emptyList());
+
+        BatchAssessmentResponse result = diabetesService.assessDiabetesRiskBatch(Arrays.asList(1, 2, 2, 3, 4, 5));
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, result.results().get(1));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result.results().get(2));
+        assertEquals(DiabetesRiskLevel.NONE, result.results().get(3));
+        assertEquals(3, result.results().size());
+        assertEquals(Set.of(4, 5), result.errors().keySet());
+        verify(patientProxy, never()).getPatientById(anyInt());
+        verify(noteProxy, never()).streamNotesByPatientId(anyInt());
+    }
+
+    @Test
+    void assessDiabetesRiskBatch_ReplicatedPatientsTest() {
+        demographics.put(new PatientDTO(1, LocalDate.now().minusYears(55), "M"), demographics.stamp());
+        NoteDTO note = new NoteDTO("b", 2, "Hémoglobine A1C, microalbumine, fumeur");
+        when(patientProxy.getPatientsByIds(List.of(2))).thenReturn(List.of(new PatientDTO(2, LocalDate.now().minusYears(25), "M")));
+        when(noteProxy.getNotesByPatientIds(List.of(1, 2))).thenReturn(List.of(note));
+
+        BatchAssessmentResponse result = diabetesService.assessDiabetesRiskBatch(List.of(1, 2));
+
+        assertEquals(DiabetesRiskLevel.NONE, result.results().get(1));
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result.results().get(2));
+        assertNotNull(demographics.find(2));
+    }
+
+        @Test
+    void assessDiabetesRisk_IncrementalTest() {
+        PatientDTO patient = new PatientDTO(7, LocalDate.now().minusYears(25), "M");
+        NoteDTO note1 = new NoteDTO("a", 7, "Le patient a pris du poids, hémoglobine");
+        when(patientProxy.getPatientById(7)).thenReturn(patient);
+        when(noteProxy.streamNotesByPatientId(7)).thenReturn(notesResponse(Collections.singletonList(note1)));
+
+        assertEquals(DiabetesRiskLevel.NONE, diabetesService.assessDiabetesRisk(7));
+
+        NoteCreatedEvent created = new NoteCreatedEvent(7, "b", "A1C élevée, fumeur");
+        triggerStore.onNoteCreated(created);
+        riskCache.onNoteCreated(created);
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, diabetesService.assessDiabetesRisk(7));
+        verify(patientProxy, times(1)).getPatientById(7);
+        verify(noteProxy, times(1)).streamNotesByPatientId(7);
+    }
+
+    @Test
+    void assessDiabetesRiskBatch_CachedTest() {
+        riskCache.put(1, new RiskAssessment(DiabetesRiskLevel.EARLY_ONSET, true, TriggerDictionaryService.BUILTIN_VERSION));
+        PatientDTO patient2 = new PatientDTO(2, LocalDate.now().minusYears(40), "F");
+        when(patientProxy.getPatientsByIds(List.of(2))).thenReturn(Collections.singletonList(patient2));
+        when(noteProxy.getNotesByPatientIds(List.of(2))).thenReturn(Collections.emptyList());
+
+        BatchAssessmentResponse result = diabetesService.assessDiabetesRiskBatch(List.of(1, 2));
+
+        assertEquals(DiabetesRiskLevel.EARLY_ONSET, result.results().get(1));
+        assertEquals(DiabetesRiskLevel.NONE, result.results().get(2));
+        assertEquals(DiabetesRiskLevel.NONE, riskCache.getIfPresent(2, TriggerDictionaryService.BUILTIN_VERSION).riskLevel());
+        verify(patientProxy, never()).getPatientsByIds(List.of(1, 2));
+    }
+
+    @Test
+    void assessDiabetesRiskBatch_InvalidatedDuringFetchTest() {
+        PatientDTO patient2 = new PatientDTO(2, LocalDate.now().minusYears(40), "F");
+        when(patientProxy.getPatientsByIds(List.of(2))).thenReturn(Collections.singletonList(patient2));
+        when(noteProxy.getNotesByPatientIds(List.of(2))).thenAnswer(invocation -> {
+            // Note ajoutée pendant la récupération : les notes lues sont déjà anciennes
+            NoteCreatedEvent created = new NoteCreatedEvent(2, "b", "Fumeuse");
+            triggerStore.onNoteCreated(created);
+            riskCache.onNoteCreated(created);
+            return Collections.emptyList();
+        });
+
+        BatchAssessmentResponse result = diabetesService.assessDiabetesRiskBatch(List.of(2));
+
+        assertEquals(DiabetesRiskLevel.NONE, result.results().get(2));
+        assertNull(riskCache.getIfPresent(2, TriggerDictionaryService.BUILTIN_VERSION));
+    }
+
+    @Test
+    void assessDiabetesRiskBatch_TooLargeTest() {
+        List<Integer> ids = IntStream.rangeClosed(1, 11).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> diabetesService.assessDiabetesRiskBatch(ids));
+        verifyNoInteractions(patientProxy, noteProxy);
     }
-}
\ No newline at end of file
+}
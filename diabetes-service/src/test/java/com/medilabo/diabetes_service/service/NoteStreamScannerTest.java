@@ -0,0 +1,88 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.config.DiabetesConstants;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.engine.TriggerMatcher;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.model.ScannedNotes;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteStreamScannerTest {
+
+    private final TriggerMatcher matcher = TriggerMatcher.compile(DiabetesConstants.TRIGGER_TERMS);
+
+    private final NoteStreamScanner noteStreamScanner = new NoteStreamScanner(Jackson2ObjectMapperBuilder.json().build());
+
+    private InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void scanTest() throws IOException {
+        ScannedNotes scanned = noteStreamScanner.scan(json(
+                "[{\"note\":\"Le patient a de l'HÉMOGLOBINE\",\"id\":\"b\",\"patId\":1,\"patient\":\"Test\"},"
+                        + "{\"id\":\"c\",\"patId\":1,\"note\":null,\"tags\":[\"x\",{\"note\":\"fumeur\"}]},"
+                        + "{\"id\":\"a\",\"patId\":1,\"note\":\"A1C \\u00e9lev\\u00e9e, poids\"}]"), matcher);
+
+        assertEquals(Set.of("hémoglobine a1c", "poids"), TriggerMask.toTerms(scanned.state().mask(), matcher));
+        assertEquals(2, scanned.state().noteCount());
+        assertEquals("c", scanned.lastNoteId());
+        assertEquals(TriggerState.scan(matcher, Arrays.asList("Le patient a de l'HÉMOGLOBINE", null, "A1C élevée, poids"), note -> note),
+                     scanned.state());
+    }
+
+    @Test
+    void scanCompleteCountsAllNotesTest() throws IOException {
+        String allTerms = String.join(" ", DiabetesConstants.TRIGGER_TERMS);
+
+        ScannedNotes scanned = noteStreamScanner.scan(json(
+                "[{\"id\":\"a\",\"note\":\"" + allTerms + "\"},{\"id\":\"b\",\"note\":\"poids\"},"
+                        + "{\"id\":\"c\",\"note\":\"vertiges\"}]"), matcher);
+
+        // Tous les termes sont trouvés dans la première note, les suivantes sont comptées sans être lues
+        assertEquals(3, scanned.state().noteCount());
+        assertEquals("c", scanned.lastNoteId());
+        assertEquals(TriggerState.scan(matcher, Arrays.asList(allTerms, "poids", "vertiges"), note -> note), scanned.state());
+    }
+
+    @Test
+    void scanEmptyTest() throws IOException {
+        ScannedNotes scanned = noteStreamScanner.scan(json("[]"), matcher);
+
+        assertEquals(TriggerState.EMPTY, scanned.state());
+        assertNull(scanned.lastNoteId());
+    }
+
+    @Test
+    void scanNotArrayTest() {
+        assertThrows(IOException.class, () -> noteStreamScanner.scan(json("{\"error\":\"x\"}"), matcher));
+    }
+
+    @Test
+    void scanTruncatedTest() {
+        assertThrows(IOException.class, () -> noteStreamScanner.scan(json("[{\"id\":\"a\",\"note\":\"fum"), matcher));
+    }
+
+    @Test
+    void sessionByteByByteTest() throws IOException {
+        String json = "[{\"id\":\"a\",\"note\":\"Hémoglobine A1C, réaction\"},{\"id\":\"b\",\"note\":\"Cholestérol\"}]";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        NoteStreamScanner.Session session = noteStreamScanner.newSession(matcher);
+        for (int i = 0; i < bytes.length; i++) {
+            session.feed(bytes, i, 1);
+        }
+
+        assertEquals(noteStreamScanner.scan(json(json), matcher), session.finish());
+    }
+}
@@ -0,0 +1,121 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.proxies.PatientProxy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientDemographicsTest {
+
+    @Mock
+    private PatientProxy patientProxy;
+
+    private PatientDemographics demographics;
+
+    @BeforeEach
+    void setUp() {
+        demographics = new PatientDemographics(patientProxy, Runnable::run, 5000, false);
+    }
+
+    @Test
+    void ageMatchesPeriodTest() {
+        LocalDate today = LocalDate.of(2024, 2, 28);
+        for (LocalDate birthdate = LocalDate.of(1950, 1, 1); birthdate.isBefore(LocalDate.of(2030, 1, 1));
+             birthdate = birthdate.plusDays(11)) {
+            assertEquals(Period.between(birthdate, today).getYears(),
+                         PatientDemographics.age(birthdate.toEpochDay(), today.toEpochDay()), birthdate.toString());
+        }
+        LocalDate leapBirthdate = LocalDate.of(2000, 2, 29);
+        assertEquals(0, PatientDemographics.age(leapBirthdate.toEpochDay(), LocalDate.of(2001, 2, 28).toEpochDay()));
+        assertEquals(1, PatientDemographics.age(leapBirthdate.toEpochDay(), LocalDate.of(2001, 3, 1).toEpochDay()));
+        assertEquals(18_000_101L, PatientDemographics.dateKey(LocalDate.of(1800, 1, 1).toEpochDay()));
+    }
+
+    @Test
+    void putAndFindTest() {
+        demographics.put(new PatientDTO(3, LocalDate.of(1990, 6, 15), "F"), demographics.stamp());
+        demographics.put(new PatientDTO(4, null, null), demographics.stamp());
+        demographics.put(new PatientDTO(4000, LocalDate.of(1970, 1, 1), "M"), demographics.stamp());
+
+        PatientDTO patient = demographics.find(3);
+        assertEquals(LocalDate.of(1990, 6, 15), patient.getBirthdate());
+        assertEquals("F", patient.getGender());
+        assertNull(demographics.find(4).getBirthdate());
+        assertEquals("M", demographics.find(4000).getGender());
+        assertNull(demographics.find(5));
+        assertNull(demographics.find(-1));
+        assertEquals(3, demographics.size());
+    }
+
+    @Test
+    void unsupportedPatientNotCopiedTest() {
+        demographics.put(new PatientDTO(1, LocalDate.of(1990, 6, 15), "X"), demographics.stamp());
+        demographics.put(new PatientDTO(6000, LocalDate.of(1990, 6, 15), "M"), demographics.stamp());
+
+        assertNull(demographics.find(1));
+        assertNull(demographics.find(6000));
+        assertEquals(0, demographics.size());
+    }
+
+    @Test
+    void changeDiscardsEarlierReadTest() {
+        demographics.put(new PatientDTO(1, LocalDate.of(1990, 6, 15), "F"), demographics.stamp());
+        long stamp = demographics.stamp();
+
+        demographics.onPatientChanged(new PatientChangedEvent(1));
+        demographics.put(new PatientDTO(1, LocalDate.of(1990, 6, 15), "F"), stamp);
+
+        assertNull(demographics.find(1));
+        assertEquals(0, demographics.size());
+    }
+
+    @Test
+    void loadTest() {
+        when(patientProxy.getAllPatients()).thenAnswer(invocation -> {
+            demographics.onPatientChanged(new PatientChangedEvent(2));
+            return List.of(new PatientDTO(1, LocalDate.of(1980, 1, 1), "M"), new PatientDTO(2, LocalDate.of(1985, 1, 1), "F"));
+        });
+
+        int loaded = demographics.load();
+
+        assertEquals(1, loaded);
+        assertNotNull(demographics.find(1));
+        assertNull(demographics.find(2));
+    }
+
+    @Test
+    void reconcileTest() {
+        demographics.put(new PatientDTO(1, LocalDate.of(1980, 1, 1), "M"), demographics.stamp());
+        demographics.put(new PatientDTO(2, LocalDate.of(1985, 1, 1), "F"), demographics.stamp());
+        // Changement de date de naissance du patient 1 et suppression du patient 2, sans notification
+        when(patientProxy.getAllPatients()).thenReturn(List.of(new PatientDTO(1, LocalDate.of(1990, 6, 15), "M")));
+
+        demographics.reconcile();
+
+        assertEquals(LocalDate.of(1990, 6, 15), demographics.find(1).getBirthdate());
+        assertNull(demographics.find(2));
+        assertEquals(1, demographics.size());
+    }
+
+    @Test
+    void reconcileErrorKeepsCopyTest() {
+        demographics.put(new PatientDTO(1, LocalDate.of(1980, 1, 1), "M"), demographics.stamp());
+        when(patientProxy.getAllPatients()).thenThrow(new RuntimeException("Service patient indisponible"));
+
+        demographics.reconcile();
+
+        assertNotNull(demographics.find(1));
+    }
+}
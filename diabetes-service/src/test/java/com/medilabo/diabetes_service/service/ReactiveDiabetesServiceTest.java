@@ -0,0 +1,259 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.TriggerSummaryDTO;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.proxies.NoteProxy;
+import com.medilabo.diabetes_service.proxies.PatientProxy;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveDiabetesServiceTest {
+
+    @Mock
+    private PatientProxy patientProxy;
+
+    @Mock
+    private NoteProxy noteProxy;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private DiabetesRiskCache riskCache;
+
+    private TriggerStateStore triggerStore;
+
+    private DiabetesService diabetesService;
+
+    private PatientDemographics demographics;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LastKnownPatients lastKnownPatients;
+
+    private ClientResponse patientResponse;
+
+    private ClientResponse notesResponse;
+
+    private ClientResponse summaryResponse;
+
+    private final AtomicInteger notesCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        riskCache = new DiabetesRiskCache(100, Duration.ofMinutes(1));
+        triggerStore = new TriggerStateStore(new TriggerDictionaryService(objectMapper, new DefaultResourceLoader(), event -> {}, ""),
+                                             1000, Duration.ofHours(1));
+        RiskRulesService riskRules = new RiskRulesService(objectMapper, new DefaultResourceLoader(), event -> {},
+                                                          "classpath:risk-rules.json", true);
+        meterRegistry = new SimpleMeterRegistry();
+        demographics = new PatientDemographics(patientProxy, Runnable::run, 1000, false);
+        lastKnownPatients = new LastKnownPatients(100);
+        diabetesService = new DiabetesService(patientProxy, noteProxy, Executors.newFixedThreadPool(2), riskCache, triggerStore,
+                                              new NoteStreamScanner(objectMapper), riskRules, new AssessmentMetrics(meterRegistry),
+                                              new RemoteCallGuard(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()),
+                                              lastKnownPatients, demographics);
+    }
+
+    private ReactiveDiabetesService reactiveService() {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            if (request.url().getPath().endsWith("/triggers")) {
+                return Mono.just(summaryResponse);
+            }
+            if (request.url().getPath().startsWith("/notes")) {
+                notesCalls.incrementAndGet();
+                return Mono.just(notesResponse);
+            }
+            return Mono.just(patientResponse);
+        }).build();
+        ReactiveDiabetesService service = new ReactiveDiabetesService(webClient, diabetesService, riskCache, triggerStore,
+                                                                      new NoteStreamScanner(objectMapper),
+                                                                      new AssessmentMetrics(meterRegistry),
+                                                                      new RemoteCallGuard(CircuitBreakerRegistry.ofDefaults(),
+                                                                                          BulkheadRegistry.ofDefaults()),
+                                                                      lastKnownPatients, demographics);
+        ReflectionTestUtils.setField(service, "patientServiceUrl", "http://localhost/patients");
+        ReflectionTestUtils.setField(service, "noteServiceUrl", "http://localhost/notes");
+        ReflectionTestUtils.setField(service, "patientTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(service, "notesTimeoutMs", 1000L);
+        return service;
+    }
+
+    private PatientDTO patient(int age) {
+        PatientDTO patient = new PatientDTO();
+        patient.setId(1);
+        patient.setGender("M");
+        patient.setBirthdate(LocalDate.now().minusYears(age));
+        return patient;
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Réponse JSON découpée en morceaux de quelques octets, comme reçue du réseau.
+     */
+    private ClientResponse chunkedResponse(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 7) {
+            byte[] chunk = new byte[Math.min(7, bytes.length - i)];
+            System.arraycopy(bytes, i, chunk, 0, chunk.length);
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return ClientResponse.create(HttpStatus.OK)
+                             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                             .body(Flux.fromIterable(chunks))
+                             .build();
+    }
+
+    private ClientResponse jsonResponse(Object value) {
+        return ClientResponse.create(HttpStatus.OK)
+                             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                             .body(json(value))
+                             .build();
+    }
+
+    private List<NoteDTO> notes(String... texts) {
+        List<NoteDTO> notes = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            NoteDTO note = new NoteDTO();
+            note.setId("n" + i);
+            note.setPatId(1);
+            note.setNote(texts[i]);
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    @Test
+    void assessDiabetesRisk_InDangerTest() {
+        patientResponse = jsonResponse(patient(25));
+        notesResponse = chunkedResponse(json(notes("Patient presente des symptomes d'hémoglobine a1c",
+                                                   "Patient a microalbumine and problèmes de poids ",
+                                                   "Patient montre des signes of vertige")));
+
+        DiabetesRiskLevel result = reactiveService().assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result);
+        assertEquals(DiabetesRiskLevel.IN_DANGER, riskCache.getIfPresent(1, triggerStore.dictionary().version()).riskLevel());
+        assertEquals(1, meterRegistry.get("diabetes.assessment.result").tag("level", "IN_DANGER").counter().count());
+        for (String stage : List.of("total", "patient_fetch", "notes_fetch", "trigger_scan", "rule_evaluation")) {
+            assertEquals(1, meterRegistry.get("diabetes.assessment.stage").tag("stage", stage).timer().count());
+        }
+    }
+
+    @Test
+    void assessDiabetesRisk_CachedTest() {
+        patientResponse = jsonResponse(patient(25));
+        notesResponse = chunkedResponse(json(notes("Hémoglobine A1C", "Microalbumine", "Vertige")));
+        ReactiveDiabetesService service = reactiveService();
+
+        service.assessDiabetesRisk(1).block();
+        DiabetesRiskLevel result = service.assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result);
+        assertEquals(1, notesCalls.get());
+    }
+
+    @Test
+    void assessDiabetesRisk_PatientNotFoundTest() {
+        patientResponse = ClientResponse.create(HttpStatus.NOT_FOUND).build();
+        notesResponse = chunkedResponse("[]");
+
+        DiabetesRiskLevel result = reactiveService().assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.NONE, result);
+        assertNull(riskCache.getIfPresent(1, triggerStore.dictionary().version()));
+        assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "patient_not_found").counter().count());
+    }
+
+    @Test
+    void assessDiabetesRisk_NotesErrorTest() {
+        patientResponse = jsonResponse(patient(25));
+        notesResponse = ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build();
+
+        DiabetesRiskLevel result = reactiveService().assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.NONE, result);
+        assertNull(riskCache.getIfPresent(1, triggerStore.dictionary().version()));
+        assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "notes_error").counter().count());
+    }
+
+    @Test
+    void assessDiabetesRisk_PatientServiceErrorUsesLastKnownTest() {
+        lastKnownPatients.put(patient(25));
+        patientResponse = ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build();
+        notesResponse = chunkedResponse(json(notes("Hémoglobine A1C", "Microalbumine", "Vertige")));
+
+        DiabetesRiskLevel result = reactiveService().assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result);
+        assertEquals(1, meterRegistry.get("diabetes.assessment.fallback").tag("reason", "patient_last_known").counter().count());
+    }
+
+    @Test
+    void assessDiabetesRisk_TriggerSummaryTest() {
+        patientResponse = jsonResponse(patient(25));
+        summaryResponse = jsonResponse(new TriggerSummaryDTO(1, triggerStore.dictionary().version(),
+                                                             List.of("hémoglobine a1c", "microalbumine", "vertige"), 3, "n2", "vertige"));
+        ReactiveDiabetesService service = reactiveService();
+        ReflectionTestUtils.setField(service, "triggerSummaryEnabled", true);
+
+        DiabetesRiskLevel result = service.assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result);
+        assertEquals(0, notesCalls.get());
+    }
+
+    @Test
+    void assessDiabetesRisk_TriggerSummaryNotFoundTest() {
+        patientResponse = jsonResponse(patient(25));
+        summaryResponse = ClientResponse.create(HttpStatus.NOT_FOUND).build();
+        notesResponse = chunkedResponse(json(notes("Hémoglobine A1C", "Microalbumine", "Vertige")));
+        ReactiveDiabetesService service = reactiveService();
+        ReflectionTestUtils.setField(service, "triggerSummaryEnabled", true);
+
+        DiabetesRiskLevel result = service.assessDiabetesRisk(1).block();
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result);
+        assertEquals(1, notesCalls.get());
+    }
+}
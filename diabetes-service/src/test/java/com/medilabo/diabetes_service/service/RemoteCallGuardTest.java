@@ -0,0 +1,56 @@
+package com.medilabo.diabetes_service.service;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteCallGuardTest {
+
+    private final RemoteCallGuard callGuard = new RemoteCallGuard(
+            CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                                                          .slidingWindowSize(2)
+                                                          .minimumNumberOfCalls(2)
+                                                          .failureRateThreshold(50)
+                                                          .build()),
+            BulkheadRegistry.of(BulkheadConfig.custom()
+                                              .maxConcurrentCalls(1)
+                                              .maxWaitDuration(Duration.ZERO)
+                                              .build()));
+
+    @Test
+    void circuitOpensAfterFailuresTest() {
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> callGuard.call(RemoteCallGuard.Dependency.NOTES, () -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("503");
+            }));
+        }
+        CallNotPermittedException rejected = assertThrows(CallNotPermittedException.class,
+                () -> callGuard.call(RemoteCallGuard.Dependency.NOTES, calls::incrementAndGet));
+
+        assertEquals(2, calls.get());
+        assertTrue(RemoteCallGuard.isRejection(rejected));
+        assertEquals("ok", callGuard.call(RemoteCallGuard.Dependency.PATIENTS, () -> "ok"));
+    }
+
+    @Test
+    void bulkheadRejectsConcurrentCallsTest() {
+        BulkheadFullException rejected = assertThrows(BulkheadFullException.class,
+                () -> callGuard.call(RemoteCallGuard.Dependency.PATIENTS,
+                                     () -> callGuard.call(RemoteCallGuard.Dependency.PATIENTS, () -> "imbriqué")));
+
+        assertTrue(RemoteCallGuard.isRejection(rejected));
+        assertEquals("ok", callGuard.call(RemoteCallGuard.Dependency.PATIENTS, () -> "ok"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.dto.RiskLevelChangeDTO;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiskChangeNotifierTest {
+
+    @Mock
+    private DiabetesService diabetesService;
+
+    @Mock
+    private RiskReadModel riskReadModel;
+
+    private DiabetesRiskCache riskCache;
+
+    private TriggerStateStore triggerStore;
+
+    private RiskChangeNotifier notifier;
+
+    private final List<RiskLevelChangeDTO> received = new CopyOnWriteArrayList<>();
+
+    private Disposable subscription;
+
+    @BeforeEach
+    void setUp() {
+        riskCache = new DiabetesRiskCache(100, Duration.ofMinutes(1));
+        triggerStore = new TriggerStateStore(new TriggerDictionaryService(new ObjectMapper(), new DefaultResourceLoader(),
+                                                                          event -> {}, ""),
+                                             1000, Duration.ofHours(1));
+        notifier = new RiskChangeNotifier(diabetesService, riskCache, riskReadModel, triggerStore, Runnable::run, 100, 16, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void subscribe(Integer patientId) {
+        subscription = notifier.subscribe(patientId).subscribe(event -> received.add(event.data()));
+    }
+
+    private RiskAssessment assessment(DiabetesRiskLevel level, boolean complete) {
+        return new RiskAssessment(level, complete, triggerStore.dictionary().version());
+    }
+
+    @Test
+    void transitionPublishedTest() {
+        riskCache.put(1, assessment(DiabetesRiskLevel.BORDERLINE, true));
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.IN_DANGER, true));
+        subscribe(1);
+
+        notifier.onNoteCreated(new NoteCreatedEvent(1, "n1", "vertige"));
+
+        assertEquals(List.of(new RiskLevelChangeDTO(1, DiabetesRiskLevel.BORDERLINE, DiabetesRiskLevel.IN_DANGER)), received);
+    }
+
+    @Test
+    void ageBoundaryTransitionFromReadModelTest() {
+        when(riskReadModel.riskLevel(1)).thenReturn(DiabetesRiskLevel.NONE);
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, true));
+        subscribe(1);
+
+        notifier.onAgeBoundaryReached(new AgeBoundaryReachedEvent(1));
+
+        assertEquals(List.of(new RiskLevelChangeDTO(1, DiabetesRiskLevel.NONE, DiabetesRiskLevel.BORDERLINE)), received);
+    }
+
+    @Test
+    void unchangedLevelNotPublishedTest() {
+        riskCache.put(1, assessment(DiabetesRiskLevel.BORDERLINE, true));
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, true));
+        subscribe(null);
+
+        notifier.onPatientChanged(new PatientChangedEvent(1));
+
+        assertTrue(received.isEmpty());
+        verify(diabetesService).assess(1);
+    }
+
+    @Test
+    void unknownPreviousLevelUsedAsReferenceTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.NONE, true),
+                                                   assessment(DiabetesRiskLevel.EARLY_ONSET, true));
+        subscribe(null);
+
+        notifier.onPatientChanged(new PatientChangedEvent(1));
+        assertTrue(received.isEmpty());
+        notifier.onNoteCreated(new NoteCreatedEvent(1, "n2", "rechute"));
+
+        assertEquals(List.of(new RiskLevelChangeDTO(1, DiabetesRiskLevel.NONE, DiabetesRiskLevel.EARLY_ONSET)), received);
+    }
+
+    @Test
+    void incompleteAssessmentIgnoredTest() {
+        riskCache.put(1, assessment(DiabetesRiskLevel.IN_DANGER, true));
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.NONE, false));
+        subscribe(1);
+
+        notifier.onPatientChanged(new PatientChangedEvent(1));
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void unwatchedPatientNotReassessedTest() {
+        subscribe(2);
+
+        notifier.onPatientChanged(new PatientChangedEvent(1));
+        subscription.dispose();
+        notifier.onPatientChanged(new PatientChangedEvent(2));
+
+        verifyNoInteractions(diabetesService);
+    }
+}
@@ -0,0 +1,271 @@
+package com.medilabo.diabetes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.diabetes_service.dto.MaterializedRiskDTO;
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.dto.RiskConsistencyDTO;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.AgeBoundaryReachedEvent;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.PatientChangedEvent;
+import com.medilabo.diabetes_service.model.ChunkAssessment;
+import com.medilabo.diabetes_service.model.RiskAssessment;
+import com.medilabo.diabetes_service.model.RiskInputs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiskReadModelTest {
+
+    private static final LocalDate NEXT_LEVEL_CHANGE = LocalDate.now().plusYears(5);
+
+    @Mock
+    private DiabetesService diabetesService;
+
+    @Mock
+    private RiskSweepService riskSweepService;
+
+    private TriggerStateStore triggerStore;
+
+    private AgeBoundaryScheduler ageBoundaries;
+
+    private RiskReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        ageBoundaries = new AgeBoundaryScheduler(event -> {});
+        triggerStore = new TriggerStateStore(new TriggerDictionaryService(new ObjectMapper(), new DefaultResourceLoader(),
+                                                                          event -> {}, ""),
+                                             1000, Duration.ofHours(1));
+        readModel = new RiskReadModel(diabetesService, riskSweepService, new DiabetesRiskCache(100, Duration.ofMinutes(1)),
+                                      triggerStore, ageBoundaries, Runnable::run, false);
+    }
+
+    private RiskAssessment assessment(DiabetesRiskLevel level, int triggerCount, boolean complete) {
+        return new RiskAssessment(level, complete, triggerStore.dictionary().version(),
+                                  new RiskInputs(25, "M", TriggerMask.all(triggerCount), "v1", NEXT_LEVEL_CHANGE));
+    }
+
+    private PatientDTO patient(int id) {
+        PatientDTO patient = new PatientDTO();
+        patient.setId(id);
+        return patient;
+    }
+
+    @Test
+    void writeMaterializesLevelTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.IN_DANGER, 3, true));
+
+        readModel.onNoteCreated(new NoteCreatedEvent(1, "n1", "vertige"));
+
+        assertEquals(DiabetesRiskLevel.IN_DANGER, readModel.riskLevel(1));
+        MaterializedRiskDTO materialized = readModel.find(1);
+        assertEquals(3, materialized.triggerCount());
+        assertEquals(3, materialized.triggers().size());
+        assertEquals(25, materialized.age());
+        assertFalse(materialized.stale());
+        assertEquals(NEXT_LEVEL_CHANGE, ageBoundaries.nextLevelChange(1));
+    }
+
+    @Test
+    void ageBoundaryReachedRecomputesLevelTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.NONE, 2, true),
+                                                   assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        readModel.materialize(1);
+
+        readModel.onAgeBoundaryReached(new AgeBoundaryReachedEvent(1));
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, readModel.riskLevel(1));
+    }
+
+    @Test
+    void incompleteRecomputeKeepsPreviousLevelTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true),
+                                                   assessment(DiabetesRiskLevel.NONE, 0, false));
+        readModel.materialize(1);
+
+        readModel.onPatientChanged(new PatientChangedEvent(1));
+
+        assertEquals(DiabetesRiskLevel.BORDERLINE, readModel.riskLevel(1));
+        assertTrue(readModel.find(1).stale());
+        assertEquals(1, readModel.stats().stale());
+    }
+
+    @Test
+    void materializeIgnoresKnownPatientTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.NONE, 0, true));
+
+        readModel.materialize(1);
+        readModel.materialize(1);
+
+        verify(diabetesService, times(1)).assess(1);
+    }
+
+    @Test
+    void verify_ConsistentTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        when(diabetesService.assessFromSource(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        readModel.materialize(1);
+
+        RiskConsistencyDTO result = readModel.verify(1);
+
+        assertTrue(result.consistent());
+        assertEquals(0, readModel.stats().mismatches());
+    }
+
+    @Test
+    void verify_MismatchRepairedTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        when(diabetesService.assessFromSource(1)).thenReturn(assessment(DiabetesRiskLevel.IN_DANGER, 3, true));
+        readModel.materialize(1);
+
+        RiskConsistencyDTO result = readModel.verify(1);
+
+        assertFalse(result.consistent());
+        assertEquals(DiabetesRiskLevel.BORDERLINE, result.materialized().riskLevel());
+        assertEquals(DiabetesRiskLevel.IN_DANGER, result.fresh().riskLevel());
+        assertEquals(DiabetesRiskLevel.IN_DANGER, readModel.riskLevel(1));
+        assertEquals(1, readModel.stats().mismatches());
+    }
+
+    @Test
+    void verify_UnavailableTest() {
+        when(diabetesService.assessFromSource(1)).thenReturn(new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"));
+        when(diabetesService.patientExists(1)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> readModel.verify(1));
+        assertNull(readModel.riskLevel(1));
+    }
+
+    @Test
+    void verify_DeletedPatientTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        when(diabetesService.assessFromSource(1)).thenReturn(new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"));
+        when(diabetesService.patientExists(1)).thenReturn(false);
+        readModel.materialize(1);
+
+        RiskConsistencyDTO result = readModel.verify(1);
+
+        assertFalse(result.consistent());
+        assertNull(result.fresh());
+        assertNull(readModel.riskLevel(1));
+        assertNull(ageBoundaries.nextLevelChange(1));
+        assertEquals(1, readModel.stats().mismatches());
+    }
+
+    @Test
+    void deletedPatientRemovedTest() {
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.IN_DANGER, 3, true),
+                                                   new RiskAssessment(DiabetesRiskLevel.NONE, false, "v1"));
+        when(diabetesService.patientExists(1)).thenReturn(false);
+        readModel.materialize(1);
+
+        readModel.onPatientChanged(new PatientChangedEvent(1));
+
+        assertNull(readModel.riskLevel(1));
+        assertNull(readModel.find(1));
+        assertNull(ageBoundaries.nextLevelChange(1));
+    }
+
+    @Test
+    void incompleteRefreshRetriedTest() {
+        ReflectionTestUtils.setField(readModel, "retryInitialDelay", Duration.ofMillis(1));
+        when(diabetesService.assess(1)).thenReturn(assessment(DiabetesRiskLevel.NONE, 0, true),
+                                                   assessment(DiabetesRiskLevel.NONE, 0, false),
+                                                   assessment(DiabetesRiskLevel.IN_DANGER, 3, true));
+        readModel.materialize(1);
+
+        readModel.onNoteCreated(new NoteCreatedEvent(1, "n1", "vertige"));
+
+        verify(diabetesService, timeout(2000).times(3)).assess(1);
+        assertEquals(DiabetesRiskLevel.IN_DANGER, readModel.riskLevel(1));
+        assertFalse(readModel.find(1).stale());
+    }
+
+    @Test
+    void retryDelayTest() {
+        ReflectionTestUtils.setField(readModel, "retryInitialDelay", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(readModel, "retryMaxDelay", Duration.ofSeconds(5));
+
+        assertEquals(Duration.ofSeconds(1), readModel.retryDelay(1));
+        assertEquals(Duration.ofSeconds(4), readModel.retryDelay(3));
+        assertEquals(Duration.ofSeconds(5), readModel.retryDelay(4));
+        assertEquals(Duration.ofSeconds(5), readModel.retryDelay(40));
+    }
+
+    @Test
+    void verifyExpiredTest() {
+        when(diabetesService.assess(anyInt())).thenReturn(assessment(DiabetesRiskLevel.BORDERLINE, 2, true));
+        when(diabetesService.assessFromSource(1)).thenReturn(assessment(DiabetesRiskLevel.IN_DANGER, 3, true));
+        readModel.materialize(1);
+        readModel.materialize(2);
+        readModel.onPatientChanged(new PatientChangedEvent(2));
+        when(diabetesService.assess(2)).thenReturn(assessment(DiabetesRiskLevel.NONE, 0, false));
+        ReflectionTestUtils.setField(readModel, "retryMaxAttempts", 0);
+        readModel.onPatientChanged(new PatientChangedEvent(2));
+
+        assertEquals(0, readModel.verifyExpired());
+        ReflectionTestUtils.setField(readModel, "maxAge", Duration.ofSeconds(-1));
+        int started = readModel.verifyExpired();
+
+        // Le niveau du patient 2, en attente d'un recalcul, n'est pas vérifié
+        assertEquals(1, started);
+        verify(diabetesService, never()).assessFromSource(2);
+        assertEquals(DiabetesRiskLevel.IN_DANGER, readModel.riskLevel(1));
+        assertEquals(1, readModel.stats().mismatches());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildTest() throws IOException {
+        when(diabetesService.assess(9)).thenReturn(assessment(DiabetesRiskLevel.NONE, 0, true));
+        readModel.materialize(9);
+        when(diabetesService.evaluateKnownPatients(anyList())).thenReturn(CompletableFuture.completedFuture(new ChunkAssessment(
+                Map.of(1, assessment(DiabetesRiskLevel.EARLY_ONSET, 5, true)), Map.of(2, "Service de notes indisponible"), "v1")));
+        when(riskSweepService.forEachChunk(any(), any())).thenAnswer(invocation -> {
+            Function<List<PatientDTO>, CompletableFuture<Object>> evaluate = invocation.getArgument(0);
+            RiskSweepService.ChunkHandler<Object> handler = invocation.getArgument(1);
+            return (long) handler.handle(evaluate.apply(List.of(patient(1), patient(2))).join());
+        });
+
+        long count = readModel.rebuild();
+
+        assertEquals(2, count);
+        assertEquals(DiabetesRiskLevel.EARLY_ONSET, readModel.riskLevel(1));
+        assertNull(readModel.riskLevel(2));
+        assertNull(readModel.riskLevel(9));
+        assertNull(ageBoundaries.nextLevelChange(9));
+        assertEquals(1, readModel.stats().size());
+        assertNotNull(readModel.stats().lastRebuild());
+    }
+
+    @Test
+    void requestRebuildErrorTest() throws IOException {
+        when(riskSweepService.forEachChunk(any(), any())).thenThrow(new IOException("Service patient indisponible"));
+
+        readModel.requestRebuild();
+
+        assertFalse(readModel.stats().rebuilding());
+        assertNull(readModel.stats().lastRebuild());
+    }
+}
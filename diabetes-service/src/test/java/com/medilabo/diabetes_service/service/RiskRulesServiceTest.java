@@ -0,0 +1,69 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.engine.RiskRule;
+import com.medilabo.diabetes_service.engine.RiskRulesConfig;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.events.RiskRulesChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiskRulesServiceTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final RiskRulesConfig otherRules = new RiskRulesConfig("2", List.of(
+            new RiskRule(DiabetesRiskLevel.BORDERLINE, null, null, null, 1, null)));
+
+    private RiskRulesService riskRulesService(boolean verify) {
+        return new RiskRulesService(Jackson2ObjectMapperBuilder.json().build(), new DefaultResourceLoader(), eventPublisher,
+                                    "classpath:risk-rules.json", verify);
+    }
+
+    @Test
+    void loadTest() {
+        RiskRulesService riskRulesService = riskRulesService(true);
+
+        assertEquals("1", riskRulesService.current().version());
+        assertEquals(List.of(), riskRulesService.verify());
+    }
+
+    @Test
+    void replaceTest() {
+        RiskRulesService riskRulesService = riskRulesService(false);
+
+        riskRulesService.replace(otherRules);
+
+        assertEquals("2", riskRulesService.current().version());
+        assertEquals(DiabetesRiskLevel.BORDERLINE, riskRulesService.current().riskLevel(20, "M", 1));
+        assertFalse(riskRulesService.verify().isEmpty());
+        verify(eventPublisher).publishEvent(new RiskRulesChangedEvent("2"));
+    }
+
+    @Test
+    void replace_VerifyRejectsTest() {
+        RiskRulesService riskRulesService = riskRulesService(true);
+
+        assertThrows(IllegalArgumentException.class, () -> riskRulesService.replace(otherRules));
+        assertEquals("1", riskRulesService.current().version());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void missingRulesTest() {
+        assertThrows(IllegalStateException.class, () -> new RiskRulesService(Jackson2ObjectMapperBuilder.json().build(),
+                new DefaultResourceLoader(), eventPublisher, "classpath:absent.json", true));
+    }
+}
@@ -0,0 +1,84 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.BatchAssessmentResponse;
+import com.medilabo.diabetes_service.dto.PatientDTO;
+import com.medilabo.diabetes_service.enums.DiabetesRiskLevel;
+import com.medilabo.diabetes_service.proxies.PatientProxy;
+import feign.Request;
+import feign.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RiskSweepServiceTest {
+
+    @Mock
+    private PatientProxy patientProxy;
+
+    @Mock
+    private DiabetesService diabetesService;
+
+    private RiskSweepService riskSweepService;
+
+    @BeforeEach
+    void setUp() {
+        riskSweepService = new RiskSweepService(patientProxy, diabetesService, Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(riskSweepService, "chunkSize", 2);
+        ReflectionTestUtils.setField(riskSweepService, "maxInFlightChunks", 1);
+    }
+
+    private Response response(int status, String body) {
+        Request request = Request.create(Request.HttpMethod.GET, "/patients", Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+        return Response.builder().status(status).request(request).body(body, StandardCharsets.UTF_8).build();
+    }
+
+    @Test
+    void sweepTest() throws IOException {
+        when(patientProxy.streamAllPatients()).thenReturn(response(200,
+                "[{\"id\":1,\"birthdate\":\"1966-12-31\",\"gender\":\"F\",\"firstName\":\"Test\"},"
+                        + "{\"id\":2,\"birthdate\":\"2004-06-18\",\"gender\":\"M\"},"
+                        + "{\"id\":3,\"birthdate\":\"2002-06-28\",\"gender\":\"F\"}]"));
+        when(diabetesService.assessKnownPatients(anyList())).thenAnswer(invocation -> {
+            int first = invocation.<List<PatientDTO>>getArgument(0).get(0).getId();
+            BatchAssessmentResponse batch = first == 1
+                    ? new BatchAssessmentResponse(Map.of(1, DiabetesRiskLevel.NONE), Map.of(2, "Service de notes indisponible"), "v1")
+                    : new BatchAssessmentResponse(Map.of(3, DiabetesRiskLevel.EARLY_ONSET), Collections.emptyMap(), "v1");
+            return CompletableFuture.completedFuture(batch);
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = riskSweepService.sweep(out);
+
+        assertEquals(3, count);
+        assertEquals("{\"patientId\":1,\"riskLevel\":\"NONE\",\"dictionaryVersion\":\"v1\"}\n"
+                        + "{\"patientId\":2,\"error\":\"Service de notes indisponible\"}\n"
+                        + "{\"patientId\":3,\"riskLevel\":\"EARLY_ONSET\",\"dictionaryVersion\":\"v1\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+        verify(diabetesService, times(2)).assessKnownPatients(anyList());
+    }
+
+    @Test
+    void sweep_PatientServiceErrorTest() {
+        when(patientProxy.streamAllPatients()).thenReturn(response(503, ""));
+
+        assertThrows(IOException.class, () -> riskSweepService.sweep(new ByteArrayOutputStream()));
+        verifyNoInteractions(diabetesService);
+    }
+}
@@ -0,0 +1,115 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.config.DiabetesConstants;
+import com.medilabo.diabetes_service.engine.TriggerTermsConfig;
+import com.medilabo.diabetes_service.events.TriggerDictionaryChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TriggerDictionaryServiceTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    private Path directory;
+
+    private TriggerDictionaryService dictionaryService(String location) {
+        return new TriggerDictionaryService(Jackson2ObjectMapperBuilder.json().build(), new DefaultResourceLoader(),
+                                            eventPublisher, location);
+    }
+
+    private Path writeTerms(String json, long modifiedAt) throws IOException {
+        Path file = directory.resolve("triggers.json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.ofEpochSecond(modifiedAt)));
+        return file;
+    }
+
+    @Test
+    void builtinTest() {
+        TriggerDictionaryService dictionaryService = dictionaryService("");
+
+        assertEquals(TriggerDictionaryService.BUILTIN_VERSION, dictionaryService.current().version());
+        // Même valeur que dans le service de notes : les deux listes intégrées doivent rester identiques
+        assertEquals("builtin-21abfd025050", TriggerDictionaryService.BUILTIN_VERSION);
+        assertEquals(TriggerDictionaryService.BUILTIN_VERSION,
+                     TriggerDictionaryService.builtinVersion(DiabetesConstants.TRIGGER_TERMS.stream().map(String::toUpperCase).toList()));
+        assertEquals(DiabetesConstants.TRIGGER_TERMS.size(), dictionaryService.current().matcher().termCount());
+        assertThrows(IllegalArgumentException.class, dictionaryService::reload);
+    }
+
+    @Test
+    void loadFromFileTest() throws IOException {
+        Path file = writeTerms("{\"version\":\"v1\",\"terms\":[\"fumeur\",\"poids\"]}", 1000);
+
+        TriggerDictionaryService dictionaryService = dictionaryService("file:" + file);
+
+        assertEquals("v1", dictionaryService.current().version());
+        assertEquals(2, dictionaryService.current().matcher().termCount());
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void replaceTest(CapturedOutput output) {
+        TriggerDictionaryService dictionaryService = dictionaryService("");
+
+        dictionaryService.replace(new TriggerTermsConfig("v2", List.of("vertiges")));
+        dictionaryService.replace(new TriggerTermsConfig("v2", List.of("VERTIGES")));
+        assertFalse(output.getOut().contains("sans changement de version"));
+        dictionaryService.replace(new TriggerTermsConfig("v2", List.of("autre")));
+
+        assertEquals("v2", dictionaryService.current().version());
+        assertEquals(List.of("vertiges"), dictionaryService.current().matcher().terms());
+        assertTrue(output.getOut().contains("sans changement de version (v2)"));
+        verify(eventPublisher, times(1)).publishEvent(new TriggerDictionaryChangedEvent("v2"));
+    }
+
+    @Test
+    void refreshIfModifiedTest() throws IOException {
+        Path file = writeTerms("{\"version\":\"v1\",\"terms\":[\"fumeur\"]}", 1000);
+        TriggerDictionaryService dictionaryService = dictionaryService("file:" + file);
+
+        dictionaryService.refreshIfModified();
+        verify(eventPublisher, never()).publishEvent(any());
+
+        writeTerms("{\"version\":\"v2\",\"terms\":[\"fumeur\",\"vertiges\"]}", 2000);
+        dictionaryService.refreshIfModified();
+
+        assertEquals("v2", dictionaryService.current().version());
+        verify(eventPublisher).publishEvent(new TriggerDictionaryChangedEvent("v2"));
+    }
+
+    @Test
+    void refreshIfModified_InvalidFileKeepsDictionaryTest() throws IOException {
+        Path file = writeTerms("{\"version\":\"v1\",\"terms\":[\"fumeur\"]}", 1000);
+        TriggerDictionaryService dictionaryService = dictionaryService("file:" + file);
+
+        writeTerms("{\"version\":\"v2\",\"terms\":", 2000);
+        dictionaryService.refreshIfModified();
+
+        assertEquals("v1", dictionaryService.current().version());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
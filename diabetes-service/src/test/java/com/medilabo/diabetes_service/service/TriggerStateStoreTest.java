@@ -0,0 +1,105 @@
+package com.medilabo.diabetes_service.service;
+
+import com.medilabo.diabetes_service.dto.NoteDTO;
+import com.medilabo.diabetes_service.engine.TriggerMask;
+import com.medilabo.diabetes_service.engine.TriggerState;
+import com.medilabo.diabetes_service.engine.TriggerTermsConfig;
+import com.medilabo.diabetes_service.events.NoteCreatedEvent;
+import com.medilabo.diabetes_service.events.NotesChangedEvent;
+import com.medilabo.diabetes_service.events.TriggerDictionaryChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriggerStateStoreTest {
+
+    private final TriggerDictionaryService dictionaryService =
+            new TriggerDictionaryService(new ObjectMapper(), new DefaultResourceLoader(), event -> {}, "");
+    private final TriggerStateStore triggerStore = new TriggerStateStore(dictionaryService, 1000, Duration.ofHours(1));
+
+    private Set<String> terms(int patientId) {
+        return TriggerMask.toTerms(triggerStore.snapshot(patientId).state().mask(), triggerStore.dictionary().matcher());
+    }
+
+    @Test
+    void rebuildThenAppendTest() {
+        TriggerStateStore.Snapshot before = triggerStore.snapshot(1);
+        assertNull(before.state());
+
+        triggerStore.rebuild(1, before, List.of(new NoteDTO("a", 1, "Poids en hausse, hémoglobine")));
+        triggerStore.onNoteCreated(new NoteCreatedEvent(1, "b", "a1c anormale"));
+
+        assertEquals(Set.of("poids", "hémoglobine a1c", "anormal"), terms(1));
+        assertEquals("b", triggerStore.snapshot(1).lastNoteId());
+    }
+
+    @Test
+    void duplicateNoteIgnoredTest() {
+        triggerStore.rebuild(2, triggerStore.snapshot(2), List.of(new NoteDTO("a", 2, "fumeur")));
+        TriggerState state = triggerStore.snapshot(2).state();
+
+        triggerStore.onNoteCreated(new NoteCreatedEvent(2, "a", "fumeur"));
+
+        assertEquals(state, triggerStore.snapshot(2).state());
+    }
+
+    @Test
+    void olderNoteForcesRebuildTest() {
+        triggerStore.rebuild(3, triggerStore.snapshot(3), List.of(new NoteDTO("b", 3, "fumeur")));
+
+        triggerStore.onNoteCreated(new NoteCreatedEvent(3, "a", "poids"));
+
+        assertNull(triggerStore.snapshot(3).state());
+    }
+
+    @Test
+    void changeDuringFetchDiscardsRebuildTest() {
+        TriggerStateStore.Snapshot before = triggerStore.snapshot(4);
+        triggerStore.onNoteCreated(new NoteCreatedEvent(4, "b", "fumeur"));
+
+        TriggerState state = triggerStore.rebuild(4, before, List.of(new NoteDTO("a", 4, "poids")));
+
+        assertEquals(1, TriggerMask.count(state.mask()));
+        assertNull(triggerStore.snapshot(4).state());
+    }
+
+    @Test
+    void expiredStateReadAgainTest() {
+        TriggerStateStore expiring = new TriggerStateStore(dictionaryService, 1000, Duration.ZERO);
+        expiring.rebuild(6, expiring.snapshot(6), List.of(new NoteDTO("a", 6, "fumeur")));
+
+        assertNull(expiring.snapshot(6).state());
+    }
+
+    @Test
+    void notesDeletedTest() {
+        triggerStore.rebuild(5, triggerStore.snapshot(5), List.of(new NoteDTO("a", 5, "fumeur")));
+
+        triggerStore.onNotesChanged(new NotesChangedEvent(5));
+
+        assertNull(triggerStore.snapshot(5).state());
+        assertNull(triggerStore.snapshot(5).lastNoteId());
+    }
+
+    @Test
+    void dictionaryChangedTest() {
+        triggerStore.rebuild(6, triggerStore.snapshot(6), List.of(new NoteDTO("a", 6, "fumeur")));
+
+        dictionaryService.replace(new TriggerTermsConfig("v2", List.of("fumeur", "vertiges")));
+        triggerStore.onDictionaryChanged(new TriggerDictionaryChangedEvent("v2"));
+        triggerStore.onNoteCreated(new NoteCreatedEvent(6, "b", "vertiges"));
+
+        TriggerStateStore.Snapshot snapshot = triggerStore.snapshot(6);
+        assertNull(snapshot.state());
+        assertEquals("v2", snapshot.dictionary().version());
+
+        triggerStore.rebuild(6, snapshot, List.of(new NoteDTO("a", 6, "fumeur"), new NoteDTO("b", 6, "vertiges")));
+        assertEquals(Set.of("fumeur", "vertiges"), terms(6));
+    }
+}
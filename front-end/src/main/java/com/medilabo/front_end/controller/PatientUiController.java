@@ -1,5 +1,6 @@
 package com.medilabo.front_end.controller;
 
+import com.medilabo.front_end.model.DiabetesBatchResult;
 import com.medilabo.front_end.model.PatientListDTO;
 import com.medilabo.front_end.model.Note;
 import com.medilabo.front_end.model.Patient;
@@ -25,7 +26,9 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +55,12 @@ public class PatientUiController {
     @Value("${backend.api.password}")
     private String backendApiPassword;
 
+    /**
+     * Nombre maximal de patients par évaluation groupée, aligné sur la limite du service diabète.
+     */
+    @Value("${diabetes.batch.max-size:1000}")
+    private int diabetesBatchMaxSize;
+
     /**
      * Calcule l'âge à partir d'une date de naissance au format String (YYYY-MM-DD).
      * @param birthdateString La date de naissance en String.
@@ -71,36 +80,68 @@ public class PatientUiController {
     }
 
     /**
-     * Récupère le niveau de risque de diabète pour un patient.
-     * @param patientId L'ID du patient.
-     * @param entity L'entité HTTP avec les en-têtes d'authentification.
-     * @return Le niveau de risque en String, ou "N/A" en cas d'erreur.
+     * Récupère le niveau de risque de diabète d'un ensemble de patients, par requêtes groupées
+     * d'au plus {@code diabetes.batch.max-size} patients.
+     * @param patientIds Les IDs des patients.
+     * @param headers Les en-têtes d'authentification.
+     * @return Le niveau de risque en String par ID de patient ; "Erreur API" pour chaque patient
+     *         d'une requête qui échoue, et "N/A" pour chaque patient non évalué.
+     */
+    private Map<Integer, String> getDiabetesRiskLevels(List<Integer> patientIds, HttpHeaders headers) {
+        Map<Integer, String> riskLevels = new HashMap<>();
+        for (int i = 0; i < patientIds.size(); i += diabetesBatchMaxSize) {
+            List<Integer> chunk = patientIds.subList(i, Math.min(i + diabetesBatchMaxSize, patientIds.size()));
+            riskLevels.putAll(getDiabetesRiskLevelsChunk(chunk, headers));
+        }
+        return riskLevels;
+    }
+
+    /**
+     * Récupère en une seule requête le niveau de risque de diabète d'un lot de patients.
+     * @param patientIds Les IDs des patients du lot.
+     * @param headers Les en-têtes d'authentification.
+     * @return Le niveau de risque en String par ID de patient du lot.
      */
-    private String getDiabetesRiskLevel(int patientId, HttpEntity<String> entity) {
-        String diabetesUrl = apiGatewayUrl + "/diabetes/" + patientId;
+    private Map<Integer, String> getDiabetesRiskLevelsChunk(List<Integer> patientIds, HttpHeaders headers) {
+        String diabetesUrl = apiGatewayUrl + "/diabetes/batch";
+        Map<Integer, String> riskLevels = new HashMap<>();
         try {
-            ResponseEntity<String> diabetesResponse = restTemplate.exchange(
+            HttpHeaders postHeaders = new HttpHeaders();
+            postHeaders.putAll(headers);
+            postHeaders.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<List<Integer>> requestEntity = new HttpEntity<>(patientIds, postHeaders);
+
+            ResponseEntity<DiabetesBatchResult> diabetesResponse = restTemplate.exchange(
                     diabetesUrl,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
+                    HttpMethod.POST,
+                    requestEntity,
+                    DiabetesBatchResult.class
             );
-            if (diabetesResponse.getStatusCode() == HttpStatus.OK && diabetesResponse.getBody() != null) {
-                return diabetesResponse.getBody();
+            DiabetesBatchResult body = diabetesResponse.getBody();
+            if (diabetesResponse.getStatusCode() == HttpStatus.OK && body != null) {
+                if (body.results() != null) {
+                    riskLevels.putAll(body.results());
+                }
+                if (body.errors() != null) {
+                    body.errors().forEach((id, error) -> {
+                        log.warn("Risque diabète non évalué pour le patient ID {}: {}", id, error);
+                        riskLevels.put(id, "N/A");
+                    });
+                }
             } else {
-                log.warn("Réponse non OK pour le risque diabète du patient ID {}: {}", patientId, diabetesResponse.getStatusCode());
-                return "N/A";
+                log.warn("Réponse non OK pour l'évaluation groupée du risque diabète: {}", diabetesResponse.getStatusCode());
             }
         } catch (HttpClientErrorException e) {
-            log.error("Erreur client lors de la récupération du risque diabète pour patient ID {}: {} {}", patientId, e.getStatusCode(), e.getResponseBodyAsString());
-            return "Erreur API";
+            log.error("Erreur client lors de l'évaluation groupée du risque diabète: {} {}", e.getStatusCode(), e.getResponseBodyAsString());
+            patientIds.forEach(id -> riskLevels.put(id, "Erreur API"));
         } catch (RestClientException e) {
-            log.error("Erreur RestClient lors de la récupération du risque diabète pour patient ID {}: {}", patientId, e.getMessage());
-            return "Erreur API";
+            log.error("Erreur RestClient lors de l'évaluation groupée du risque diabète: {}", e.getMessage());
+            patientIds.forEach(id -> riskLevels.put(id, "Erreur API"));
         } catch (Exception e) {
-            log.error("Erreur inattendue lors de l'appel à l'évaluation diabète pour ID {}", patientId, e);
-            return "Erreur";
+            log.error("Erreur inattendue lors de l'appel à l'évaluation groupée diabète", e);
+            patientIds.forEach(id -> riskLevels.put(id, "Erreur"));
         }
+        return riskLevels;
     }
     /**
      * Récupère et affiche la liste de tous les patients.
@@ -137,10 +178,14 @@ public class PatientUiController {
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 List<Patient> patients = response.getBody();
 
-                // Pour chaque patient, calculer l'âge et récupérer le risque
+                // Récupérer le risque de tous les patients en un seul appel
+                Map<Integer, String> riskLevels = getDiabetesRiskLevels(
+                        patients.stream().map(Patient::id).collect(Collectors.toList()), headers);
+
+                // Pour chaque patient, calculer l'âge et associer le risque
                 patientListForView = patients.stream().map(patient -> {
                     Integer age = calculateAge(patient.birthdate());
-                    String riskLevel = getDiabetesRiskLevel(patient.id(), entity);
+                    String riskLevel = riskLevels.getOrDefault(patient.id(), "N/A");
 
                     return new PatientListDTO(
                             patient.id(),
@@ -0,0 +1,14 @@
+package com.medilabo.front_end.model;
+
+import java.util.Map;
+
+/**
+ * Résultat d'une évaluation groupée du risque de diabète renvoyé par le service diabetes.
+ *
+ * @param results Niveau de risque par identifiant de patient évalué avec succès
+ * @param errors Message d'erreur par identifiant de patient qui n'a pas pu être évalué
+ */
+public record DiabetesBatchResult(
+        Map<Integer, String> results,
+        Map<Integer, String> errors
+) {}
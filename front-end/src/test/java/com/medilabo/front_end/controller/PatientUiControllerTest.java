@@ -1,8 +1,10 @@
 package com.medilabo.front_end.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.front_end.model.DiabetesBatchResult;
 import com.medilabo.front_end.model.Note;
 import com.medilabo.front_end.model.Patient;
+import com.medilabo.front_end.model.PatientListDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,7 @@ import org.springframework.web.servlet.ModelAndView;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.*;
 
 import static org.hamcrest.Matchers.hasProperty; // Import hamcrest matchers
@@ -42,7 +45,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @TestPropertySource(properties = {
         "api.gateway.url=http://localhost:8080",
         "backend.api.username=testuser",
-        "backend.api.password=testpassword"
+        "backend.api.password=testpassword",
+        "diabetes.batch.max-size=2"
 })
 class PatientUiControllerTest {
 
@@ -102,11 +106,24 @@ class PatientUiControllerTest {
                 eq(new HttpEntity<>(expectedHeaders)),
                 any(ParameterizedTypeReference.class)
         )).thenReturn(mockResponse);
+        DiabetesBatchResult riskResult = new DiabetesBatchResult(Map.of(1, "NONE"), Map.of(2, "Patient non trouvé"));
+        when(restTemplate.exchange(
+                eq(apiGatewayUrl + "/diabetes/batch"),
+                eq(HttpMethod.POST),
+                any(HttpEntity.class),
+                eq(DiabetesBatchResult.class)
+        )).thenReturn(ResponseEntity.ok(riskResult));
+
+        int age1 = Period.between(LocalDate.parse("1980-01-01"), LocalDate.now()).getYears();
+        int age2 = Period.between(LocalDate.parse("1990-02-02"), LocalDate.now()).getYears();
+        List<PatientListDTO> expectedList = Arrays.asList(
+                new PatientListDTO(1, "Test", "Nom", "1980-01-01", "M", age1, "NONE"),
+                new PatientListDTO(2, "Test2", "Nom2", "1990-02-02", "F", age2, "N/A"));
 
         mockMvc.perform(get("/ui/patients"))
                .andExpect(status().isOk())
                .andExpect(view().name("patients"))
-               .andExpect(model().attribute("patients", expectedPatients));
+               .andExpect(model().attribute("patients", expectedList));
 
         verify(restTemplate).exchange(
                 eq(apiGatewayUrl + "/patients"),
@@ -114,6 +131,48 @@ class PatientUiControllerTest {
                 eq(new HttpEntity<>(expectedHeaders)),
                 any(ParameterizedTypeReference.class)
         );
+        verify(restTemplate, times(1)).exchange(
+                eq(apiGatewayUrl + "/diabetes/batch"),
+                eq(HttpMethod.POST),
+                any(HttpEntity.class),
+                eq(DiabetesBatchResult.class)
+        );
+    }
+
+    @Test
+    @WithMockUser
+    void listPatients_AboveBatchLimitTest() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            patients.add(new Patient(id, "Test" + id, "Nom" + id, "1980-01-01", "M", id + " rue", "12345"));
+        }
+        when(restTemplate.exchange(
+                eq(apiGatewayUrl + "/patients"),
+                eq(HttpMethod.GET),
+                eq(new HttpEntity<>(expectedHeaders)),
+                any(ParameterizedTypeReference.class)
+        )).thenReturn(ResponseEntity.ok(patients));
+        // Un lot par requête, au plus 2 patients chacun ; le deuxième lot est refusé
+        when(restTemplate.exchange(eq(apiGatewayUrl + "/diabetes/batch"), eq(HttpMethod.POST),
+                                   argThat((HttpEntity<?> entity) -> List.of(1, 2).equals(entity.getBody())), eq(DiabetesBatchResult.class)))
+                .thenReturn(ResponseEntity.ok(new DiabetesBatchResult(Map.of(1, "NONE", 2, "BORDERLINE"), Map.of())));
+        when(restTemplate.exchange(eq(apiGatewayUrl + "/diabetes/batch"), eq(HttpMethod.POST),
+                                   argThat((HttpEntity<?> entity) -> List.of(3, 4).equals(entity.getBody())), eq(DiabetesBatchResult.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        when(restTemplate.exchange(eq(apiGatewayUrl + "/diabetes/batch"), eq(HttpMethod.POST),
+                                   argThat((HttpEntity<?> entity) -> List.of(5).equals(entity.getBody())), eq(DiabetesBatchResult.class)))
+                .thenReturn(ResponseEntity.ok(new DiabetesBatchResult(Map.of(5, "IN_DANGER"), Map.of())));
+
+        MvcResult result = mockMvc.perform(get("/ui/patients"))
+                                  .andExpect(status().isOk())
+                                  .andReturn();
+
+        @SuppressWarnings("unchecked")
+        List<PatientListDTO> listed = (List<PatientListDTO>) result.getModelAndView().getModel().get("patients");
+        assertEquals(List.of("NONE", "BORDERLINE", "Erreur API", "Erreur API", "IN_DANGER"),
+                     listed.stream().map(PatientListDTO::riskLevel).toList());
+        verify(restTemplate, times(3)).exchange(eq(apiGatewayUrl + "/diabetes/batch"), eq(HttpMethod.POST),
+                                                any(HttpEntity.class), eq(DiabetesBatchResult.class));
     }
 
     @Test
@@ -1,12 +1,22 @@
 package com.medilabo.notes_service.controller;
 
+import com.medilabo.notes_service.dto.BulkImportResultDTO;
+import com.medilabo.notes_service.dto.NotePageDTO;
+import com.medilabo.notes_service.dto.NoteSearchResultDTO;
+import com.medilabo.notes_service.dto.TriggerSummaryDTO;
 import com.medilabo.notes_service.model.Note;
+import com.medilabo.notes_service.service.NoteBulkImporter;
+import com.medilabo.notes_service.service.NoteSearchIndex;
 import com.medilabo.notes_service.service.NoteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -17,16 +27,112 @@ public class NoteController {
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private NoteBulkImporter noteBulkImporter;
+
+    @Autowired
+    private NoteSearchIndex noteSearchIndex;
+
     /**
      * Récupère toutes les notes médicales associées à un patient spécifique.
+     * Avec {@code fields}, seuls les champs demandés sont lus en base et renvoyés.
      *
      * @param patId Identifiant du patient dont on souhaite récupérer les notes
-     * @return Liste des notes médicales du patient
+     * @param fields Champs à renvoyer séparés par des virgules (par exemple {@code id,note}), absent pour les notes complètes
+     * @return Liste des notes médicales du patient, ou 400 (Bad Request) si un champ demandé n'existe pas
      */
     @GetMapping("/notes/{patId}")
-    public ResponseEntity<List<Note>> getNotesByPatientId(@PathVariable Integer patId) {
-        List<Note> notes = noteService.findByPatientId(patId);
-        return ResponseEntity.ok(notes);
+    public ResponseEntity<List<Note>> getNotesByPatientId(@PathVariable Integer patId,
+                                                          @RequestParam(required = false) String fields) {
+        try {
+            List<Note> notes = noteService.findByPatientId(patId, fields);
+            return ResponseEntity.ok(notes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Récupère toutes les notes médicales d'un patient au fil de leur lecture en base,
+     * une ligne JSON par note (NDJSON), sans construire la liste complète en mémoire.
+     *
+     * @param patId Identifiant du patient dont on souhaite récupérer les notes
+     * @return Le flux des notes du patient, au format application/x-ndjson
+     */
+    @GetMapping("/notes/{patId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamNotesByPatientId(@PathVariable Integer patId) {
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(out -> noteService.streamByPatientId(patId, out));
+    }
+
+    /**
+     * Récupère une page de notes médicales d'un patient, dans leur ordre de création.
+     * La page suivante s'obtient en passant le jeton {@code next} de la réponse dans le paramètre {@code after}.
+     *
+     * @param patId Identifiant du patient dont on souhaite récupérer les notes
+     * @param after Jeton de la page précédente, absent pour la première page
+     * @param size Nombre maximal de notes de la page
+     * @return La page de notes et le jeton de la page suivante, ou 400 (Bad Request) si la taille ou le jeton est invalide
+     */
+    @GetMapping("/notes/{patId}/page")
+    public ResponseEntity<NotePageDTO> getNotePageByPatientId(@PathVariable Integer patId,
+                                                              @RequestParam(required = false) String after,
+                                                              @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(noteService.findPageByPatientId(patId, after, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Récupère les termes déclencheurs trouvés dans l'ensemble des notes d'un patient,
+     * sans le texte des notes.
+     *
+     * @param patId Identifiant du patient
+     * @return Les termes déclencheurs du patient et la version des termes recherchés
+     */
+    @GetMapping("/notes/{patId}/triggers")
+    public ResponseEntity<TriggerSummaryDTO> getTriggerSummary(@PathVariable Integer patId) {
+        return ResponseEntity.ok(noteService.getTriggerSummary(patId));
+    }
+
+    /**
+     * Recherche les notes dont le texte contient tous les mots demandés, sans tenir compte
+     * des majuscules ni des accents.
+     *
+     * @param q Mots recherchés
+     * @param limit Nombre maximal d'identifiants de notes renvoyés
+     * @return Les patients et les notes trouvés, ou 400 (Bad Request) si la recherche ne contient aucun mot
+     */
+    @GetMapping("/notes/search")
+    public ResponseEntity<NoteSearchResultDTO> searchNotes(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(noteSearchIndex.search(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Récupère en une seule requête les notes médicales de plusieurs patients.
+     * Avec {@code fields}, seuls les champs demandés sont lus en base et renvoyés.
+     *
+     * @param patIds Identifiants des patients dont on souhaite récupérer les notes
+     * @param fields Champs à renvoyer séparés par des virgules, absent pour les notes complètes
+     * @return Liste des notes médicales de ces patients, ou 400 (Bad Request) si un champ demandé n'existe pas
+     */
+    @GetMapping("/notes")
+    public ResponseEntity<List<Note>> getNotesByPatientIds(@RequestParam List<Integer> patIds,
+                                                           @RequestParam(required = false) String fields) {
+        try {
+            List<Note> notes = noteService.findByPatientIds(patIds, fields);
+            return ResponseEntity.ok(notes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -41,6 +147,22 @@ public class NoteController {
         return ResponseEntity.status(HttpStatus.CREATED).body(note);
     }
 
+    /**
+     * Importe en masse des notes médicales, enregistrées par lots. Les notes rejetées sont signalées
+     * une par une sans interrompre l'import.
+     *
+     * @param body Tableau JSON de notes, ou une note JSON par ligne (application/x-ndjson)
+     * @param notify Prévenir le service diabète des patients concernés, en un seul appel ; à désactiver lors d'une
+     *               reprise de données complète, puis appeler {@code POST /diabetes/read-model/rebuild}
+     * @return Le nombre de notes lues et enregistrées, et les notes rejetées avec leur position
+     * @throws IOException si le corps de la requête ne peut pas être lu
+     */
+    @PostMapping(value = "/notes/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResultDTO> importNotes(InputStream body,
+                                                           @RequestParam(defaultValue = "true") boolean notify) throws IOException {
+        return ResponseEntity.ok(noteBulkImporter.importNotes(body, notify));
+    }
+
     /**
      * Endpoint pour supprimer toutes les notes d'un patient spécifique.
      *
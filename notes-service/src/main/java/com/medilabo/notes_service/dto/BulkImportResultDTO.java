@@ -0,0 +1,18 @@
+package com.medilabo.notes_service.dto;
+
+import java.util.List;
+
+/**
+ * Résultat d'un import en masse de notes.
+ *
+ * @param received Nombre de notes lues dans le corps de la requête
+ * @param inserted Nombre de notes enregistrées
+ * @param errors Notes rejetées, par position dans le corps de la requête
+ * @param durationMs Durée de l'import, en millisecondes
+ */
+public record BulkImportResultDTO(
+        int received,
+        int inserted,
+        List<BulkItemErrorDTO> errors,
+        long durationMs
+) {}
@@ -0,0 +1,12 @@
+package com.medilabo.notes_service.dto;
+
+/**
+ * Note rejetée lors d'un import en masse.
+ *
+ * @param index Position de la note dans le corps de la requête, à partir de 0
+ * @param message Raison du rejet
+ */
+public record BulkItemErrorDTO(
+        int index,
+        String message
+) {}
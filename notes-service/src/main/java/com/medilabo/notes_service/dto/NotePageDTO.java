@@ -0,0 +1,16 @@
+package com.medilabo.notes_service.dto;
+
+import com.medilabo.notes_service.model.Note;
+
+import java.util.List;
+
+/**
+ * Page de notes médicales d'un patient, dans leur ordre de création.
+ *
+ * @param notes Notes de la page
+ * @param next Jeton à passer pour obtenir la page suivante, ou null s'il s'agit de la dernière page
+ */
+public record NotePageDTO(
+        List<Note> notes,
+        String next
+) {}
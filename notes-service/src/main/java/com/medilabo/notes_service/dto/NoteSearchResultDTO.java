@@ -0,0 +1,18 @@
+package com.medilabo.notes_service.dto;
+
+import java.util.List;
+
+/**
+ * Résultat d'une recherche dans le texte des notes.
+ *
+ * @param query Mots recherchés
+ * @param patIds Identifiants des patients dont au moins une note contient tous les mots, par ordre croissant
+ * @param noteIds Identifiants des premières notes trouvées, dans la limite demandée
+ * @param totalNotes Nombre total de notes trouvées
+ */
+public record NoteSearchResultDTO(
+        String query,
+        List<Integer> patIds,
+        List<String> noteIds,
+        int totalNotes
+) {}
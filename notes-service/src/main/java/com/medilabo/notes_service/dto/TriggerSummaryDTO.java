@@ -0,0 +1,23 @@
+package com.medilabo.notes_service.dto;
+
+import java.util.List;
+
+/**
+ * Termes déclencheurs trouvés dans l'ensemble des notes d'un patient, sans le texte des notes.
+ *
+ * @param patId Identifiant du patient
+ * @param version Version des termes déclencheurs recherchés
+ * @param triggers Termes trouvés dans au moins une note, en minuscules et sans doublon
+ * @param noteCount Nombre de notes du patient
+ * @param lastNoteId Identifiant le plus récent parmi les notes, ou null si aucune
+ * @param tail Fin du texte des notes séparées par un espace, en minuscules, pour retrouver un terme à cheval
+ *             avec la note suivante ; null si aucune note n'a de texte
+ */
+public record TriggerSummaryDTO(
+        Integer patId,
+        String version,
+        List<String> triggers,
+        int noteCount,
+        String lastNoteId,
+        String tail
+) {}
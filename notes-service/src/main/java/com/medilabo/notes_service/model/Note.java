@@ -1,18 +1,37 @@
 package com.medilabo.notes_service.model;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 
+/**
+ * Note médicale d'un patient. Les notes sont indexées par patient puis par identifiant :
+ * l'identifiant MongoDB croissant avec la date de création, les notes d'un patient sont lues
+ * dans leur ordre de création, sans parcours de la collection.
+ * Les champs null, notamment ceux écartés par une projection, ne sont pas sérialisés.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document(collection = "notes")
+@CompoundIndex(name = "patId_id", def = "{ 'patId': 1, '_id': 1 }")
 public class Note {
     @Id
     private String id;
     private Integer patId;
     private String patient;
     private String note;
+    /** Termes déclencheurs présents dans le texte, calculés à la création de la note. */
+    private List<String> triggers;
+    /** Version des termes déclencheurs recherchés dans {@link #triggers}. */
+    private String triggerVersion;
+    /** Début du texte en minuscules, pour les termes déclencheurs à cheval avec la note précédente. */
+    private String triggerHead;
+    /** Fin du texte en minuscules, pour les termes déclencheurs à cheval avec la note suivante. */
+    private String triggerTail;
 
     public Note() {
     }
@@ -39,6 +58,22 @@ public class Note {
         return note;
     }
 
+    public List<String> getTriggers() {
+        return triggers;
+    }
+
+    public String getTriggerVersion() {
+        return triggerVersion;
+    }
+
+    public String getTriggerHead() {
+        return triggerHead;
+    }
+
+    public String getTriggerTail() {
+        return triggerTail;
+    }
+
 
 
     public void setId(String id) {
@@ -57,4 +92,20 @@ public class Note {
         this.note = note;
     }
 
+    public void setTriggers(List<String> triggers) {
+        this.triggers = triggers;
+    }
+
+    public void setTriggerVersion(String triggerVersion) {
+        this.triggerVersion = triggerVersion;
+    }
+
+    public void setTriggerHead(String triggerHead) {
+        this.triggerHead = triggerHead;
+    }
+
+    public void setTriggerTail(String triggerTail) {
+        this.triggerTail = triggerTail;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.medilabo.notes_service.proxies;
+
+import com.medilabo.notes_service.model.Note;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Collection;
+
+@FeignClient(name = "diabetes-service", url = "${diabetes.service.url}")
+public interface DiabetesProxy {
+    @PostMapping("/events/notes")
+    void noteCreated(@RequestBody Note note);
+
+    @PostMapping("/events/notes/{patId}")
+    void notesChanged(@PathVariable("patId") Integer patId);
+
+    @PostMapping("/events/notes/bulk")
+    void notesChanged(@RequestBody Collection<Integer> patIds);
+}
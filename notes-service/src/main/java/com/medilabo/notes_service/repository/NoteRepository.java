@@ -1,7 +1,10 @@
 package com.medilabo.notes_service.repository;
 
 import com.medilabo.notes_service.model.Note;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,7 +13,7 @@ import java.util.List;
  * Repository pour l'accès et la manipulation des notes médicales stockées dans MongoDB.
  */
 @Repository
-public interface NoteRepository extends MongoRepository<Note, String> {
+public interface NoteRepository extends MongoRepository<Note, String>, NoteRepositoryCustom {
 
     /**
      * Recherche toutes les notes médicales associées à un patient spécifique.
@@ -20,6 +23,46 @@ public interface NoteRepository extends MongoRepository<Note, String> {
      */
     List<Note> findByPatId(Integer patId);
 
+    /**
+     * Recherche les premières notes médicales d'un patient, dans leur ordre de création.
+     *
+     * @param patId L'identifiant du patient
+     * @param page Nombre de notes à renvoyer (seule la taille de la page est utilisée)
+     * @return Les premières notes du patient
+     */
+    @Query(value = "{ 'patId': ?0 }", sort = "{ '_id': 1 }")
+    List<Note> findFirstPageByPatId(Integer patId, Pageable page);
+
+    /**
+     * Recherche les notes médicales d'un patient créées après une note donnée, dans leur ordre de création.
+     * La recherche reprend directement après cette note dans l'index, sans relire les notes précédentes.
+     *
+     * @param patId L'identifiant du patient
+     * @param after L'identifiant de la dernière note déjà lue
+     * @param page Nombre de notes à renvoyer (seule la taille de la page est utilisée)
+     * @return Les notes suivantes du patient
+     */
+    @Query(value = "{ 'patId': ?0, '_id': { '$gt': ?1 } }", sort = "{ '_id': 1 }")
+    List<Note> findPageByPatIdAfter(Integer patId, ObjectId after, Pageable page);
+
+    /**
+     * Recherche en une seule requête les notes médicales de plusieurs patients.
+     *
+     * @param patIds Les identifiants des patients dont on souhaite récupérer les notes
+     * @return Liste des notes médicales associées à ces patients
+     */
+    List<Note> findByPatIdIn(List<Integer> patIds);
+
+    /**
+     * Recherche les termes déclencheurs des notes d'un patient, dans leur ordre de création, sans lire le texte des notes.
+     *
+     * @param patId L'identifiant du patient
+     * @return Les notes du patient, réduites à leur identifiant, à leurs termes déclencheurs et au début et à la fin de leur texte
+     */
+    @Query(value = "{ 'patId': ?0 }", fields = "{ 'triggers': 1, 'triggerVersion': 1, 'triggerHead': 1, 'triggerTail': 1 }",
+           sort = "{ '_id': 1 }")
+    List<Note> findTriggersByPatId(Integer patId);
+
     /**
      * Supprime toutes les notes associées à un patientId donné.
      *
@@ -0,0 +1,31 @@
+package com.medilabo.notes_service.repository;
+
+import com.medilabo.notes_service.model.Note;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Requêtes du repository des notes dont la projection n'est connue qu'à l'exécution.
+ */
+public interface NoteRepositoryCustom {
+
+    /**
+     * Recherche les notes médicales d'un patient, réduites aux champs demandés.
+     * Seuls ces champs sont lus par MongoDB ; les autres restent null.
+     *
+     * @param patId L'identifiant du patient
+     * @param fields Noms des propriétés de {@link Note} à lire
+     * @return Les notes du patient, réduites aux champs demandés
+     */
+    List<Note> findProjectedByPatId(Integer patId, Collection<String> fields);
+
+    /**
+     * Recherche en une seule requête les notes médicales de plusieurs patients, réduites aux champs demandés.
+     *
+     * @param patIds Les identifiants des patients
+     * @param fields Noms des propriétés de {@link Note} à lire
+     * @return Les notes de ces patients, réduites aux champs demandés
+     */
+    List<Note> findProjectedByPatIdIn(List<Integer> patIds, Collection<String> fields);
+}
@@ -0,0 +1,38 @@
+package com.medilabo.notes_service.repository;
+
+import com.medilabo.notes_service.model.Note;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Implémentation des requêtes à projection dynamique, par {@link MongoTemplate}.
+ * L'identifiant n'est renvoyé que s'il fait partie des champs demandés.
+ */
+public class NoteRepositoryCustomImpl implements NoteRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Note> findProjectedByPatId(Integer patId, Collection<String> fields) {
+        return mongoTemplate.find(project(Query.query(Criteria.where("patId").is(patId)), fields), Note.class);
+    }
+
+    @Override
+    public List<Note> findProjectedByPatIdIn(List<Integer> patIds, Collection<String> fields) {
+        return mongoTemplate.find(project(Query.query(Criteria.where("patId").in(patIds)), fields), Note.class);
+    }
+
+    private static Query project(Query query, Collection<String> fields) {
+        query.fields().include(fields.toArray(String[]::new));
+        if (!fields.contains("id")) {
+            query.fields().exclude("id");
+        }
+        return query;
+    }
+}
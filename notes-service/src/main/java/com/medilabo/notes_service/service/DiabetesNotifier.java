@@ -0,0 +1,62 @@
+package com.medilabo.notes_service.service;
+
+import com.medilabo.notes_service.model.Note;
+import com.medilabo.notes_service.proxies.DiabetesProxy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Prévient le service diabète qu'une note a été ajoutée ou supprimée, afin qu'il
+ * ne réutilise plus une évaluation de risque calculée avec les anciennes notes.
+ * Une note ajoutée est transmise en entier, pour que le service diabète n'ait pas à relire tout l'historique du patient.
+ * La notification est faite au mieux : une erreur est journalisée sans faire échouer l'écriture.
+ */
+@Component
+public class DiabetesNotifier {
+    private static final Logger logger = LogManager.getLogger(DiabetesNotifier.class);
+
+    @Autowired
+    private DiabetesProxy diabetesProxy;
+
+    /**
+     * @param note La note qui vient d'être créée
+     */
+    public void noteCreated(Note note) {
+        try {
+            diabetesProxy.noteCreated(note);
+        } catch (Exception e) {
+            logger.warn("Impossible de notifier le service diabète pour le patient ID {} : {}", note.getPatId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @param patId L'identifiant du patient dont les notes ont été supprimées
+     */
+    public void notesChanged(Integer patId) {
+        try {
+            diabetesProxy.notesChanged(patId);
+        } catch (Exception e) {
+            logger.warn("Impossible de notifier le service diabète pour le patient ID {} : {}", patId, e.getMessage());
+        }
+    }
+
+    /**
+     * Prévient le service diabète en un seul appel, quel que soit le nombre de patients.
+     *
+     * @param patIds Les identifiants des patients dont des notes ont été ajoutées ou modifiées
+     */
+    public void notesChanged(Collection<Integer> patIds) {
+        if (patIds.isEmpty()) {
+            return;
+        }
+        try {
+            diabetesProxy.notesChanged(patIds);
+        } catch (Exception e) {
+            logger.warn("Impossible de notifier le service diabète pour {} patient(s) : {}", patIds.size(), e.getMessage());
+        }
+    }
+}
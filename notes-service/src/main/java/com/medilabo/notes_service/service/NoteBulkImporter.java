@@ -0,0 +1,182 @@
+package com.medilabo.notes_service.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.notes_service.dto.BulkImportResultDTO;
+import com.medilabo.notes_service.dto.BulkItemErrorDTO;
+import com.medilabo.notes_service.model.Note;
+import com.mongodb.bulk.BulkWriteError;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Import en masse de notes médicales, par exemple lors d'une reprise de données d'un autre système.
+ * Les notes sont lues au fil de l'eau, sous forme d'un tableau JSON ou d'une note JSON par ligne (NDJSON),
+ * et enregistrées par lots en une seule requête MongoDB par lot. Les lots sont non ordonnés :
+ * une note rejetée (identifiant déjà existant, par exemple) n'empêche pas l'enregistrement des autres.
+ * Comme lors de la création d'une note, les termes déclencheurs de chaque note sont enregistrés avec elle.
+ */
+@Component
+public class NoteBulkImporter {
+    private static final Logger logger = LogManager.getLogger(NoteBulkImporter.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NoteTriggerExtractor triggerExtractor;
+
+    @Autowired
+    private DiabetesNotifier diabetesNotifier;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    /**
+     * Nombre de notes enregistrées par requête MongoDB.
+     */
+    @Value("${notes.bulk.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Importe les notes lues dans le corps d'une requête. Une note qui n'est pas un objet JSON, qui ne peut pas
+     * être lue ou qui n'a pas de patient est rejetée sans interrompre l'import ; un JSON mal formé arrête la lecture,
+     * les notes lues jusque-là étant enregistrées.
+     *
+     * @param body Corps de la requête : tableau JSON de notes, ou une note JSON par ligne
+     * @param notify Prévenir le service diabète, en un seul appel, des patients dont au moins une note a été enregistrée
+     * @return Le nombre de notes lues et enregistrées, et les notes rejetées
+     * @throws IOException si le corps de la requête ne peut pas être lu
+     */
+    public BulkImportResultDTO importNotes(InputStream body, boolean notify) throws IOException {
+        long start = System.nanoTime();
+        List<BulkItemErrorDTO> errors = new ArrayList<>();
+        Set<Integer> changedPatients = new LinkedHashSet<>();
+        List<Note> batch = new ArrayList<>(batchSize);
+        List<Integer> positions = new ArrayList<>(batchSize);
+        int received = 0;
+        int inserted = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                int index = received++;
+                JsonNode node = objectMapper.readTree(parser);
+                Note note = toNote(node, index, errors);
+                if (note != null) {
+                    // Identifiant attribué avant l'envoi, pour indexer la note sans la relire
+                    if (note.getId() == null) {
+                        note.setId(new ObjectId().toHexString());
+                    }
+                    triggerExtractor.annotate(note);
+                    batch.add(note);
+                    positions.add(index);
+                    if (batch.size() == batchSize) {
+                        inserted += insert(batch, positions, errors, changedPatients);
+                        batch = new ArrayList<>(batchSize);
+                        positions = new ArrayList<>(batchSize);
+                    }
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Import de notes interrompu après {} note(s) : JSON invalide ({})", received, e.getOriginalMessage());
+            errors.add(new BulkItemErrorDTO(received, "JSON invalide : " + e.getOriginalMessage()));
+        }
+        if (!batch.isEmpty()) {
+            inserted += insert(batch, positions, errors, changedPatients);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        double seconds = Math.max(elapsed, 1) / 1_000_000_000.0;
+        logger.info("Import de notes terminé : {} note(s) enregistrée(s) sur {} en {} s ({} notes/s)",
+                    inserted, received, String.format("%.3f", seconds), String.format("%.1f", inserted / seconds));
+        if (notify) {
+            diabetesNotifier.notesChanged(changedPatients);
+        }
+        errors.sort(Comparator.comparingInt(BulkItemErrorDTO::index));
+        return new BulkImportResultDTO(received, inserted, errors, elapsed / 1_000_000);
+    }
+
+    /**
+     * @return La note lue, ou null si elle est rejetée (l'erreur est alors ajoutée)
+     */
+    private Note toNote(JsonNode node, int index, List<BulkItemErrorDTO> errors) {
+        if (node == null || !node.isObject()) {
+            errors.add(new BulkItemErrorDTO(index, "Une note doit être un objet JSON"));
+            return null;
+        }
+        Note note;
+        try {
+            note = objectMapper.treeToValue(node, Note.class);
+        } catch (JsonProcessingException e) {
+            errors.add(new BulkItemErrorDTO(index, "Note illisible : " + e.getOriginalMessage()));
+            return null;
+        }
+        if (note.getPatId() == null) {
+            errors.add(new BulkItemErrorDTO(index, "Identifiant du patient (patId) manquant"));
+            return null;
+        }
+        return note;
+    }
+
+    /**
+     * Enregistre un lot de notes en une seule requête non ordonnée.
+     *
+     * @param batch Notes du lot
+     * @param positions Position de chaque note du lot dans le corps de la requête
+     * @param errors Notes rejetées, complétées par cette méthode
+     * @param changedPatients Patients dont au moins une note a été enregistrée, complétés par cette méthode
+     * @return Le nombre de notes enregistrées
+     */
+    private int insert(List<Note> batch, List<Integer> positions, List<BulkItemErrorDTO> errors, Set<Integer> changedPatients) {
+        Set<Integer> failed = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class).insert(batch).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                errors.add(new BulkItemErrorDTO(positions.get(error.getIndex()), error.getMessage()));
+            }
+        } catch (DataAccessException e) {
+            logger.error("Échec de l'enregistrement d'un lot de {} note(s) : {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                failed.add(i);
+                errors.add(new BulkItemErrorDTO(positions.get(i), "Enregistrement impossible : " + e.getMessage()));
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failed.contains(i)) {
+                changedPatients.add(batch.get(i).getPatId());
+                searchIndex.add(batch.get(i));
+            }
+        }
+        return batch.size() - failed.size();
+    }
+}
@@ -0,0 +1,395 @@
+package com.medilabo.notes_service.service;
+
+import com.medilabo.notes_service.dto.NoteSearchResultDTO;
+import com.medilabo.notes_service.model.Note;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Index inversé en mémoire des mots du texte des notes, pour retrouver les notes et les patients
+ * qui mentionnent un terme sans parcourir la collection.
+ * Les mots sont indexés en minuscules et sans accents : « Hémoglobine » est trouvé par « hemoglobine ».
+ * <p>
+ * L'index est tenu à jour à la création et à la suppression des notes, et reconstruit à partir de MongoDB
+ * au démarrage ; les notes écrites pendant une reconstruction y sont reportées avant qu'elle ne remplace l'index.
+ * Chaque note reçoit un numéro interne croissant, et chaque mot la liste triée des numéros des notes qui le contiennent :
+ * une recherche de plusieurs mots est l'intersection de ces listes. Les notes supprimées sont d'abord seulement marquées ;
+ * quand elles dépassent une part de l'index ({@code notes.search.compact-ratio}), les notes restantes sont renumérotées
+ * et les mots qui n'apparaissaient que dans des notes supprimées sont retirés, sans relire MongoDB.
+ */
+@Component
+public class NoteSearchIndex {
+    private static final Logger logger = LogManager.getLogger(NoteSearchIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${notes.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${notes.stream.batch-size:500}")
+    private int readBatchSize;
+
+    @Value("${notes.search.compact-ratio:0.25}")
+    private double compactRatio;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+
+    /**
+     * Écritures reçues pendant une reconstruction, à reporter sur le nouvel index ; null hors reconstruction.
+     */
+    private List<Change> duringRebuild;
+
+    /**
+     * Note ajoutée, ou notes d'un patient supprimées.
+     */
+    private record Change(Note added, Integer removedPatId) {
+
+        void applyTo(Index index) {
+            if (added != null) {
+                index.add(added);
+            } else {
+                index.removePatient(removedPatId);
+            }
+        }
+    }
+
+    /**
+     * Numéros de notes croissants, dans un tableau agrandi au besoin.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        /**
+         * @param renumbered Nouveau numéro de chaque note, ou -1 pour une note supprimée
+         * @return true s'il reste au moins une note dans la liste
+         */
+        boolean renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[kept++] = doc;
+                }
+            }
+            size = kept;
+            if (docs.length > Math.max(4, size * 2)) {
+                docs = Arrays.copyOf(docs, Math.max(4, size));
+            }
+            return size > 0;
+        }
+    }
+
+    private static final class Index {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Integer, Postings> docsByPatient = new HashMap<>();
+        private final List<String> noteIds = new ArrayList<>();
+        private int[] patIds = new int[1024];
+        private final BitSet deleted = new BitSet();
+
+        void add(Note note) {
+            if (note.getId() == null || note.getPatId() == null) {
+                return;
+            }
+            int doc = noteIds.size();
+            noteIds.add(note.getId());
+            if (doc == patIds.length) {
+                patIds = Arrays.copyOf(patIds, doc * 2);
+            }
+            patIds[doc] = note.getPatId();
+            docsByPatient.computeIfAbsent(note.getPatId(), patId -> new Postings()).add(doc);
+            for (String token : tokenize(note.getNote())) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(doc);
+            }
+        }
+
+        void removePatient(int patId) {
+            Postings docs = docsByPatient.remove(patId);
+            if (docs != null) {
+                for (int i = 0; i < docs.size; i++) {
+                    deleted.set(docs.docs[i]);
+                }
+            }
+        }
+
+        int size() {
+            return noteIds.size() - deleted.cardinality();
+        }
+
+        /**
+         * @return La part des notes de l'index qui sont supprimées
+         */
+        double deletedRatio() {
+            return noteIds.isEmpty() ? 0 : (double) deleted.cardinality() / noteIds.size();
+        }
+
+        /**
+         * Renumérote les notes restantes dans leur ordre d'indexation, les listes de numéros restant ainsi triées,
+         * et retire les mots qui n'apparaissaient que dans des notes supprimées.
+         */
+        void compact() {
+            int[] renumbered = new int[noteIds.size()];
+            List<String> keptIds = new ArrayList<>(size());
+            int[] keptPatIds = new int[Math.max(1024, size())];
+            for (int doc = 0; doc < renumbered.length; doc++) {
+                if (deleted.get(doc)) {
+                    renumbered[doc] = -1;
+                } else {
+                    renumbered[doc] = keptIds.size();
+                    keptPatIds[keptIds.size()] = patIds[doc];
+                    keptIds.add(noteIds.get(doc));
+                }
+            }
+            postings.values().removeIf(list -> !list.renumber(renumbered));
+            docsByPatient.values().forEach(list -> list.renumber(renumbered));
+            noteIds.clear();
+            noteIds.addAll(keptIds);
+            patIds = keptPatIds;
+            deleted.clear();
+        }
+    }
+
+    /**
+     * Découpe un texte en mots normalisés : minuscules, sans accents, sans doublon.
+     *
+     * @param text Texte à découper, éventuellement null
+     * @return Les mots du texte, dans l'ordre de leur première apparition
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Ajoute une note enregistrée à l'index.
+     *
+     * @param note La note, avec son identifiant
+     */
+    public void add(Note note) {
+        write(new Change(note, null));
+    }
+
+    /**
+     * Retire de l'index toutes les notes d'un patient.
+     *
+     * @param patId L'identifiant du patient
+     */
+    public void removePatient(Integer patId) {
+        write(new Change(null, patId));
+    }
+
+    private void write(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(index);
+            if (change.added() == null) {
+                compactIfNeeded(index);
+            }
+            if (duringRebuild != null) {
+                duringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche les notes contenant tous les mots d'une requête, après la même normalisation que le texte des notes.
+     *
+     * @param query Mots recherchés
+     * @param limit Nombre maximal d'identifiants de notes renvoyés
+     * @return Les patients concernés, les premières notes trouvées dans leur ordre d'indexation, et le nombre total de notes
+     * @throws IllegalArgumentException si la requête ne contient aucun mot
+     */
+    public NoteSearchResultDTO search(String query, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("La recherche doit contenir au moins un mot");
+        }
+        Set<Integer> patIds = new TreeSet<>();
+        List<String> noteIds = new ArrayList<>();
+        int total = 0;
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings postings = index.postings.get(token);
+                if (postings == null) {
+                    return new NoteSearchResultDTO(query, List.of(), List.of(), 0);
+                }
+                lists.add(postings);
+            }
+            // Parcourir la liste la plus courte et chercher chacun de ses numéros dans les autres
+            lists.sort(Comparator.comparingInt(postings -> postings.size));
+            Postings shortest = lists.get(0);
+            int[] positions = new int[lists.size()];
+            candidates:
+            for (int i = 0; i < shortest.size; i++) {
+                int doc = shortest.docs[i];
+                for (int l = 1; l < lists.size(); l++) {
+                    Postings other = lists.get(l);
+                    int found = Arrays.binarySearch(other.docs, positions[l], other.size, doc);
+                    if (found < 0) {
+                        positions[l] = -found - 1;
+                        continue candidates;
+                    }
+                    positions[l] = found;
+                }
+                if (index.deleted.get(doc)) {
+                    continue;
+                }
+                total++;
+                patIds.add(index.patIds[doc]);
+                if (noteIds.size() < limit) {
+                    noteIds.add(index.noteIds.get(doc));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new NoteSearchResultDTO(query, new ArrayList<>(patIds), noteIds, total);
+    }
+
+    /**
+     * @return Le nombre de notes présentes dans l'index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruit l'index à partir de toutes les notes enregistrées dans MongoDB, lues par un curseur.
+     * L'index en place reste utilisé jusqu'à la fin de la lecture.
+     *
+     * @return Le nombre de notes indexées
+     */
+    public int rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            duringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Index rebuilt = new Index();
+        try {
+            Query query = new Query().with(Sort.by("_id")).cursorBatchSize(readBatchSize);
+            query.fields().include("patId", "note");
+            try (Stream<Note> notes = mongoTemplate.stream(query, Note.class)) {
+                notes.forEach(rebuilt::add);
+            }
+            lock.writeLock().lock();
+            try {
+                replay(duringRebuild, rebuilt);
+                compactIfNeeded(rebuilt);
+                index = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                duringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        int size = size();
+        logger.info("Index de recherche des notes reconstruit : {} note(s) en {} ms", size, (System.nanoTime() - start) / 1_000_000);
+        return size;
+    }
+
+    private void compactIfNeeded(Index target) {
+        if (target.deletedRatio() > compactRatio) {
+            int before = target.noteIds.size();
+            target.compact();
+            logger.debug("Index de recherche des notes compacté : {} note(s) sur {} conservées", target.noteIds.size(), before);
+        }
+    }
+
+    /**
+     * Reporte sur l'index reconstruit les écritures reçues pendant sa lecture. Une note déjà lue dans MongoDB
+     * n'est pas ajoutée une seconde fois, sauf si les notes de son patient ont été supprimées entre-temps.
+     */
+    private static void replay(List<Change> changes, Index rebuilt) {
+        Set<String> added = new HashSet<>();
+        changes.stream().filter(change -> change.added() != null).forEach(change -> added.add(change.added().getId()));
+        Set<String> alreadyRead = new HashSet<>();
+        if (!added.isEmpty()) {
+            rebuilt.noteIds.stream().filter(added::contains).forEach(alreadyRead::add);
+        }
+        Set<Integer> removedPatients = new HashSet<>();
+        for (Change change : changes) {
+            if (change.added() == null) {
+                removedPatients.add(change.removedPatId());
+            } else if (alreadyRead.contains(change.added().getId()) && !removedPatients.contains(change.added().getPatId())) {
+                continue;
+            }
+            change.applyTo(rebuilt);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Reconstruction de l'index de recherche des notes impossible : {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,14 +1,33 @@
 package com.medilabo.notes_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.notes_service.dto.NotePageDTO;
+import com.medilabo.notes_service.dto.TriggerSummaryDTO;
 import com.medilabo.notes_service.model.Note;
 import com.medilabo.notes_service.repository.NoteRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Service gérant les fonctionnalités nécessaires pour créer, récupérer et supprimer
@@ -19,9 +38,44 @@ import java.util.List;
 public class NoteService {
     private static final Logger logger = LogManager.getLogger(NoteService.class);
 
+    private static final byte NEWLINE = '\n';
+
+    /**
+     * Propriétés de {@link Note} qui peuvent être demandées dans une projection.
+     */
+    private static final Set<String> PROJECTABLE_FIELDS = Set.of("id", "patId", "patient", "note", "triggers", "triggerVersion");
+
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private DiabetesNotifier diabetesNotifier;
+
+    @Autowired
+    private NoteTriggerExtractor triggerExtractor;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    /**
+     * Nombre maximal de notes renvoyées dans une page.
+     */
+    @Value("${notes.page.max-size:500}")
+    private int maxPageSize;
+
+    /**
+     * Nombre de notes lues par aller-retour avec MongoDB lors d'une lecture en flux,
+     * et nombre de notes écrites entre deux envois au client.
+     */
+    @Value("${notes.stream.batch-size:500}")
+    private int streamBatchSize;
+
     /**
      * Recherche toutes les notes médicales associées à un patient spécifique.
      *
@@ -33,14 +87,180 @@ public class NoteService {
     }
 
     /**
-     * Crée une nouvelle note médicale
+     * Recherche les notes médicales d'un patient, réduites aux champs demandés.
+     *
+     * @param patId L'identifiant du patient dont on souhaite récupérer les notes
+     * @param fields Noms des champs à renvoyer séparés par des virgules, ou null pour les notes complètes
+     * @return Liste des notes médicales associées au patient
+     * @throws IllegalArgumentException si un champ demandé n'existe pas
+     */
+    public List<Note> findByPatientId(Integer patId, String fields) {
+        Set<String> projection = parseFields(fields);
+        return projection == null ? findByPatientId(patId) : noteRepository.findProjectedByPatId(patId, projection);
+    }
+
+    /**
+     * @param fields Noms des champs séparés par des virgules, éventuellement null
+     * @return Les champs demandés, ou null si aucun champ n'est demandé
+     * @throws IllegalArgumentException si un champ demandé n'existe pas
+     */
+    static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> projection = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!PROJECTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Champ inconnu : " + name);
+            }
+            projection.add(name);
+        }
+        return projection;
+    }
+
+    /**
+     * Recherche une page de notes médicales d'un patient, dans leur ordre de création.
+     * Chaque page reprend après la dernière note de la précédente : le coût d'une page ne dépend pas
+     * du nombre de notes déjà lues, et une note créée entre deux pages n'en décale pas le contenu.
+     *
+     * @param patId L'identifiant du patient
+     * @param after Le jeton de la page précédente, ou null pour la première page
+     * @param size Le nombre maximal de notes de la page
+     * @return Les notes de la page et le jeton de la page suivante
+     * @throws IllegalArgumentException si la taille demandée ou le jeton est invalide
+     */
+    public NotePageDTO findPageByPatientId(Integer patId, String after, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("La taille de page doit être comprise entre 1 et " + maxPageSize);
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new IllegalArgumentException("Jeton de page invalide : " + after);
+        }
+        // Une note de plus que demandé indique s'il existe une page suivante
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Note> notes = after == null ? noteRepository.findFirstPageByPatId(patId, limit)
+                : noteRepository.findPageByPatIdAfter(patId, new ObjectId(after), limit);
+        if (notes.size() <= size) {
+            return new NotePageDTO(notes, null);
+        }
+        List<Note> page = notes.subList(0, size);
+        return new NotePageDTO(page, page.get(size - 1).getId());
+    }
+
+    /**
+     * Écrit toutes les notes médicales d'un patient, dans leur ordre de création, une ligne JSON par note (NDJSON).
+     * Les notes sont lues par un curseur MongoDB, par lots de {@code notes.stream.batch-size}, et chaque lot
+     * est envoyé au client dès qu'il est écrit : ni ce service ni le client n'ont à charger tout l'historique.
+     *
+     * @param patId L'identifiant du patient
+     * @param out Flux de sortie de la réponse HTTP
+     * @return Le nombre de notes écrites
+     * @throws IOException si le client se déconnecte
+     */
+    public long streamByPatientId(Integer patId, OutputStream out) throws IOException {
+        Query query = Query.query(Criteria.where("patId").is(patId))
+                           .with(Sort.by("_id"))
+                           .cursorBatchSize(streamBatchSize);
+        long count = 0;
+        try (Stream<Note> notes = mongoTemplate.stream(query, Note.class)) {
+            for (Note note : (Iterable<Note>) notes::iterator) {
+                out.write(objectMapper.writeValueAsBytes(note));
+                out.write(NEWLINE);
+                if (++count % streamBatchSize == 0) {
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        logger.debug("{} note(s) envoyée(s) en flux pour le patient ID {}", count, patId);
+        return count;
+    }
+
+    /**
+     * Recherche en une seule requête les notes médicales de plusieurs patients.
+     *
+     * @param patIds Les identifiants des patients dont on souhaite récupérer les notes
+     * @return Liste des notes médicales associées à ces patients
+     */
+    public List<Note> findByPatientIds(List<Integer> patIds) {
+        return noteRepository.findByPatIdIn(patIds);
+    }
+
+    /**
+     * Recherche en une seule requête les notes médicales de plusieurs patients, réduites aux champs demandés.
+     *
+     * @param patIds Les identifiants des patients dont on souhaite récupérer les notes
+     * @param fields Noms des champs à renvoyer séparés par des virgules, ou null pour les notes complètes
+     * @return Liste des notes médicales associées à ces patients
+     * @throws IllegalArgumentException si un champ demandé n'existe pas
+     */
+    public List<Note> findByPatientIds(List<Integer> patIds, String fields) {
+        Set<String> projection = parseFields(fields);
+        return projection == null ? findByPatientIds(patIds) : noteRepository.findProjectedByPatIdIn(patIds, projection);
+    }
+
+    /**
+     * Rassemble les termes déclencheurs de toutes les notes d'un patient, sans lire le texte des notes
+     * dont les termes ont été enregistrés avec la version en service. Les autres notes (créées avant
+     * l'enregistrement des termes, ou avec une autre version) sont relues et analysées.
+     * Les notes étant séparées par un espace, comme si elles étaient concaténées, les termes à cheval entre
+     * deux notes sont retrouvés à partir du début et de la fin enregistrés de chaque texte : le résultat est
+     * celui d'une lecture de toutes les notes par le service diabète.
+     *
+     * @param patId L'identifiant du patient
+     * @return Les termes déclencheurs du patient, vides s'il n'a aucune note
+     */
+    public TriggerSummaryDTO getTriggerSummary(Integer patId) {
+        String version = triggerExtractor.version();
+        List<Note> notes = noteRepository.findTriggersByPatId(patId);
+        List<String> staleIds = new ArrayList<>();
+        for (Note note : notes) {
+            // Une note sans début ni fin enregistrés (texte absent, ou note antérieure) est relue
+            if (!version.equals(note.getTriggerVersion()) || note.getTriggers() == null || note.getTriggerTail() == null) {
+                staleIds.add(note.getId());
+            }
+        }
+        Map<String, Note> reread = new HashMap<>();
+        if (!staleIds.isEmpty()) {
+            logger.debug("Termes déclencheurs recalculés pour {} note(s) du patient ID {}", staleIds.size(), patId);
+            noteRepository.findAllById(staleIds).forEach(note -> {
+                triggerExtractor.annotate(note);
+                reread.put(note.getId(), note);
+            });
+        }
+        Set<String> triggers = new LinkedHashSet<>();
+        String tail = null;
+        String lastNoteId = null;
+        for (Note stored : notes) {
+            Note note = reread.getOrDefault(stored.getId(), stored);
+            if (note.getTriggers() != null) {
+                triggers.addAll(note.getTriggers());
+            }
+            // Les notes sans texte sont ignorées par le service diabète, sans espace de séparation
+            if (note.getTriggerTail() != null) {
+                tail = triggerExtractor.across(tail, note.getTriggerHead(), note.getTriggerTail(), triggers);
+            }
+            if (note.getId() != null && (lastNoteId == null || note.getId().compareTo(lastNoteId) > 0)) {
+                lastNoteId = note.getId();
+            }
+        }
+        return new TriggerSummaryDTO(patId, version, new ArrayList<>(triggers), notes.size(), lastNoteId, tail);
+    }
+
+    /**
+     * Crée une nouvelle note médicale. Les termes déclencheurs présents dans son texte
+     * sont enregistrés avec elle, et ses mots sont ajoutés à l'index de recherche.
      *
      * @param newNote L'objet Note contenant les informations de la nouvelle note
      * @return La note créée avec son identifiant généré
      */
     public Note createNote(Note newNote) {
+        triggerExtractor.annotate(newNote);
         Note savedNote = noteRepository.save(newNote);
         logger.info("Successfully created note for the patient {}", savedNote.getPatient());
+        searchIndex.add(savedNote);
+        diabetesNotifier.noteCreated(savedNote);
         return savedNote;
     }
 
@@ -55,5 +275,7 @@ public class NoteService {
     public void deleteNotesByPatientId(Integer patId) {
         long deletedCount = noteRepository.deleteByPatId(patId);
         logger.info("Suppression de {} note(s) pour le patient ID {}", deletedCount, patId);
+        searchIndex.removePatient(patId);
+        diabetesNotifier.notesChanged(patId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.medilabo.notes_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.notes_service.model.Note;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Recherche les termes déclencheurs du risque de diabète dans le texte d'une note, pour qu'ils soient
+ * enregistrés avec la note à sa création : le service diabète peut alors évaluer un patient
+ * sans recevoir le texte de ses notes.
+ * Les termes sont lus au démarrage depuis le même fichier que le service diabète ({@code notes.triggers.location},
+ * format {@code {"version": "...", "terms": [...]}}) ; sans fichier configuré, la liste intégrée est utilisée,
+ * sous une version dérivée de son contenu : elle n'est celle de la liste intégrée du service diabète
+ * que si les deux listes sont identiques.
+ * La comparaison est insensible à la casse, en locale neutre.
+ * <p>
+ * Le service diabète recherche les termes dans les notes d'un patient séparées par un espace, comme si elles étaient
+ * concaténées : un terme peut être à cheval entre deux notes. Le début et la fin du texte de chaque note
+ * sont donc enregistrés avec ses termes, pour retrouver ces termes sans relire le texte des notes.
+ */
+@Component
+public class NoteTriggerExtractor {
+    private static final Logger logger = LogManager.getLogger(NoteTriggerExtractor.class);
+
+    /**
+     * Liste intégrée des termes déclencheurs, identique à celle du service diabète.
+     */
+    public static final List<String> BUILTIN_TERMS = List.of(
+            "hémoglobine a1c",
+            "microalbumine",
+            "taille",
+            "poids",
+            "fumeur",
+            "fumeuse",
+            "fumer",
+            "anormal",
+            "cholestérol",
+            "vertiges",
+            "vertige",
+            "rechute",
+            "réaction",
+            "réactions",
+            "anticorps"
+    );
+
+    /**
+     * Version de la liste intégrée de termes déclencheurs, dérivée de son contenu (voir {@link #builtinVersion(List)}).
+     */
+    public static final String BUILTIN_VERSION = builtinVersion(BUILTIN_TERMS);
+
+    private final String version;
+    private final List<String> terms;
+    private final int boundaryLength;
+
+    public NoteTriggerExtractor(ObjectMapper objectMapper, ResourceLoader resourceLoader,
+                                @Value("${notes.triggers.location:}") String location) {
+        if (location == null || location.isBlank()) {
+            this.version = BUILTIN_VERSION;
+            this.terms = normalize(BUILTIN_TERMS);
+        } else {
+            try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+                JsonNode config = objectMapper.readTree(in);
+                List<String> configured = new ArrayList<>();
+                config.path("terms").forEach(term -> configured.add(term.asText()));
+                if (!config.hasNonNull("version") || configured.isEmpty()) {
+                    throw new IllegalArgumentException("version ou termes absents");
+                }
+                this.version = config.get("version").asText();
+                this.terms = normalize(configured);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalStateException("Impossible de charger les termes déclencheurs depuis " + location + " : " + e.getMessage(), e);
+            }
+        }
+        // Un terme à cheval entre deux notes commence au plus à (longueur - 1) caractères de la fin de la première
+        this.boundaryLength = terms.stream().mapToInt(String::length).max().orElse(1) - 1;
+        logger.info("Termes déclencheurs version {} chargés ({} termes)", version, terms.size());
+    }
+
+    private static List<String> normalize(List<String> terms) {
+        Set<String> distinct = new LinkedHashSet<>();
+        terms.forEach(term -> distinct.add(term.toLowerCase(Locale.ROOT)));
+        return List.copyOf(distinct);
+    }
+
+    /**
+     * Calcule la version d'une liste intégrée de termes à partir de son contenu, selon la même règle que
+     * le service diabète : deux services n'annoncent la même version que s'ils recherchent les mêmes termes.
+     *
+     * @param terms Termes de la liste intégrée
+     * @return {@code builtin-} suivi du début de l'empreinte SHA-256 des termes en minuscules, sans doublon, un par ligne
+     */
+    static String builtinVersion(List<String> terms) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                                         .digest(String.join("\n", normalize(terms)).getBytes(StandardCharsets.UTF_8));
+            return "builtin-" + HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * @return La version des termes déclencheurs recherchés
+     */
+    public String version() {
+        return version;
+    }
+
+    /**
+     * @param text Texte d'une note, éventuellement null
+     * @return Les termes déclencheurs présents dans le texte, en minuscules, dans l'ordre de la liste des termes
+     */
+    public List<String> extract(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        List<String> found = new ArrayList<>();
+        for (String term : terms) {
+            if (normalized.contains(term)) {
+                found.add(term);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Enregistre dans une note les termes déclencheurs présents dans son texte, la version de ces termes,
+     * et le début et la fin de son texte en minuscules (voir {@link #across(String, String, String, Set)}).
+     *
+     * @param note Note à compléter
+     */
+    public void annotate(Note note) {
+        String text = note.getNote();
+        note.setTriggers(extract(text));
+        note.setTriggerVersion(version);
+        if (text == null) {
+            note.setTriggerHead(null);
+            note.setTriggerTail(null);
+        } else {
+            String normalized = text.toLowerCase(Locale.ROOT);
+            note.setTriggerHead(head(normalized));
+            note.setTriggerTail(tail(normalized));
+        }
+    }
+
+    /**
+     * Recherche les termes à cheval entre les notes précédentes et une nouvelle note, séparées par un espace.
+     *
+     * @param before Fin du texte des notes précédentes, telle que renvoyée par l'appel précédent, ou null si aucune note
+     * @param head Début du texte de la nouvelle note en minuscules ({@link Note#getTriggerHead()})
+     * @param tail Fin du texte de la nouvelle note en minuscules ({@link Note#getTriggerTail()})
+     * @param found Termes trouvés, complétés par ceux à cheval entre les notes
+     * @return La fin du texte des notes lues, nouvelle note comprise
+     */
+    public String across(String before, String head, String tail, Set<String> found) {
+        if (before == null) {
+            return tail;
+        }
+        String window = before + ' ' + head;
+        for (String term : terms) {
+            if (window.contains(term)) {
+                found.add(term);
+            }
+        }
+        // Une note plus courte que la fin conservée ne suffit pas à la remplacer
+        return tail.length() < boundaryLength ? tail(before + ' ' + tail) : tail;
+    }
+
+    private String head(String normalized) {
+        return normalized.substring(0, Math.min(boundaryLength, normalized.length()));
+    }
+
+    private String tail(String normalized) {
+        return normalized.substring(Math.max(0, normalized.length() - boundaryLength));
+    }
+}
@@ -1,6 +1,12 @@
 package com.medilabo.notes_service.controller;
 
+import com.medilabo.notes_service.dto.BulkImportResultDTO;
+import com.medilabo.notes_service.dto.NotePageDTO;
+import com.medilabo.notes_service.dto.NoteSearchResultDTO;
+import com.medilabo.notes_service.dto.TriggerSummaryDTO;
 import com.medilabo.notes_service.model.Note;
+import com.medilabo.notes_service.service.NoteBulkImporter;
+import com.medilabo.notes_service.service.NoteSearchIndex;
 import com.medilabo.notes_service.service.NoteService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,8 +15,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -23,6 +34,12 @@ class NoteControllerTest {
     @Mock
     private NoteService noteService;
 
+    @Mock
+    private NoteBulkImporter noteBulkImporter;
+
+    @Mock
+    private NoteSearchIndex noteSearchIndex;
+
     @InjectMocks
     private NoteController noteController;
 
@@ -38,13 +55,117 @@ class NoteControllerTest {
     void getNotesByPatientIdTest() {
 
         List<Note> expectedNotes = Arrays.asList(testNote);
-        when(noteService.findByPatientId(1)).thenReturn(expectedNotes);
+        when(noteService.findByPatientId(1, null)).thenReturn(expectedNotes);
 
-        ResponseEntity<List<Note>> response = noteController.getNotesByPatientId(1);
+        ResponseEntity<List<Note>> response = noteController.getNotesByPatientId(1, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedNotes, response.getBody());
-        verify(noteService).findByPatientId(1);
+        verify(noteService).findByPatientId(1, null);
+    }
+
+    @Test
+    void getNotesByPatientId_UnknownFieldTest() {
+
+        when(noteService.findByPatientId(1, "id,texte")).thenThrow(new IllegalArgumentException("Champ inconnu : texte"));
+
+        ResponseEntity<List<Note>> response = noteController.getNotesByPatientId(1, "id,texte");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void streamNotesByPatientIdTest() throws Exception {
+
+        ResponseEntity<StreamingResponseBody> response = noteController.streamNotesByPatientId(1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(noteService).streamByPatientId(1, out);
+    }
+
+    @Test
+    void importNotesTest() throws Exception {
+
+        InputStream body = new ByteArrayInputStream("[]".getBytes());
+        BulkImportResultDTO expectedResult = new BulkImportResultDTO(0, 0, List.of(), 1);
+        when(noteBulkImporter.importNotes(body, true)).thenReturn(expectedResult);
+
+        ResponseEntity<BulkImportResultDTO> response = noteController.importNotes(body, true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResult, response.getBody());
+    }
+
+    @Test
+    void getNotePageByPatientIdTest() {
+
+        NotePageDTO expectedPage = new NotePageDTO(List.of(testNote), "testId");
+        when(noteService.findPageByPatientId(1, null, 50)).thenReturn(expectedPage);
+
+        ResponseEntity<NotePageDTO> response = noteController.getNotePageByPatientId(1, null, 50);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedPage, response.getBody());
+    }
+
+    @Test
+    void getNotePageByPatientId_InvalidTokenTest() {
+
+        when(noteService.findPageByPatientId(1, "x", 50)).thenThrow(new IllegalArgumentException("Jeton de page invalide : x"));
+
+        ResponseEntity<NotePageDTO> response = noteController.getNotePageByPatientId(1, "x", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void searchNotesTest() {
+
+        NoteSearchResultDTO expectedResult = new NoteSearchResultDTO("vertige", List.of(1, 3), List.of("n1", "n3"), 2);
+        when(noteSearchIndex.search("vertige", 100)).thenReturn(expectedResult);
+
+        ResponseEntity<NoteSearchResultDTO> response = noteController.searchNotes("vertige", 100);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResult, response.getBody());
+    }
+
+    @Test
+    void searchNotes_EmptyQueryTest() {
+
+        when(noteSearchIndex.search(" ", 100)).thenThrow(new IllegalArgumentException("La recherche doit contenir au moins un mot"));
+
+        ResponseEntity<NoteSearchResultDTO> response = noteController.searchNotes(" ", 100);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getNotesByPatientIdsTest() {
+
+        List<Note> expectedNotes = Arrays.asList(testNote);
+        when(noteService.findByPatientIds(List.of(1, 2), "id,note")).thenReturn(expectedNotes);
+
+        ResponseEntity<List<Note>> response = noteController.getNotesByPatientIds(List.of(1, 2), "id,note");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedNotes, response.getBody());
+        verify(noteService).findByPatientIds(List.of(1, 2), "id,note");
+    }
+
+    @Test
+    void getTriggerSummaryTest() {
+
+        TriggerSummaryDTO summary = new TriggerSummaryDTO(1, "builtin", List.of("poids"), 1, "testId", "poids");
+        when(noteService.getTriggerSummary(1)).thenReturn(summary);
+
+        ResponseEntity<TriggerSummaryDTO> response = noteController.getTriggerSummary(1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(summary, response.getBody());
     }
 
     @Test
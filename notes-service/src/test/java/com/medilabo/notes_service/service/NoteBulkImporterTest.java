@@ -0,0 +1,129 @@
+package com.medilabo.notes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.notes_service.dto.BulkImportResultDTO;
+import com.medilabo.notes_service.dto.BulkItemErrorDTO;
+import com.medilabo.notes_service.model.Note;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteBulkImporterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private DiabetesNotifier diabetesNotifier;
+
+    @Mock
+    private NoteSearchIndex searchIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private NoteTriggerExtractor triggerExtractor = new NoteTriggerExtractor(new ObjectMapper(), new DefaultResourceLoader(), "");
+
+    @InjectMocks
+    private NoteBulkImporter noteBulkImporter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(noteBulkImporter, "batchSize", 2);
+    }
+
+    private InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void acceptBulkInserts() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importNotes_NdjsonTest() throws IOException {
+        acceptBulkInserts();
+
+        BulkImportResultDTO result = noteBulkImporter.importNotes(body("""
+                {"patId": 1, "patient": "TestNone", "note": "Fumeur"}
+                {"patient": "Sans patient", "note": "Vertige"}
+                {"patId": 2, "note": "Hémoglobine A1C"}
+                {"patId": 2, "note": "Poids"}
+                """), true);
+
+        assertEquals(4, result.received());
+        assertEquals(3, result.inserted());
+        assertEquals(List.of(1), result.errors().stream().map(BulkItemErrorDTO::index).toList());
+        ArgumentCaptor<List<Note>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals(List.of("fumeur"), batches.getAllValues().get(0).get(0).getTriggers());
+        assertNotNull(batches.getAllValues().get(0).get(0).getId());
+        verify(searchIndex, times(3)).add(any(Note.class));
+        // Un seul appel au service diabète pour tous les patients importés
+        verify(diabetesNotifier).notesChanged(Set.of(1, 2));
+        verify(diabetesNotifier, never()).notesChanged(anyInt());
+    }
+
+    @Test
+    void importNotes_RejectedInsertTest() throws IOException {
+        acceptBulkInserts();
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        when(bulkOperations.execute()).thenThrow(duplicate);
+
+        BulkImportResultDTO result = noteBulkImporter.importNotes(body("""
+                [{"patId": 1, "note": "a"}, {"id": "existant", "patId": 2, "note": "b"}, 42]
+                """), false);
+
+        assertEquals(3, result.received());
+        assertEquals(1, result.inserted());
+        assertEquals(List.of(1, 2), result.errors().stream().map(BulkItemErrorDTO::index).toList());
+        assertEquals("E11000 duplicate key", result.errors().get(0).message());
+        verify(searchIndex, times(1)).add(any(Note.class));
+        verifyNoInteractions(diabetesNotifier);
+    }
+
+    @Test
+    void importNotes_MalformedJsonTest() throws IOException {
+        acceptBulkInserts();
+
+        BulkImportResultDTO result = noteBulkImporter.importNotes(body("""
+                [{"patId": 1, "note": "a"}, {"patId": 2, "note": """), true);
+
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.errors().size());
+        assertTrue(result.errors().get(0).message().startsWith("JSON invalide"));
+        verify(diabetesNotifier).notesChanged(Set.of(1));
+    }
+}
@@ -0,0 +1,148 @@
+package com.medilabo.notes_service.service;
+
+import com.medilabo.notes_service.dto.NoteSearchResultDTO;
+import com.medilabo.notes_service.model.Note;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteSearchIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private NoteSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchIndex, "readBatchSize", 500);
+        ReflectionTestUtils.setField(searchIndex, "compactRatio", 0.25);
+    }
+
+    private Note note(String id, Integer patId, String text) {
+        Note note = new Note();
+        note.setId(id);
+        note.setPatId(patId);
+        note.setNote(text);
+        return note;
+    }
+
+    @Test
+    void tokenizeTest() {
+        assertEquals(Set.of("hemoglobine", "a1c", "elevee"), NoteSearchIndex.tokenize("Hémoglobine A1C élevée, élevée !"));
+        assertTrue(NoteSearchIndex.tokenize(" ,; ").isEmpty());
+        assertTrue(NoteSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void searchAllWordsTest() {
+        searchIndex.add(note("n1", 1, "Le patient déclare avoir des vertiges"));
+        searchIndex.add(note("n2", 2, "Vertiges et hémoglobine A1C élevée"));
+        searchIndex.add(note("n3", 3, "Hémoglobine A1C normale"));
+
+        NoteSearchResultDTO result = searchIndex.search("hemoglobine VERTIGES", 10);
+
+        assertEquals(List.of(2), result.patIds());
+        assertEquals(List.of("n2"), result.noteIds());
+        assertEquals(1, result.totalNotes());
+        assertEquals(List.of(2, 3), searchIndex.search("Hémoglobine", 10).patIds());
+        assertEquals(0, searchIndex.search("fumeur", 10).totalNotes());
+    }
+
+    @Test
+    void searchLimitTest() {
+        searchIndex.add(note("n1", 4, "Fumeur"));
+        searchIndex.add(note("n2", 1, "Fumeuse, anciennement fumeur"));
+        searchIndex.add(note("n3", 4, "Toujours fumeur"));
+
+        NoteSearchResultDTO result = searchIndex.search("fumeur", 2);
+
+        assertEquals(List.of(1, 4), result.patIds());
+        assertEquals(List.of("n1", "n2"), result.noteIds());
+        assertEquals(3, result.totalNotes());
+    }
+
+    @Test
+    void search_EmptyQueryTest() {
+        assertThrows(IllegalArgumentException.class, () -> searchIndex.search(" - ", 10));
+    }
+
+    @Test
+    void removePatientTest() {
+        searchIndex.add(note("n1", 1, "Vertiges"));
+        searchIndex.add(note("n2", 2, "Vertiges"));
+
+        searchIndex.removePatient(1);
+
+        assertEquals(List.of(2), searchIndex.search("vertiges", 10).patIds());
+        assertEquals(1, searchIndex.size());
+    }
+
+    @Test
+    void removePatientCompactsTest() {
+        for (int i = 0; i < 8; i++) {
+            searchIndex.add(note("n" + i, i % 4, i % 4 == 0 ? "Rechute" : "Vertiges"));
+        }
+
+        searchIndex.removePatient(0);
+        searchIndex.removePatient(1);
+        searchIndex.add(note("n8", 5, "Vertiges et rechute"));
+
+        // Plus d'un quart des notes étaient supprimées : seules les notes restantes sont conservées
+        Object index = ReflectionTestUtils.getField(searchIndex, "index");
+        assertEquals(5, ((List<?>) ReflectionTestUtils.getField(index, "noteIds")).size());
+        assertEquals(5, searchIndex.size());
+        assertEquals(List.of(2, 3, 5), searchIndex.search("vertiges", 10).patIds());
+        assertEquals(List.of("n2", "n3", "n6", "n7", "n8"), searchIndex.search("vertiges", 10).noteIds());
+        assertEquals(List.of("n8"), searchIndex.search("rechute", 10).noteIds());
+
+        searchIndex.removePatient(2);
+
+        assertEquals(List.of(3, 5), searchIndex.search("vertiges", 10).patIds());
+    }
+
+    @Test
+    void rebuildTest() {
+        searchIndex.add(note("ancienne", 9, "Vertiges"));
+        when(mongoTemplate.stream(any(Query.class), eq(Note.class))).thenReturn(Stream.of(
+                note("n1", 1, "Réaction aux anticorps"), note("n2", 2, "Anticorps normaux")));
+
+        int size = searchIndex.rebuild();
+
+        assertEquals(2, size);
+        assertEquals(List.of(1, 2), searchIndex.search("anticorps", 10).patIds());
+        assertEquals(0, searchIndex.search("vertiges", 10).totalNotes());
+    }
+
+    @Test
+    void rebuild_WritesDuringReadTest() {
+        when(mongoTemplate.stream(any(Query.class), eq(Note.class))).thenAnswer(invocation -> {
+            // Écritures reçues pendant la lecture : n1 est aussi lue par le curseur, n2 ne l'est pas
+            searchIndex.add(note("n1", 1, "Vertiges"));
+            searchIndex.add(note("n2", 2, "Vertiges"));
+            searchIndex.removePatient(3);
+            return Stream.of(note("n1", 1, "Vertiges"), note("n3", 3, "Vertiges"));
+        });
+
+        searchIndex.rebuild();
+
+        NoteSearchResultDTO result = searchIndex.search("vertiges", 10);
+        assertEquals(List.of(1, 2), result.patIds());
+        assertEquals(2, result.totalNotes());
+    }
+}
@@ -1,5 +1,8 @@
 package com.medilabo.notes_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medilabo.notes_service.dto.NotePageDTO;
+import com.medilabo.notes_service.dto.TriggerSummaryDTO;
 import com.medilabo.notes_service.model.Note;
 import com.medilabo.notes_service.repository.NoteRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,10 +10,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.bson.types.ObjectId;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,6 +37,21 @@ class NoteServiceTest {
     @Mock
     private NoteRepository noteRepository;
 
+    @Mock
+    private DiabetesNotifier diabetesNotifier;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private NoteSearchIndex searchIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private NoteTriggerExtractor triggerExtractor = new NoteTriggerExtractor(new ObjectMapper(), new DefaultResourceLoader(), "");
+
     @InjectMocks
     private NoteService noteService;
 
@@ -30,6 +61,14 @@ class NoteServiceTest {
     void setUp() {
         testNote = new Note(1, "Test Patient", "Contenu de test");
         testNote.setId("testId");
+        ReflectionTestUtils.setField(noteService, "maxPageSize", 100);
+        ReflectionTestUtils.setField(noteService, "streamBatchSize", 2);
+    }
+
+    private Note note(String id) {
+        Note note = new Note(1, "Test Patient", "Note " + id);
+        note.setId(id);
+        return note;
     }
 
     @Test
@@ -44,6 +83,88 @@ class NoteServiceTest {
         verify(noteRepository).findByPatId(1);
     }
 
+    @Test
+    void findByPatientId_FieldsTest() {
+
+        List<Note> expectedNotes = Arrays.asList(testNote);
+        when(noteRepository.findProjectedByPatId(1, Set.of("id", "note"))).thenReturn(expectedNotes);
+
+        List<Note> actualNotes = noteService.findByPatientId(1, " id, note");
+
+        assertEquals(expectedNotes, actualNotes);
+        verify(noteRepository, never()).findByPatId(any());
+        assertNull(NoteService.parseFields(" "));
+    }
+
+    @Test
+    void findByPatientId_UnknownFieldTest() {
+        assertThrows(IllegalArgumentException.class, () -> noteService.findByPatientId(1, "id,texte"));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void findPageByPatientId_FirstPageTest() {
+        String first = new ObjectId().toHexString();
+        String second = new ObjectId().toHexString();
+        String third = new ObjectId().toHexString();
+        when(noteRepository.findFirstPageByPatId(1, PageRequest.of(0, 3)))
+                .thenReturn(List.of(note(first), note(second), note(third)));
+
+        NotePageDTO page = noteService.findPageByPatientId(1, null, 2);
+
+        assertEquals(List.of(first, second), page.notes().stream().map(Note::getId).toList());
+        assertEquals(second, page.next());
+    }
+
+    @Test
+    void findPageByPatientId_LastPageTest() {
+        String after = new ObjectId().toHexString();
+        String last = new ObjectId().toHexString();
+        when(noteRepository.findPageByPatIdAfter(1, new ObjectId(after), PageRequest.of(0, 3))).thenReturn(List.of(note(last)));
+
+        NotePageDTO page = noteService.findPageByPatientId(1, after, 2);
+
+        assertEquals(1, page.notes().size());
+        assertNull(page.next());
+    }
+
+    @Test
+    void findPageByPatientId_InvalidTest() {
+        assertThrows(IllegalArgumentException.class, () -> noteService.findPageByPatientId(1, "pas-un-jeton", 10));
+        assertThrows(IllegalArgumentException.class, () -> noteService.findPageByPatientId(1, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> noteService.findPageByPatientId(1, null, 101));
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void streamByPatientIdTest() throws IOException {
+        when(mongoTemplate.stream(any(Query.class), eq(Note.class))).thenReturn(Stream.of(note("a"), note("b"), note("c")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = noteService.streamByPatientId(1, out);
+
+        assertEquals(3, count);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals("c", objectMapper.readValue(lines.get(2), Note.class).getId());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Note.class));
+        assertEquals(2, query.getValue().getMeta().getCursorBatchSize());
+        assertEquals(1, query.getValue().getQueryObject().get("patId"));
+    }
+
+    @Test
+    void findByPatientIdsTest() {
+
+        List<Note> expectedNotes = Arrays.asList(testNote);
+        when(noteRepository.findByPatIdIn(List.of(1, 2))).thenReturn(expectedNotes);
+
+        List<Note> actualNotes = noteService.findByPatientIds(List.of(1, 2));
+
+        assertEquals(expectedNotes, actualNotes);
+        verify(noteRepository).findByPatIdIn(List.of(1, 2));
+    }
+
     @Test
     void createNoteTest() {
 
@@ -54,6 +175,86 @@ class NoteServiceTest {
 
         assertEquals(testNote, createdNote);
         verify(noteRepository).save(inputNote);
+        verify(diabetesNotifier).noteCreated(testNote);
+        verify(searchIndex).add(testNote);
+    }
+
+    @Test
+    void createNoteTriggersTest() {
+
+        Note inputNote = new Note(1, "Test Patient", "Poids en hausse, VERTIGES fréquents, Hémoglobine A1C élevée");
+        when(noteRepository.save(inputNote)).thenReturn(inputNote);
+
+        noteService.createNote(inputNote);
+
+        assertEquals(List.of("hémoglobine a1c", "poids", "vertiges", "vertige"), inputNote.getTriggers());
+        assertEquals(NoteTriggerExtractor.BUILTIN_VERSION, inputNote.getTriggerVersion());
+        // Le plus long terme compte 15 caractères : 14 caractères suffisent pour un terme à cheval entre deux notes
+        assertEquals("poids en hauss", inputNote.getTriggerHead());
+        assertEquals("ine a1c élevée", inputNote.getTriggerTail());
+    }
+
+    @Test
+    void builtinTriggerVersionTest() {
+        // Même valeur que dans le service diabète : les deux listes intégrées doivent rester identiques
+        assertEquals("builtin-21abfd025050", NoteTriggerExtractor.BUILTIN_VERSION);
+        assertNotEquals(NoteTriggerExtractor.BUILTIN_VERSION, NoteTriggerExtractor.builtinVersion(List.of("poids")));
+    }
+
+    @Test
+    void getTriggerSummaryTest() {
+
+        Note stale = new Note(1, null, null);
+        stale.setId("a");
+        Note staleText = new Note(1, "Test Patient", "Cholestérol anormal, fumeur");
+        staleText.setId("a");
+        Note enriched = stored("b", "Poids stable, fumeur");
+        when(noteRepository.findTriggersByPatId(1)).thenReturn(List.of(stale, enriched));
+        when(noteRepository.findAllById(List.of("a"))).thenReturn(List.of(staleText));
+
+        TriggerSummaryDTO summary = noteService.getTriggerSummary(1);
+
+        assertEquals(new TriggerSummaryDTO(1, NoteTriggerExtractor.BUILTIN_VERSION,
+                                           List.of("fumeur", "anormal", "cholestérol", "poids"), 2, "b", "stable, fumeur"), summary);
+    }
+
+    @Test
+    void getTriggerSummary_CrossNoteTest() {
+        List<String> texts = List.of("Contrôle de l'Hémoglobine", "A1C", "élevée, anormal");
+        List<Note> notes = List.of(stored("a", texts.get(0)), stored("b", texts.get(1)), stored("c", texts.get(2)));
+        when(noteRepository.findTriggersByPatId(1)).thenReturn(notes);
+
+        TriggerSummaryDTO summary = noteService.getTriggerSummary(1);
+
+        // Même résultat que la recherche dans les notes séparées par un espace, comme le fait le service diabète
+        assertEquals(List.of("hémoglobine a1c", "anormal"), summary.triggers());
+        assertEquals(Set.copyOf(triggerExtractor.extract(String.join(" ", texts))), Set.copyOf(summary.triggers()));
+        assertEquals("levée, anormal", summary.tail());
+        verify(noteRepository, never()).findAllById(any());
+    }
+
+    /**
+     * Note telle que lue par {@link NoteRepository#findTriggersByPatId(Integer)} : termes enregistrés, sans le texte.
+     */
+    private Note stored(String id, String text) {
+        Note note = new Note(1, null, text);
+        note.setId(id);
+        triggerExtractor.annotate(note);
+        note.setNote(null);
+        return note;
+    }
+
+    @Test
+    void getTriggerSummary_NoNotesTest() {
+        when(noteRepository.findTriggersByPatId(1)).thenReturn(List.of());
+
+        TriggerSummaryDTO summary = noteService.getTriggerSummary(1);
+
+        assertTrue(summary.triggers().isEmpty());
+        assertEquals(0, summary.noteCount());
+        assertNull(summary.lastNoteId());
+        assertNull(summary.tail());
+        verify(noteRepository, never()).findAllById(any());
     }
 
     @Test
@@ -63,5 +264,7 @@ class NoteServiceTest {
         noteService.deleteNotesByPatientId(1);
 
         verify(noteRepository).deleteByPatId(1);
+        verify(diabetesNotifier).notesChanged(1);
+        verify(searchIndex).removePatient(1);
     }
 }
\ No newline at end of file
@@ -36,6 +36,19 @@ public class PatientController {
         return ResponseEntity.ok(patientsList);
     }
 
+    /**
+     * Récupère en une seule requête plusieurs patients par leurs identifiants.
+     * Les identifiants inconnus sont ignorés.
+     *
+     * @param ids Identifiants des patients à récupérer
+     * @return Liste des patients trouvés
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<List<Patient>> getPatientsByIds(@RequestParam List<Integer> ids) {
+        List<Patient> patientsList = patientService.getPatients(ids);
+        return ResponseEntity.ok(patientsList);
+    }
+
     /**
      * Récupère les informations d'un patient spécifique par son identifiant.
      *
@@ -1,10 +1,11 @@
 package com.medilabo.patient_service.repository;
 
 import com.medilabo.patient_service.model.Patient;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.ListCrudRepository;
 
 /**
  * Repository pour l'accès et la manipulation des entités Patient dans la base de données.
+ * Les recherches de plusieurs patients renvoient des listes.
  */
-public interface PatientRepository extends CrudRepository<Patient, Integer> {
+public interface PatientRepository extends ListCrudRepository<Patient, Integer> {
 }
\ No newline at end of file
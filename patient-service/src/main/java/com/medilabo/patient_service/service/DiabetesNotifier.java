@@ -0,0 +1,55 @@
+package com.medilabo.patient_service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Prévient le service diabète qu'un patient a été créé, modifié ou supprimé, afin qu'il
+ * ne réutilise plus une évaluation de risque calculée avec les anciennes informations.
+ * La notification est faite au mieux : une erreur est journalisée sans faire échouer l'écriture.
+ * Dans une transaction, elle n'est envoyée qu'après sa validation : le service diabète, qui relit le patient
+ * dès réception, ne peut pas lire un patient dont la suppression n'est pas encore validée, et rien n'est envoyé
+ * si la transaction est annulée.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DiabetesNotifier {
+    private final RestTemplate restTemplate;
+
+    /**
+     * URL du service diabète, injectée depuis la configuration.
+     */
+    @Value("${diabetes.service.url}")
+    private String diabetesServiceUrl;
+
+    /**
+     * @param patientId L'ID du patient modifié
+     */
+    public void patientChanged(int patientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(patientId);
+                }
+            });
+        } else {
+            send(patientId);
+        }
+    }
+
+    private void send(int patientId) {
+        try {
+            restTemplate.postForLocation(diabetesServiceUrl + "/events/patients/" + patientId, null);
+        } catch (RestClientException e) {
+            log.warn("Impossible de notifier le service diabète pour le patient ID {} : {}", patientId, e.getMessage());
+        }
+    }
+}
@@ -24,6 +24,15 @@ public interface IPatientService {
      */
     Patient getPatient(int patientId);
 
+    /**
+     * Récupère en une seule requête les patients correspondant aux identifiants fournis.
+     * Les identifiants inconnus sont ignorés.
+     *
+     * @param patientIds Les identifiants des patients à récupérer
+     * @return Liste des patients trouvés
+     */
+    List<Patient> getPatients(List<Integer> patientIds);
+
     /**
      * Met à jour les informations d'un patient existant.
      *
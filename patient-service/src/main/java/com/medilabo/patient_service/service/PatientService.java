@@ -31,6 +31,7 @@ import java.util.List;
 public class PatientService implements IPatientService {
     private final PatientRepository patientRepository;
     private final RestTemplate restTemplate;
+    private final DiabetesNotifier diabetesNotifier;
 
 
     /**
@@ -41,7 +42,7 @@ public class PatientService implements IPatientService {
 
     @Override
     public List<Patient> getAllPatients() {
-        return (List<Patient>) patientRepository.findAll();
+        return patientRepository.findAll();
     }
 
     @Override
@@ -50,6 +51,11 @@ public class PatientService implements IPatientService {
                 new EntityNotFoundException("Patient not found"));
     }
 
+    @Override
+    public List<Patient> getPatients(List<Integer> patientIds) {
+        return patientRepository.findAllById(patientIds);
+    }
+
     @Override
     public Patient updatePatient(Patient patient, int patientId) {
         return patientRepository.findById(patientId).map(existingPatient -> {
@@ -59,14 +65,18 @@ public class PatientService implements IPatientService {
                                     existingPatient.setGender(patient.getGender());
                                     existingPatient.setPhoneNumber(patient.getPhoneNumber());
                                     existingPatient.setAddress(patient.getAddress());
-                                    return patientRepository.save(existingPatient);
+                                    Patient savedPatient = patientRepository.save(existingPatient);
+                                    diabetesNotifier.patientChanged(patientId);
+                                    return savedPatient;
                                 })
                                 .orElseThrow(() -> new EntityNotFoundException("Patient not found"));
     }
 
     @Override
     public Patient createPatient(Patient patient) {
-        return patientRepository.save(patient);
+        Patient savedPatient = patientRepository.save(patient);
+        diabetesNotifier.patientChanged(savedPatient.getId());
+        return savedPatient;
     }
 
     @Override
@@ -104,6 +114,7 @@ public class PatientService implements IPatientService {
 
         // Supprimer le patient de la base de données locale (SQL)
         patientRepository.deleteById(patientId);
+        diabetesNotifier.patientChanged(patientId);
 
         return true;
     }
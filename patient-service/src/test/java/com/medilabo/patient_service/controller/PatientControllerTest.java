@@ -75,6 +75,17 @@ public class PatientControllerTest {
         verify(patientService, times(1)).getPatient(1);
     }
 
+    @Test
+    void getPatientsByIdsTest() throws Exception {
+        when(patientService.getPatients(List.of(1, 2))).thenReturn(Arrays.asList(patient1, patient2));
+
+        mockMvc.perform(get("/patients/batch").param("ids", "1,2"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$", hasSize(2)))
+               .andExpect(jsonPath("$[1].id", is(2)));
+
+        verify(patientService, times(1)).getPatients(List.of(1, 2));
+    }
 
     @Test
     void createPatientTest() throws Exception {
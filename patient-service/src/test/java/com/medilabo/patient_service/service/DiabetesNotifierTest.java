@@ -0,0 +1,78 @@
+package com.medilabo.patient_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DiabetesNotifierTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @InjectMocks
+    private DiabetesNotifier diabetesNotifier;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(diabetesNotifier, "diabetesServiceUrl", "http://fake-diabetes:8083");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void patientChangedTest() {
+        diabetesNotifier.patientChanged(1);
+
+        verify(restTemplate).postForLocation("http://fake-diabetes:8083/events/patients/1", null);
+    }
+
+    @Test
+    void patientChanged_AfterCommitTest() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        diabetesNotifier.patientChanged(1);
+        verifyNoInteractions(restTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(restTemplate).postForLocation("http://fake-diabetes:8083/events/patients/1", null);
+    }
+
+    @Test
+    void patientChanged_RollbackTest() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        diabetesNotifier.patientChanged(1);
+        TransactionSynchronizationManager.getSynchronizations()
+                                         .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void patientChanged_ErrorIgnoredTest() {
+        when(restTemplate.postForLocation(any(String.class), isNull())).thenThrow(new RestClientException("indisponible"));
+
+        diabetesNotifier.patientChanged(1);
+
+        verify(restTemplate).postForLocation("http://fake-diabetes:8083/events/patients/1", null);
+    }
+}
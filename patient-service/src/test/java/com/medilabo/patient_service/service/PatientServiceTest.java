@@ -36,6 +36,9 @@ public class PatientServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private DiabetesNotifier diabetesNotifier;
+
     @InjectMocks
     private PatientService patientService;
 
@@ -79,6 +82,16 @@ public class PatientServiceTest {
 
 
 
+    @Test
+    void getPatientsTest() {
+        when(patientRepository.findAllById(List.of(1, 2))).thenReturn(Arrays.asList(patient1, patient2));
+
+        List<Patient> actualPatients = patientService.getPatients(List.of(1, 2));
+
+        assertEquals(2, actualPatients.size());
+        verify(patientRepository, times(1)).findAllById(List.of(1, 2));
+    }
+
     @Test
     void createPatientTest() {
 
@@ -90,6 +103,7 @@ public class PatientServiceTest {
         assertNotNull(savedPatient);
         assertEquals(1, savedPatient.getId());
         verify(patientRepository, times(1)).save(any(Patient.class));
+        verify(diabetesNotifier).patientChanged(1);
     }
 
     @Test
@@ -114,6 +128,7 @@ public class PatientServiceTest {
 
         verify(patientRepository, times(1)).findById(1);
         verify(patientRepository, times(1)).save(any(Patient.class));
+        verify(diabetesNotifier).patientChanged(1);
     }
 
 
@@ -135,5 +150,6 @@ public class PatientServiceTest {
         verify(patientRepository, times(1)).existsById(patientId);
         verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.DELETE), any(HttpEntity.class), eq(Void.class));
         verify(patientRepository, times(1)).deleteById(patientId);
+        verify(diabetesNotifier).patientChanged(patientId);
     }
 }
\ No newline at end of file